@@ -0,0 +1,127 @@
+package org.opentripplanner.ext.flex.flexpathcalculator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlexPathCacheTest {
+
+  private static final int N_VERTICES = 10;
+
+  private static final double BLOCK_LENGTH = 100.0;
+
+  private final Graph graph = new Graph();
+
+  private final List<IntersectionVertex> vertices = new ArrayList<>();
+
+  private FlexPathCache subject;
+
+  /** A two-way street along ten vertices, with 100 m between them. */
+  @BeforeEach
+  public void setUp() {
+    for (int i = 0; i < N_VERTICES; ++i) {
+      addVertex();
+    }
+    subject = new FlexPathCache(graph);
+  }
+
+  @Test
+  public void cachedTablesAreReused() {
+    FlexPathTable forward = subject.getTable(vertices.get(0), false);
+    FlexPathTable reverse = subject.getTable(vertices.get(0), true);
+
+    assertSame(forward, subject.getTable(vertices.get(0), false));
+    assertSame(reverse, subject.getTable(vertices.get(0), true));
+    assertEquals(2, subject.size());
+
+    assertDistance(5, subject.getPath(vertices.get(0), vertices.get(5), false));
+    assertDistance(5, subject.getPath(vertices.get(0), vertices.get(5), true));
+    assertEquals(2, subject.size());
+  }
+
+  @Test
+  public void tablesAreEvictedWhenTheCacheIsFull() {
+    int tableSize = subject.getTable(vertices.get(0), false).size();
+    // Room for one table in each direction
+    subject.setMaxCachedEntries(2L * tableSize);
+    assertEquals(0, subject.size());
+
+    FlexPathTable first = subject.getTable(vertices.get(0), false);
+    subject.getTable(vertices.get(9), false);
+
+    assertTrue(subject.size() <= 1, "size: " + subject.size());
+    assertNotSame(first, subject.getTable(vertices.get(0), false));
+    assertDistance(9, subject.getPath(vertices.get(9), vertices.get(0), false));
+  }
+
+  @Test
+  public void pathToVertexAddedAfterTheFirstSearch() {
+    assertDistance(9, subject.getPath(vertices.get(0), vertices.get(9), false));
+    FlexPathTable table = subject.getTable(vertices.get(0), false);
+
+    IntersectionVertex added = addVertex();
+
+    assertDistance(10, subject.getPath(vertices.get(0), added, false));
+    assertDistance(10, subject.getPath(added, vertices.get(0), true));
+    // The tables computed before the vertex was added are dropped
+    assertNotSame(table, subject.getTable(vertices.get(0), false));
+  }
+
+  @Test
+  public void concurrentSearches() {
+    subject.setMaxCachedEntries(
+        4L * subject.getTable(vertices.get(0), false).size()
+    );
+
+    IntStream.range(0, 2000).parallel().forEach(i -> {
+      int from = i % N_VERTICES;
+      int to = (i / N_VERTICES) % N_VERTICES;
+      boolean reverse = i % 3 == 0;
+      if (from == to) { return; }
+      assertDistance(
+          Math.abs(to - from),
+          subject.getPath(vertices.get(from), vertices.get(to), reverse)
+      );
+    });
+  }
+
+  private static void assertDistance(int blocks, FlexPath path) {
+    assertNotNull(path);
+    assertEquals((int) (blocks * BLOCK_LENGTH), path.distanceMeters);
+  }
+
+  private IntersectionVertex addVertex() {
+    int i = vertices.size();
+    IntersectionVertex vertex = new IntersectionVertex(graph, "V" + i, 10.0 + i * 0.001, 59.0);
+    if (i > 0) {
+      street(vertices.get(i - 1), vertex, false);
+      street(vertex, vertices.get(i - 1), true);
+    }
+    vertices.add(vertex);
+    return vertex;
+  }
+
+  private static void street(IntersectionVertex from, IntersectionVertex to, boolean back) {
+    LineString geometry = GeometryUtils.makeLineString(
+        from.getLon(), from.getLat(), to.getLon(), to.getLat()
+    );
+    new StreetEdge(
+        from, to, geometry, "street", BLOCK_LENGTH, StreetTraversalPermission.ALL, back
+    );
+  }
+}
@@ -0,0 +1,141 @@
+package org.opentripplanner.ext.flex.flexpathcalculator;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.datastore.FileType;
+import org.opentripplanner.datastore.file.FileDataSource;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SerializedGraphObject;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.standalone.config.BuildConfig;
+import org.opentripplanner.standalone.config.RouterConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlexPathMatrixTest {
+
+  private static final double BLOCK_LENGTH = 100.0;
+
+  private final Graph graph = new Graph();
+
+  private final List<IntersectionVertex> v = new ArrayList<>();
+
+  /** A two-way street along ten vertices, with 100 m between them. */
+  public FlexPathMatrixTest() {
+    for (int i = 0; i < 10; ++i) {
+      IntersectionVertex vertex = new IntersectionVertex(graph, "V" + i, 10.0 + i * 0.001, 59.0);
+      if (i > 0) {
+        street(v.get(i - 1), vertex, false);
+        street(vertex, v.get(i - 1), true);
+      }
+      v.add(vertex);
+    }
+  }
+
+  @Test
+  public void lookupPaths() {
+    FlexPathMatrix matrix = matrix();
+
+    assertTrue(matrix.contains(v.get(0), v.get(5)));
+    assertTrue(matrix.contains(v.get(0), v.get(6)));
+    assertTrue(matrix.contains(v.get(6), v.get(0)));
+    assertFalse(matrix.contains(v.get(5), v.get(0)));
+    assertFalse(matrix.contains(v.get(0), v.get(7)));
+    assertFalse(matrix.contains(v.get(1), v.get(5)));
+    assertEquals(3, matrix.size());
+
+    FlexPath path = matrix.getPath(v.get(0), v.get(5), () -> null);
+    assertNotNull(path);
+    assertEquals(12345, path.distanceMeters);
+    assertEquals(600, path.durationSeconds);
+
+    // Included in the matrix, but not reached
+    assertNull(matrix.getPath(v.get(0), v.get(6), () -> null));
+
+    path = matrix.getPath(v.get(6), v.get(0), () -> null);
+    assertNotNull(path);
+    assertEquals(54321, path.distanceMeters);
+  }
+
+  @Test
+  public void pathsNotInTheMatrixAreSearched() {
+    graph.flexPathMatrix = matrix();
+    FlexPathCache cache = new FlexPathCache(graph);
+
+    // From the matrix, the geometry is searched
+    FlexPath path = cache.getPath(v.get(0), v.get(5), false);
+    assertEquals(12345, path.distanceMeters);
+    assertEquals(6, path.getGeometry().getNumPoints());
+
+    path = cache.getPath(v.get(5), v.get(0), true);
+    assertEquals(12345, path.distanceMeters);
+
+    // Not reached according to the matrix
+    assertNull(cache.getPath(v.get(0), v.get(6), false));
+
+    // Not in the matrix, searched
+    path = cache.getPath(v.get(0), v.get(7), false);
+    assertEquals(700, path.distanceMeters);
+    path = cache.getPath(v.get(5), v.get(0), false);
+    assertEquals(500, path.distanceMeters);
+  }
+
+  @Test
+  public void lookupPathsAfterLoadingTheGraph() throws IOException {
+    graph.flexPathMatrix = matrix();
+    File file = File.createTempFile("graph", ".obj");
+    file.deleteOnExit();
+    new SerializedGraphObject(graph, BuildConfig.DEFAULT, RouterConfig.DEFAULT)
+        .save(new FileDataSource(file, FileType.GRAPH));
+
+    Graph loaded = SerializedGraphObject.load(file);
+    FlexPathMatrix matrix = loaded.flexPathMatrix;
+    Vertex v0 = loaded.getVertex("V0");
+    Vertex v5 = loaded.getVertex("V5");
+    Vertex v6 = loaded.getVertex("V6");
+
+    assertEquals(3, matrix.size());
+    assertTrue(matrix.contains(v0, v5));
+    assertTrue(matrix.contains(v6, v0));
+    assertFalse(matrix.contains(v5, v0));
+    assertEquals(12345, matrix.getPath(v0, v5, () -> null).distanceMeters);
+    assertEquals(54321, matrix.getPath(v6, v0, () -> null).distanceMeters);
+  }
+
+  /**
+   * Paths from V0 to V5 (reached) and V6 (not reached), and from V6 to V0, with made up
+   * distances, to tell them from the searched paths.
+   */
+  private FlexPathMatrix matrix() {
+    FlexPathMatrix matrix = new FlexPathMatrix();
+    int v5 = matrix.addZoneVertex(v.get(5));
+    int v6 = matrix.addZoneVertex(v.get(6));
+    assertEquals(v5, matrix.addZoneVertex(v.get(5)));
+
+    matrix.addRow(v.get(0), true, new int[] { v5, v6 }, new int[] { 600, -1 }, new int[] { 12345, 0 });
+    matrix.addRow(v.get(0), false, new int[] { v6 }, new int[] { 700 }, new int[] { 54321 });
+    return matrix;
+  }
+
+  private static void street(IntersectionVertex from, IntersectionVertex to, boolean back) {
+    LineString geometry = GeometryUtils.makeLineString(
+        from.getLon(), from.getLat(), to.getLon(), to.getLat()
+    );
+    new StreetEdge(
+        from, to, geometry, "street", BLOCK_LENGTH, StreetTraversalPermission.ALL, back
+    );
+  }
+}
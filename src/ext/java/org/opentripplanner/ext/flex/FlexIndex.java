@@ -4,18 +4,23 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.opentripplanner.common.geometry.HashGridSpatialIndex;
+import org.opentripplanner.ext.flex.flexpathcalculator.FlexPathCache;
 import org.opentripplanner.ext.flex.trip.FlexTrip;
 import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.FlexLocationGroup;
 import org.opentripplanner.model.FlexStopLocation;
 import org.opentripplanner.model.PathTransfer;
 import org.opentripplanner.model.Route;
+import org.opentripplanner.model.Stop;
 import org.opentripplanner.model.StopLocation;
 import org.opentripplanner.model.Trip;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
 
 public class FlexIndex {
   public Multimap<StopLocation, PathTransfer> transfersToStop = ArrayListMultimap.create();
@@ -30,7 +35,11 @@ public class FlexIndex {
 
   public Map<FeedScopedId, Trip> tripById = new HashMap<>();
 
+  /** The driving searches between permanent vertices, shared by all flex requests. */
+  public final FlexPathCache flexPathCache;
+
   public FlexIndex(Graph graph) {
+    flexPathCache = new FlexPathCache(graph);
     for (PathTransfer transfer : graph.transfersByStop.values()) {
       transfersToStop.put(transfer.to, transfer);
     }
@@ -60,4 +69,22 @@ public class FlexIndex {
   Stream<FlexTrip> getFlexTripsByStop(StopLocation stopLocation) {
     return flexTripsByStop.get(stopLocation).stream();
   }
+
+  /**
+   * Precompute the driving searches from and to the stops served by flex trips. The searches
+   * from flexible zones start at the street vertex where the zone is reached, which depends on the
+   * request, so these are computed by the first request using them.
+   */
+  public void precomputeFlexPaths(Graph graph) {
+    Set<TransitStopVertex> vertices = new HashSet<>();
+    for (StopLocation stop : flexTripsByStop.keySet()) {
+      if (stop instanceof Stop) {
+        TransitStopVertex vertex = graph.index.getStopVertexForStop().get(stop);
+        if (vertex != null) {
+          vertices.add(vertex);
+        }
+      }
+    }
+    flexPathCache.precompute(vertices);
+  }
 }
@@ -0,0 +1,227 @@
+package org.opentripplanner.ext.flex;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import org.opentripplanner.ext.flex.flexpathcalculator.FlexPathCache;
+import org.opentripplanner.ext.flex.flexpathcalculator.FlexPathMatrix;
+import org.opentripplanner.ext.flex.trip.FlexTrip;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.issues.Graphwide;
+import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.model.FlexLocationGroup;
+import org.opentripplanner.model.FlexStopLocation;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopLocation;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+import org.opentripplanner.util.ProgressTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precompute the driving time and distance between the stops served by flex trips and the street
+ * vertices of the flexible zones served by the same trips, and store them in the graph as a
+ * {@link FlexPathMatrix}. The flex access, egress and direct searches then look up these paths
+ * instead of searching the street network, and only search for the paths not in the matrix.
+ * <p>
+ * This must run after the {@link FlexLocationsToStreetEdgesMapper}, which finds the street
+ * vertices of each zone. It is enabled with the {@code flexPathMatrix} build config parameter. If
+ * the matrix would hold more than {@code flexPathMatrixMaxSize} paths, it is not built, and all
+ * flex paths are searched when they are needed.
+ */
+public class FlexPathMatrixBuilder implements GraphBuilderModule {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FlexPathMatrixBuilder.class);
+
+  private final long maxSize;
+
+  /**
+   * @param maxSize the maximum number of paths in the matrix, in both directions
+   */
+  public FlexPathMatrixBuilder(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public void buildGraph(
+      Graph graph, HashMap<Class<?>, Object> extra, DataImportIssueStore issueStore
+  ) {
+    if (graph.flexTripsById.isEmpty() || graph.locationsById.isEmpty()) {
+      return;
+    }
+
+    Map<FlexStopLocation, List<Vertex>> verticesByZone = new HashMap<>();
+    for (StreetVertex vertex : graph.getVerticesOfType(StreetVertex.class)) {
+      if (vertex.flexStopLocations == null) { continue; }
+      for (FlexStopLocation zone : vertex.flexStopLocations) {
+        verticesByZone.computeIfAbsent(zone, z -> new ArrayList<>()).add(vertex);
+      }
+    }
+
+    Map<Stop, TransitStopVertex> stopVertices = new HashMap<>();
+    for (TransitStopVertex vertex : graph.getVerticesOfType(TransitStopVertex.class)) {
+      stopVertices.put(vertex.getStop(), vertex);
+    }
+
+    // The zones served by the same trips as each stop
+    Map<Stop, Set<FlexStopLocation>> zonesByStop = new HashMap<>();
+    for (FlexTrip trip : graph.flexTripsById.values()) {
+      Set<Stop> stops = new HashSet<>();
+      Set<FlexStopLocation> zones = new HashSet<>();
+      for (StopLocation stop : trip.getStops()) {
+        addStopLocation(stop, stops, zones);
+      }
+      if (zones.isEmpty()) { continue; }
+      for (Stop stop : stops) {
+        zonesByStop.computeIfAbsent(stop, s -> new HashSet<>()).addAll(zones);
+      }
+    }
+
+    FlexPathMatrix matrix = new FlexPathMatrix();
+    List<Vertex> zoneVertices = new ArrayList<>();
+    List<Row> rows = new ArrayList<>();
+    for (Map.Entry<Stop, Set<FlexStopLocation>> it : zonesByStop.entrySet()) {
+      TransitStopVertex stopVertex = stopVertices.get(it.getKey());
+      if (stopVertex == null) { continue; }
+
+      TIntSet ids = new TIntHashSet();
+      for (FlexStopLocation zone : it.getValue()) {
+        for (Vertex zoneVertex : verticesByZone.getOrDefault(zone, List.of())) {
+          int id = matrix.addZoneVertex(zoneVertex);
+          if (id == zoneVertices.size()) {
+            zoneVertices.add(zoneVertex);
+          }
+          ids.add(id);
+        }
+      }
+      if (!ids.isEmpty()) {
+        // The ids in each row are sorted
+        int[] sortedIds = ids.toArray();
+        Arrays.sort(sortedIds);
+        rows.add(new Row(stopVertex, sortedIds));
+      }
+    }
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    long size = 2L * rows.stream().mapToLong(it -> it.zoneVertexIds.length).sum();
+    if (size > maxSize) {
+      String message = String.format(
+          "The flex path matrix would hold %d paths, more than the maximum of %d. The matrix is "
+              + "not built, flex paths are searched when needed. See flexPathMatrixMaxSize.",
+          size,
+          maxSize
+      );
+      LOG.warn(message);
+      issueStore.add(new Graphwide(message));
+      return;
+    }
+
+    ProgressTracker progress = ProgressTracker.track(
+        "Precompute flex street paths", 10, rows.size()
+    );
+    LOG.info(progress.startMessage());
+
+    // The searches are independent, and are done in parallel
+    rows.parallelStream().forEach(row -> {
+      row.search(graph, zoneVertices, false);
+      row.search(graph, zoneVertices, true);
+      // Keep lambda! A method-ref would cause incorrect class and line number to be logged
+      progress.step(m -> LOG.info(m));
+    });
+
+    for (Row row : rows) {
+      row.addTo(matrix);
+    }
+    graph.flexPathMatrix = matrix;
+
+    LOG.info(progress.completeMessage());
+    LOG.info(
+        "Precomputed {} flex street paths for {} stops and {} zone vertices.",
+        matrix.size(),
+        rows.size(),
+        zoneVertices.size()
+    );
+  }
+
+  @Override
+  public void checkInputs() {
+    // No inputs
+  }
+
+  private static void addStopLocation(
+      StopLocation stop,
+      Collection<Stop> stops,
+      Collection<FlexStopLocation> zones
+  ) {
+    if (stop instanceof Stop) {
+      stops.add((Stop) stop);
+    }
+    else if (stop instanceof FlexStopLocation) {
+      zones.add((FlexStopLocation) stop);
+    }
+    else if (stop instanceof FlexLocationGroup) {
+      for (StopLocation element : ((FlexLocationGroup) stop).getLocations()) {
+        addStopLocation(element, stops, zones);
+      }
+    }
+  }
+
+  /** The paths from and to one stop vertex, computed by one thread. */
+  private static class Row {
+
+    private final Vertex stopVertex;
+    private final int[] zoneVertexIds;
+    private final int[][] durations = new int[2][];
+    private final int[][] distances = new int[2][];
+
+    private Row(Vertex stopVertex, int[] zoneVertexIds) {
+      this.stopVertex = stopVertex;
+      this.zoneVertexIds = zoneVertexIds;
+    }
+
+    /**
+     * Search from the stop vertex, or to it if the search is done in reverse, and keep the
+     * paths to the zone vertices of the row.
+     */
+    private void search(Graph graph, List<Vertex> zoneVertices, boolean reverseDirection) {
+      ShortestPathTree spt = FlexPathCache.routeToMany(graph, stopVertex, reverseDirection);
+      int i = reverseDirection ? 1 : 0;
+      durations[i] = new int[zoneVertexIds.length];
+      distances[i] = new int[zoneVertexIds.length];
+
+      for (int j = 0; j < zoneVertexIds.length; ++j) {
+        State state = spt.getState(zoneVertices.get(zoneVertexIds[j]));
+        if (state == null) {
+          durations[i][j] = -1;
+          continue;
+        }
+        double distance = 0;
+        for (State s = state; s.getBackEdge() != null; s = s.getBackState()) {
+          distance += s.getBackEdge().getDistanceMeters();
+        }
+        durations[i][j] = (int) state.getElapsedTimeSeconds();
+        distances[i][j] = (int) distance;
+      }
+    }
+
+    private void addTo(FlexPathMatrix matrix) {
+      matrix.addRow(stopVertex, true, zoneVertexIds, durations[0], distances[0]);
+      matrix.addRow(stopVertex, false, zoneVertexIds, durations[1], distances[1]);
+    }
+  }
+}
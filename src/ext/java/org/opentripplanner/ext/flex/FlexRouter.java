@@ -67,8 +67,12 @@ public class FlexRouter {
     this.streetAccesses = streetAccesses;
     this.streetEgresses = egressTransfers;
     this.flexIndex = graph.index.getFlexIndex();
-    this.accessFlexPathCalculator = new StreetFlexPathCalculator(graph, false);
-    this.egressFlexPathCalculator = new StreetFlexPathCalculator(graph, true);
+    this.accessFlexPathCalculator = new StreetFlexPathCalculator(
+        graph, flexIndex.flexPathCache, false
+    );
+    this.egressFlexPathCalculator = new StreetFlexPathCalculator(
+        graph, flexIndex.flexPathCache, true
+    );
 
     ZoneId tz = graph.getTimeZone().toZoneId();
     LocalDate searchDate = LocalDate.ofInstant(searchInstant, tz);
@@ -0,0 +1,244 @@
+package org.opentripplanner.ext.flex.flexpathcalculator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.strategies.DurationSkipEdgeStrategy;
+import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A graph level cache of the one-to-many driving searches done by the
+ * {@link StreetFlexPathCalculator}, shared by all requests. Each search is kept as a compact
+ * {@link FlexPathTable}. The cache is thread-safe, and the total number of table entries is limited
+ * so the cache does not grow without bounds.
+ * <p>
+ * Searches from temporary vertices are specific to one request, and are not cached here.
+ * <p>
+ * The tables refer to the vertices by a compact id, assigned to all vertices in the graph when the
+ * first table is created. If a path to a vertex added to the graph later is requested, for example
+ * a vertex added by a real-time updater, new ids are assigned and the cached tables are dropped.
+ * <p>
+ * If the paths between the flex stops and zones are precomputed in the {@link FlexPathMatrix} of
+ * the graph, the durations and distances are taken from the matrix, and only the geometry of the
+ * paths returned to the user needs a search.
+ */
+public class FlexPathCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FlexPathCache.class);
+
+  private static final long MAX_FLEX_TRIP_DURATION_SECONDS = Duration.ofMinutes(45).toSeconds();
+
+  /**
+   * The default maximum number of table entries in the cache. An entry is about 30 bytes, so this
+   * is about 3 MB. A larger cache has to be configured.
+   */
+  public static final long DEFAULT_MAX_CACHED_ENTRIES = 100_000;
+
+  private final Graph graph;
+
+  private volatile long maxCachedEntries = DEFAULT_MAX_CACHED_ENTRIES;
+
+  /** The vertex ids and the tables using them, created when first needed. */
+  private volatile Snapshot snapshot;
+
+  public FlexPathCache(Graph graph) {
+    this.graph = graph;
+  }
+
+  /**
+   * Set the maximum number of table entries kept in the cache. This drops the cached tables.
+   */
+  public synchronized void setMaxCachedEntries(long maxCachedEntries) {
+    this.maxCachedEntries = maxCachedEntries;
+    this.snapshot = null;
+  }
+
+  /**
+   * Compute the tables from and to the given vertices, so the first requests do not have to. The
+   * searches are done in parallel.
+   */
+  public void precompute(Collection<? extends Vertex> vertices) {
+    long start = System.currentTimeMillis();
+    Snapshot s = snapshot();
+    vertices.parallelStream().forEach(it -> {
+      s.getTable(it, false);
+      s.getTable(it, true);
+    });
+    LOG.info(
+        "Precomputed flex street paths for {} vertices in {} s.",
+        vertices.size(),
+        (System.currentTimeMillis() - start) / 1000
+    );
+  }
+
+  /**
+   * @return the path between the given permanent vertices, or {@code null} if the destination is
+   *         not reached within the maximum flex trip duration.
+   */
+  FlexPath getPath(Vertex originVertex, Vertex destinationVertex, boolean reverseDirection) {
+    FlexPathMatrix matrix = graph.flexPathMatrix;
+    if (matrix != null) {
+      Vertex fromVertex = reverseDirection ? destinationVertex : originVertex;
+      Vertex toVertex = reverseDirection ? originVertex : destinationVertex;
+      if (matrix.contains(fromVertex, toVertex)) {
+        return matrix.getPath(
+            fromVertex,
+            toVertex,
+            () -> searchGeometry(originVertex, destinationVertex, reverseDirection)
+        );
+      }
+    }
+    return searchPath(originVertex, destinationVertex, reverseDirection);
+  }
+
+  /** @return {@code true} if the path from or to the given vertex can be cached. */
+  static boolean isCacheable(Vertex vertex) {
+    return !(vertex instanceof TemporaryVertex);
+  }
+
+  private FlexPath searchPath(
+      Vertex originVertex,
+      Vertex destinationVertex,
+      boolean reverseDirection
+  ) {
+    Snapshot s = snapshot();
+    if (!s.vertexIds.containsKey(destinationVertex)) {
+      // Assign new ids if the vertex is added to the graph after the ids were assigned
+      if (graph.getVertex(destinationVertex.getLabel()) != destinationVertex) { return null; }
+      s = replaceSnapshot(s);
+      if (!s.vertexIds.containsKey(destinationVertex)) { return null; }
+    }
+    return s.getTable(originVertex, reverseDirection).getPath(s.vertexIds.get(destinationVertex));
+  }
+
+  /**
+   * The geometry of a path found in the matrix. If the street network has changed since the
+   * matrix was computed, and the search does not find the path, a straight line is used.
+   */
+  private LineString searchGeometry(
+      Vertex originVertex,
+      Vertex destinationVertex,
+      boolean reverseDirection
+  ) {
+    FlexPath path = searchPath(originVertex, destinationVertex, reverseDirection);
+    if (path != null) {
+      return path.getGeometry();
+    }
+    Vertex fromVertex = reverseDirection ? destinationVertex : originVertex;
+    Vertex toVertex = reverseDirection ? originVertex : destinationVertex;
+    return GeometryUtils.makeLineString(
+        new Coordinate[] { fromVertex.getCoordinate(), toVertex.getCoordinate() }
+    );
+  }
+
+  /** The table of the searches from or to the given vertex, computed if not in the cache. */
+  FlexPathTable getTable(Vertex originVertex, boolean reverseDirection) {
+    return snapshot().getTable(originVertex, reverseDirection);
+  }
+
+  /** The number of tables in the cache. */
+  long size() {
+    Snapshot s = snapshot;
+    return s == null ? 0 : s.forwardTables.size() + s.reverseTables.size();
+  }
+
+  private Snapshot snapshot() {
+    Snapshot s = snapshot;
+    return s != null ? s : replaceSnapshot(null);
+  }
+
+  /**
+   * Replace the given snapshot with a new one with ids for all vertices in the graph. If another
+   * thread has already replaced it, the new snapshot of that thread is used.
+   */
+  private synchronized Snapshot replaceSnapshot(Snapshot stale) {
+    if (snapshot == stale) {
+      snapshot = new Snapshot(graph, maxCachedEntries);
+    }
+    return snapshot;
+  }
+
+  public static ShortestPathTree routeToMany(Graph graph, Vertex vertex, boolean reverseDirection) {
+    RoutingRequest routingRequest = new RoutingRequest(TraverseMode.CAR);
+    routingRequest.arriveBy = reverseDirection;
+    if (reverseDirection) {
+      routingRequest.setRoutingContext(graph, null, vertex);
+    } else {
+      routingRequest.setRoutingContext(graph, vertex, null);
+    }
+    routingRequest.disableRemainingWeightHeuristic = true;
+    routingRequest.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
+    routingRequest.dominanceFunction = new DominanceFunction.EarliestArrival();
+    routingRequest.oneToMany = true;
+    AStar search = new AStar();
+    search.setSkipEdgeStrategy(new DurationSkipEdgeStrategy(MAX_FLEX_TRIP_DURATION_SECONDS));
+    ShortestPathTree spt = search.getShortestPathTree(routingRequest);
+    routingRequest.cleanup();
+    return spt;
+  }
+
+  /**
+   * A compact id for each permanent vertex, and the tables using these ids. The ids and the
+   * tables are always replaced together.
+   */
+  private static class Snapshot {
+
+    private final Graph graph;
+    private final TObjectIntMap<Vertex> vertexIds;
+    private final Cache<Vertex, FlexPathTable> forwardTables;
+    private final Cache<Vertex, FlexPathTable> reverseTables;
+
+    private Snapshot(Graph graph, long maxCachedEntries) {
+      this.graph = graph;
+      Collection<Vertex> vertices = graph.getVertices();
+      this.vertexIds = new TObjectIntHashMap<>(vertices.size());
+      for (Vertex vertex : vertices) {
+        vertexIds.put(vertex, vertexIds.size());
+      }
+      this.forwardTables = newCache(maxCachedEntries);
+      this.reverseTables = newCache(maxCachedEntries);
+    }
+
+    private FlexPathTable getTable(Vertex originVertex, boolean reverseDirection) {
+      Cache<Vertex, FlexPathTable> cache = reverseDirection ? reverseTables : forwardTables;
+      try {
+        return cache.get(
+            originVertex,
+            () -> FlexPathTable.create(
+                routeToMany(graph, originVertex, reverseDirection),
+                vertexIds,
+                reverseDirection
+            )
+        );
+      }
+      catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+
+    private static Cache<Vertex, FlexPathTable> newCache(long maxCachedEntries) {
+      return CacheBuilder.newBuilder()
+          .maximumWeight(maxCachedEntries / 2)
+          .<Vertex, FlexPathTable>weigher((vertex, table) -> table.size())
+          .build();
+    }
+  }
+}
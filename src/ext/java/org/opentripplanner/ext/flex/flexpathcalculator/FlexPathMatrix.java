@@ -0,0 +1,131 @@
+package org.opentripplanner.ext.flex.flexpathcalculator;
+
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The driving time and distance between the stops served by flex trips and the street vertices
+ * of the flexible zones served by the same trips, computed when the graph is built by the
+ * {@link org.opentripplanner.ext.flex.FlexPathMatrixBuilder}.
+ * <p>
+ * Only the durations and distances are stored. The geometry of a path is only needed for the
+ * itineraries returned to the user, and is computed with a live search when it is needed.
+ * <p>
+ * Each row holds the paths from or to one stop vertex, with the zone vertices as sorted ids. A
+ * path included in the row, but not found within the maximum flex trip duration, has a negative
+ * duration. The matrix is immutable once it is built, and is thread-safe.
+ */
+public class FlexPathMatrix implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * A compact id for each zone vertex, used as key in the rows. This is a plain HashMap, which is
+   * rehashed when the graph is loaded, as the vertices are hashed by identity.
+   */
+  private final Map<Vertex, Integer> zoneVertexIds = new HashMap<>();
+
+  /** The paths from each stop vertex to the zone vertices. */
+  private final Map<Vertex, Row> rowsFromStop = new HashMap<>();
+
+  /** The paths from the zone vertices to each stop vertex. */
+  private final Map<Vertex, Row> rowsToStop = new HashMap<>();
+
+  /** Add a zone vertex, and return its id. This is not thread-safe. */
+  public int addZoneVertex(Vertex vertex) {
+    return zoneVertexIds.computeIfAbsent(vertex, v -> zoneVertexIds.size());
+  }
+
+  /**
+   * Add the paths between the given stop vertex and zone vertices. This is not thread-safe.
+   *
+   * @param zoneVertexIds the ids of the zone vertices, sorted
+   * @param durations     the duration of each path in seconds, or a negative number if the zone
+   *                      vertex is not reached
+   * @param distances     the distance of each path in meters
+   */
+  public void addRow(
+      Vertex stopVertex,
+      boolean fromStop,
+      int[] zoneVertexIds,
+      int[] durations,
+      int[] distances
+  ) {
+    Row row = new Row(zoneVertexIds, durations, distances);
+    (fromStop ? rowsFromStop : rowsToStop).put(stopVertex, row);
+  }
+
+  /** The number of paths in the matrix. */
+  public int size() {
+    return rowsFromStop.values().stream().mapToInt(it -> it.zoneVertexIds.length).sum()
+        + rowsToStop.values().stream().mapToInt(it -> it.zoneVertexIds.length).sum();
+  }
+
+  /**
+   * @return {@code true} if the path between the given vertices is in the matrix, reached or not.
+   */
+  boolean contains(Vertex fromVertex, Vertex toVertex) {
+    return find(fromVertex, toVertex) != null;
+  }
+
+  /**
+   * @param geometry the geometry of the path, which is not kept in the matrix
+   * @return the path between the given vertices, or {@code null} if it is not reached within the
+   *         maximum flex trip duration or not in the matrix.
+   */
+  FlexPath getPath(Vertex fromVertex, Vertex toVertex, Supplier<LineString> geometry) {
+    Entry entry = find(fromVertex, toVertex);
+    return entry == null ? null : entry.getPath(geometry);
+  }
+
+  private Entry find(Vertex fromVertex, Vertex toVertex) {
+    Entry entry = find(rowsFromStop.get(fromVertex), toVertex);
+    return entry != null ? entry : find(rowsToStop.get(toVertex), fromVertex);
+  }
+
+  private Entry find(Row row, Vertex zoneVertex) {
+    if (row == null) { return null; }
+    Integer id = zoneVertexIds.get(zoneVertex);
+    if (id == null) { return null; }
+    int i = Arrays.binarySearch(row.zoneVertexIds, id);
+    return i < 0 ? null : new Entry(row, i);
+  }
+
+  private static class Row implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] zoneVertexIds;
+    private final int[] durations;
+    private final int[] distances;
+
+    private Row(int[] zoneVertexIds, int[] durations, int[] distances) {
+      this.zoneVertexIds = zoneVertexIds;
+      this.durations = durations;
+      this.distances = distances;
+    }
+  }
+
+  /** The path between a stop vertex and a zone vertex, found in a row. */
+  private static class Entry {
+    private final Row row;
+    private final int index;
+
+    private Entry(Row row, int index) {
+      this.row = row;
+      this.index = index;
+    }
+
+    private FlexPath getPath(Supplier<LineString> geometry) {
+      int duration = row.durations[index];
+      if (duration < 0) { return null; }
+      return new FlexPath(row.distances[index], duration, geometry);
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package org.opentripplanner.ext.flex.flexpathcalculator;
+
+import gnu.trove.map.TObjectIntMap;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.api.resource.CoordinateArrayListSequence;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The driving time and distance from one origin vertex to every vertex reached by a one-to-many
+ * search, kept in primitive arrays instead of the {@link State}s of the {@link ShortestPathTree}.
+ * <p>
+ * Each entry in the table is a state on the path to a reached vertex, with a reference to the
+ * entry of its back state. The geometry of a path is only created from the back edges when it is
+ * needed, see {@link FlexPath#getGeometry()}.
+ * <p>
+ * Only permanent vertices are included, so a table can be shared between requests. The table is
+ * immutable and thread-safe.
+ */
+class FlexPathTable {
+
+  /** The vertex ids of the reached vertices, sorted. */
+  private final int[] vertexIds;
+
+  /** The entry of the path to each vertex in {@link #vertexIds}. */
+  private final int[] vertexEntries;
+
+  private final int[] durations;
+  private final double[] distances;
+  private final int[] parents;
+  private final Edge[] backEdges;
+
+  /** If the search is done from the destination, the paths are stored in travel order. */
+  private final boolean reverseDirection;
+
+  private FlexPathTable(
+      int[] vertexIds,
+      int[] vertexEntries,
+      int[] durations,
+      double[] distances,
+      int[] parents,
+      Edge[] backEdges,
+      boolean reverseDirection
+  ) {
+    this.vertexIds = vertexIds;
+    this.vertexEntries = vertexEntries;
+    this.durations = durations;
+    this.distances = distances;
+    this.parents = parents;
+    this.backEdges = backEdges;
+    this.reverseDirection = reverseDirection;
+  }
+
+  /**
+   * Create a table of the best path to each permanent vertex in the shortest path tree.
+   *
+   * @param vertexIds the ids of all permanent vertices in the graph
+   */
+  static FlexPathTable create(
+      ShortestPathTree spt,
+      TObjectIntMap<Vertex> vertexIds,
+      boolean reverseDirection
+  ) {
+    Builder builder = new Builder(spt.getVertexCount());
+    for (Vertex vertex : spt.getVertices()) {
+      if (!vertexIds.containsKey(vertex)) { continue; }
+      State state = spt.getState(vertex);
+      if (state == null) { continue; }
+      builder.addVertex(vertexIds.get(vertex), builder.entryOf(state));
+    }
+    return builder.build(reverseDirection);
+  }
+
+  /** The number of entries, used to limit the size of the cache. */
+  int size() {
+    return durations.length;
+  }
+
+  /** @return the path to the vertex with the given id, or {@code null} if it is not reached. */
+  FlexPath getPath(int vertexId) {
+    int i = Arrays.binarySearch(vertexIds, vertexId);
+    if (i < 0) { return null; }
+    int entry = vertexEntries[i];
+    return new FlexPath((int) distances[entry], durations[entry], () -> createGeometry(entry));
+  }
+
+  private LineString createGeometry(int entry) {
+    Deque<Edge> edges = new ArrayDeque<>();
+    for (int e = entry; parents[e] >= 0; e = parents[e]) {
+      // The back edges of a reverse search are found in travel order
+      if (reverseDirection) {
+        edges.addLast(backEdges[e]);
+      }
+      else {
+        edges.addFirst(backEdges[e]);
+      }
+    }
+
+    CoordinateArrayListSequence coordinates = new CoordinateArrayListSequence();
+    for (Edge edge : edges) {
+      LineString geometry = edge.getGeometry();
+      if (geometry == null) { continue; }
+      if (coordinates.size() == 0) {
+        coordinates.extend(geometry.getCoordinates());
+      }
+      else {
+        // Avoid duplications
+        coordinates.extend(geometry.getCoordinates(), 1);
+      }
+    }
+    return GeometryUtils.getGeometryFactory().createLineString(coordinates);
+  }
+
+  private static class Builder {
+
+    private final Map<State, Integer> entryByState = new IdentityHashMap<>();
+
+    private int[] vertexIds;
+    private int[] vertexEntries;
+    private int nVertices = 0;
+
+    private int[] durations;
+    private double[] distances;
+    private int[] parents;
+    private Edge[] backEdges;
+    private int nEntries = 0;
+
+    Builder(int capacity) {
+      capacity = Math.max(capacity, 16);
+      vertexIds = new int[capacity];
+      vertexEntries = new int[capacity];
+      durations = new int[capacity];
+      distances = new double[capacity];
+      parents = new int[capacity];
+      backEdges = new Edge[capacity];
+    }
+
+    void addVertex(int vertexId, int entry) {
+      if (nVertices == vertexIds.length) {
+        vertexIds = Arrays.copyOf(vertexIds, 2 * nVertices);
+        vertexEntries = Arrays.copyOf(vertexEntries, 2 * nVertices);
+      }
+      vertexIds[nVertices] = vertexId;
+      vertexEntries[nVertices] = entry;
+      ++nVertices;
+    }
+
+    /**
+     * Add the given state and the states on the path to it, if they are not added already.
+     *
+     * @return the entry of the state
+     */
+    int entryOf(State state) {
+      // Find the states not added yet, the last state in the list is closest to the origin
+      Deque<State> missing = new ArrayDeque<>();
+      State s = state;
+      Integer parent = null;
+      while (s != null && (parent = entryByState.get(s)) == null) {
+        missing.push(s);
+        s = s.getBackState();
+      }
+      int entry = parent == null ? -1 : parent;
+      while (!missing.isEmpty()) {
+        entry = addEntry(missing.pop(), entry);
+      }
+      return entry;
+    }
+
+    private int addEntry(State state, int parent) {
+      if (nEntries == durations.length) {
+        int capacity = 2 * nEntries;
+        durations = Arrays.copyOf(durations, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        backEdges = Arrays.copyOf(backEdges, capacity);
+      }
+      int entry = nEntries++;
+      durations[entry] = (int) state.getElapsedTimeSeconds();
+      parents[entry] = parent;
+      if (parent >= 0) {
+        backEdges[entry] = state.getBackEdge();
+        distances[entry] = distances[parent] + state.getBackEdge().getDistanceMeters();
+      }
+      entryByState.put(state, entry);
+      return entry;
+    }
+
+    FlexPathTable build(boolean reverseDirection) {
+      // Sort the vertices by id, keeping the entries in the same order
+      long[] sorted = new long[nVertices];
+      for (int i = 0; i < nVertices; ++i) {
+        sorted[i] = ((long) vertexIds[i] << 32) | vertexEntries[i];
+      }
+      Arrays.sort(sorted);
+      int[] ids = new int[nVertices];
+      int[] entries = new int[nVertices];
+      for (int i = 0; i < nVertices; ++i) {
+        ids[i] = (int) (sorted[i] >>> 32);
+        entries[i] = (int) sorted[i];
+      }
+      return new FlexPathTable(
+          ids,
+          entries,
+          Arrays.copyOf(durations, nEntries),
+          Arrays.copyOf(distances, nEntries),
+          Arrays.copyOf(parents, nEntries),
+          Arrays.copyOf(backEdges, nEntries),
+          reverseDirection
+      );
+    }
+  }
+}
@@ -1,18 +1,10 @@
 package org.opentripplanner.ext.flex.flexpathcalculator;
 
-import org.locationtech.jts.geom.LineString;
-import org.opentripplanner.routing.algorithm.astar.AStar;
-import org.opentripplanner.routing.algorithm.astar.strategies.DurationSkipEdgeStrategy;
-import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
-import org.opentripplanner.routing.api.request.RoutingRequest;
-import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Vertex;
-import org.opentripplanner.routing.spt.DominanceFunction;
 import org.opentripplanner.routing.spt.GraphPath;
 import org.opentripplanner.routing.spt.ShortestPathTree;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,26 +12,30 @@ import java.util.Map;
  * StreetFlexPathCalculator calculates the driving times and distances based on the street network
  * using the AStar algorithm.
  *
- * Note that it caches the whole ShortestPathTree the first time it encounters a new fromVertex.
- * Subsequents requests from the same fromVertex can fetch the path to the toVertex from the
- * existing ShortestPathTree. This one-to-many approach is needed to make the performance acceptable.
+ * Note that it caches the result of a one-to-many search the first time it encounters a new
+ * fromVertex. Subsequents requests from the same fromVertex can fetch the path to the toVertex from
+ * the existing search. This one-to-many approach is needed to make the performance acceptable.
  *
  * Because we will have lots of searches with the same origin when doing access searches and a lot
  * of searches with the same destination when doing egress searches, the calculator needs to be
  * configured so that the caching is done with either the origin or destination vertex as the key.
  * The one-to-many search will then either be done in the forward or the reverse direction depending
  * on this configuration.
+ *
+ * Searches between permanent vertices are cached in the graph level {@link FlexPathCache}, shared
+ * by all requests. Searches from or to the temporary vertices of a request are cached in this
+ * instance as a full ShortestPathTree.
  */
 public class StreetFlexPathCalculator implements FlexPathCalculator {
 
-  private static final long MAX_FLEX_TRIP_DURATION_SECONDS = Duration.ofMinutes(45).toSeconds();
-
   private final Graph graph;
+  private final FlexPathCache sharedCache;
   private final Map<Vertex, ShortestPathTree> cache = new HashMap<>();
   private final boolean reverseDirection;
 
-  public StreetFlexPathCalculator(Graph graph, boolean reverseDirection) {
+  public StreetFlexPathCalculator(Graph graph, FlexPathCache sharedCache, boolean reverseDirection) {
     this.graph = graph;
+    this.sharedCache = sharedCache;
     this.reverseDirection = reverseDirection;
   }
 
@@ -51,11 +47,15 @@ public class StreetFlexPathCalculator implements FlexPathCalculator {
     Vertex originVertex = reverseDirection ? tov : fromv;
     Vertex destinationVertex = reverseDirection ? fromv : tov;
 
+    if (FlexPathCache.isCacheable(originVertex) && FlexPathCache.isCacheable(destinationVertex)) {
+      return sharedCache.getPath(originVertex, destinationVertex, reverseDirection);
+    }
+
     ShortestPathTree shortestPathTree;
     if (cache.containsKey(originVertex)) {
       shortestPathTree = cache.get(originVertex);
     } else {
-      shortestPathTree = routeToMany(originVertex);
+      shortestPathTree = FlexPathCache.routeToMany(graph, originVertex, reverseDirection);
       cache.put(originVertex, shortestPathTree);
     }
 
@@ -72,23 +72,4 @@ public class StreetFlexPathCalculator implements FlexPathCalculator {
     // this improves performance quite a bit.
     return new FlexPath(distance, duration, path::getGeometry);
   }
-
-  private ShortestPathTree routeToMany(Vertex vertex) {
-    RoutingRequest routingRequest = new RoutingRequest(TraverseMode.CAR);
-    routingRequest.arriveBy = reverseDirection;
-    if (reverseDirection) {
-      routingRequest.setRoutingContext(graph, null, vertex);
-    } else {
-      routingRequest.setRoutingContext(graph, vertex, null);
-    }
-    routingRequest.disableRemainingWeightHeuristic = true;
-    routingRequest.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
-    routingRequest.dominanceFunction = new DominanceFunction.EarliestArrival();
-    routingRequest.oneToMany = true;
-    AStar search = new AStar();
-    search.setSkipEdgeStrategy(new DurationSkipEdgeStrategy(MAX_FLEX_TRIP_DURATION_SECONDS));
-    ShortestPathTree spt = search.getShortestPathTree(routingRequest);
-    routingRequest.cleanup();
-    return spt;
-  }
 }
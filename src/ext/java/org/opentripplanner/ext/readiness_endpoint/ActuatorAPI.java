@@ -85,6 +85,8 @@ public class ActuatorAPI {
                     "graphUpdateScheduler",
                     List.of(Tag.of("pool", "graphUpdateScheduler"))
             ).bindTo(prometheusRegistry);
+
+            otpServer.getRouter().graph.updaterManager.getWriterQueue().bindTo(prometheusRegistry);
         }
 
         if (otpServer.getRouter().raptorConfig.isMultiThreaded()) {
@@ -8,10 +8,8 @@ import org.opentripplanner.model.Trip;
 import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.routing.RoutingService;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.DateMapper;
-import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.trippattern.TripTimes;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import uk.org.siri.siri20.EstimatedCall;
 import uk.org.siri.siri20.EstimatedVehicleJourney;
 import uk.org.siri.siri20.RecordedCall;
@@ -20,11 +18,13 @@ import uk.org.siri.siri20.VehicleModesEnumeration;
 
 import java.time.ZonedDateTime;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is used for matching TripDescriptors without trip_ids to scheduled GTFS data and to
@@ -35,27 +35,48 @@ import java.util.Set;
  * and arrival times of the scheduled trip. The matching process will always be applied even in places where you have
  * good quality IDs in SIRI data and don't need it - we'd have to add a way to disable it.
  *
- * Several instances of this SiriFuzzyTripMatcher may appear in different SIRI updaters, but they all share a common
- * set of static Map fields. We generally don't advocate using static fields in this way, but as part of a sandbox
- * contribution we are maintaining this implementation.
+ * Several instances of this SiriFuzzyTripMatcher may appear in different SIRI updaters. Instances created with
+ * {@link #of(Graph)} share one immutable {@link SiriFuzzyTripMatcherIndex} per graph. The index is built eagerly
+ * when the first matcher for a graph is created (at updater setup) and is dropped together with the graph, so a
+ * reloaded graph always gets a fresh index.
  */
 public class SiriFuzzyTripMatcher {
-    private static final Logger LOG = LoggerFactory.getLogger(SiriFuzzyTripMatcher.class);
 
-    private RoutingService routingService;
+    /**
+     * One index per graph. Weak keys make sure the index is released together with the graph when it is
+     * replaced by a reload. The map is only accessed when a matcher is created, never while matching.
+     */
+    private static final Map<Graph, SiriFuzzyTripMatcherIndex> INDEX_BY_GRAPH =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final RoutingService routingService;
 
-    private static Map<String, Set<Trip>> mappedTripsCache = new HashMap<>();
-    private static Map<String, Set<Trip>> mappedVehicleRefCache = new HashMap<>();
-    private static Map<String, Set<Route>> mappedRoutesCache = new HashMap<>();
-    private static Map<String, Set<Trip>> start_stop_tripCache = new HashMap<>();
+    private final SiriFuzzyTripMatcherIndex index;
 
-    private static Map<String, Trip> vehicleJourneyTripCache = new HashMap<>();
+    /** Trips not in the index (added by realtime updates), resolved on demand. */
+    private final Map<String, Trip> extraJourneyTripCache = new ConcurrentHashMap<>();
 
-    private static Set<String> nonExistingStops = new HashSet<>();
+    private final Set<String> nonExistingStops = ConcurrentHashMap.newKeySet();
 
     public SiriFuzzyTripMatcher(RoutingService routingService) {
+        this(routingService, SiriFuzzyTripMatcherIndex.create(routingService));
+    }
+
+    SiriFuzzyTripMatcher(RoutingService routingService, SiriFuzzyTripMatcherIndex index) {
         this.routingService = routingService;
-        initCache(this.routingService);
+        this.index = index;
+    }
+
+    /**
+     * Create a matcher for the given graph. The index is built the first time this is called for
+     * a graph, and then shared by all matchers for the same graph.
+     */
+    public static SiriFuzzyTripMatcher of(Graph graph) {
+        RoutingService routingService = new RoutingService(graph);
+        SiriFuzzyTripMatcherIndex index = INDEX_BY_GRAPH.computeIfAbsent(
+                graph, g -> SiriFuzzyTripMatcherIndex.create(routingService)
+        );
+        return new SiriFuzzyTripMatcher(routingService, index);
     }
 
     /**
@@ -70,7 +91,7 @@ public class SiriFuzzyTripMatcher {
             if (monitoredVehicleJourney.getFramedVehicleJourneyRef() != null) {
                 datedVehicleRef = monitoredVehicleJourney.getFramedVehicleJourneyRef().getDatedVehicleJourneyRef();
                 if (datedVehicleRef != null) {
-                    trips = mappedTripsCache.get(datedVehicleRef);
+                    trips = index.getTripsByUnpaddedId(datedVehicleRef);
                 }
             }
             if (monitoredVehicleJourney.getDestinationRef() != null) {
@@ -163,12 +184,10 @@ public class SiriFuzzyTripMatcher {
         int secondsSinceMidnight = DateMapper.secondsSinceStartOfService(arrivalTime, arrivalTime, routingService.getTimeZone().toZoneId());
         int secondsSinceMidnightYesterday = DateMapper.secondsSinceStartOfService(arrivalTime.minusDays(1), arrivalTime, routingService.getTimeZone().toZoneId());
 
-        Set<Trip> trips = start_stop_tripCache.get(createStartStopKey(lastStopPoint, secondsSinceMidnight));
+        Set<Trip> trips = index.getTripsByLastStop(lastStopPoint, secondsSinceMidnight);
         if (trips == null) {
             //Attempt to fetch trips that started yesterday - i.e. add 24 hours to arrival-time
-            trips = start_stop_tripCache.get(createStartStopKey(lastStopPoint,
-                secondsSinceMidnightYesterday
-            ));
+            trips = index.getTripsByLastStop(lastStopPoint, secondsSinceMidnightYesterday);
         }
 
         if (trips == null || trips.isEmpty()) {
@@ -179,11 +198,13 @@ public class SiriFuzzyTripMatcher {
                 // TODO OTP2 resolve stop-station split
                 Collection<Stop> allQuays = stop.getParentStation().getChildStops();
                 for (Stop quay : allQuays) {
-                    Set<Trip> tripSet = start_stop_tripCache.get(createStartStopKey(quay.getId().getId(), secondsSinceMidnight));
+                    Set<Trip> tripSet = index.getTripsByLastStop(quay.getId().getId(), secondsSinceMidnight);
                     if (tripSet != null) {
                         if (trips == null) {
                             trips = tripSet;
                         } else {
+                            // The indexed sets are immutable and shared, merge into a new set
+                            trips = new HashSet<>(trips);
                             trips.addAll(tripSet);
                         }
                     }
@@ -195,100 +216,12 @@ public class SiriFuzzyTripMatcher {
 
     private Set<Trip> getCachedTripsByVehicleRef(String vehicleRef) {
         if (vehicleRef == null) {return null;}
-        return mappedVehicleRefCache.getOrDefault(vehicleRef, new HashSet<>());
+        return index.getRailTripsByShortName(vehicleRef);
     }
 
     private Set<Trip> getCachedTripsBySiriId(String tripId) {
         if (tripId == null) {return null;}
-        return mappedTripsCache.getOrDefault(tripId, new HashSet<>());
-    }
-
-    private static void initCache(RoutingService index) {
-        if (mappedTripsCache.isEmpty()) {
-
-            Set<Trip> trips = index.getPatternForTrip().keySet();
-            for (Trip trip : trips) {
-
-                TripPattern tripPattern = index.getPatternForTrip().get(trip);
-
-                    String currentTripId = getUnpaddedTripId(trip.getId().getId());
-
-                    if (mappedTripsCache.containsKey(currentTripId)) {
-                        mappedTripsCache.get(currentTripId).add(trip);
-                    } else {
-                        Set<Trip> initialSet = new HashSet<>();
-                        initialSet.add(trip);
-                        mappedTripsCache.put(currentTripId, initialSet);
-                    }
-
-                if (tripPattern != null &&
-                        (tripPattern.getMode().equals(TraverseMode.RAIL) /*||
-                                                    (trip.getTransportSubmode() != null &&
-                                                            trip.getTransportSubmode().equals(TransmodelTransportSubmode.RAIL_REPLACEMENT_BUS))*/)) {
-                    // TODO - SIRI: Add support for submode
-                    if (trip.getTripShortName() != null) {
-                        String tripShortName = trip.getTripShortName();
-                        if (mappedVehicleRefCache.containsKey(tripShortName)) {
-                            mappedVehicleRefCache.get(tripShortName).add(trip);
-                        } else {
-                            Set<Trip> initialSet = new HashSet<>();
-                            initialSet.add(trip);
-                            mappedVehicleRefCache.put(tripShortName, initialSet);
-                        }
-                    }
-                }
-                String lastStopId = tripPattern.getStops().get(tripPattern.getStops().size()-1).getId().getId();
-
-                TripTimes tripTimes = tripPattern.getScheduledTimetable().getTripTimes(trip);
-                if (tripTimes != null) {
-                    int arrivalTime = tripTimes.getArrivalTime(tripTimes.getNumStops() - 1);
-
-                    String key = createStartStopKey(lastStopId, arrivalTime);
-                    if (start_stop_tripCache.containsKey(key)) {
-                        start_stop_tripCache.get(key).add(trip);
-                    } else {
-                        Set<Trip> initialSet = new HashSet<>();
-                        initialSet.add(trip);
-                        start_stop_tripCache.put(key, initialSet);
-                    }
-                }
-            }
-            Set<Route> routes = index.getPatternsForRoute().keySet();
-            for (Route route : routes) {
-
-                String currentRouteId = getUnpaddedTripId(route.getId().getId());
-                if (mappedRoutesCache.containsKey(currentRouteId)) {
-                    mappedRoutesCache.get(currentRouteId).add(route);
-                } else {
-                    Set<Route> initialSet = new HashSet<>();
-                    initialSet.add(route);
-                    mappedRoutesCache.put(currentRouteId, initialSet);
-                }
-            }
-
-            LOG.info("Built route-cache [{}].", mappedRoutesCache.size());
-            LOG.info("Built vehicleRef-cache [{}].", mappedVehicleRefCache.size());
-            LOG.info("Built trips-cache [{}].", mappedTripsCache.size());
-            LOG.info("Built start-stop-cache [{}].", start_stop_tripCache.size());
-        }
-
-        if (vehicleJourneyTripCache.isEmpty()) {
-            index
-                .getTripForId()
-                .values().forEach(trip -> vehicleJourneyTripCache.put(trip.getId().getId(), trip));
-        }
-    }
-
-    private static String createStartStopKey(String lastStopId, int lastStopArrivalTime) {
-        return lastStopId + ":" + lastStopArrivalTime;
-    }
-
-    private static String getUnpaddedTripId(String id) {
-        if (id.indexOf("-") > 0) {
-            return id.substring(0, id.indexOf("-"));
-        } else {
-            return id;
-        }
+        return index.getTripsByUnpaddedId(tripId);
     }
 
     public Set<Route> getRoutesForStop(FeedScopedId siriStopId) {
@@ -334,11 +267,14 @@ public class SiriFuzzyTripMatcher {
     }
 
     public Set<Route> getRoutes(String lineRefValue) {
-        return mappedRoutesCache.getOrDefault(lineRefValue, new HashSet<>());
+        return index.getRoutesByUnpaddedId(lineRefValue);
     }
 
     public FeedScopedId getTripId(String vehicleJourney) {
-        Trip trip = vehicleJourneyTripCache.get(vehicleJourney);
+        Trip trip = index.getTripById(vehicleJourney);
+        if (trip == null) {
+            trip = extraJourneyTripCache.get(vehicleJourney);
+        }
         if (trip != null) {
             return trip.getId();
         }
@@ -346,7 +282,7 @@ public class SiriFuzzyTripMatcher {
         for (String feedId : routingService.getFeedIds()) {
             trip = routingService.getTripForId().get(new FeedScopedId(feedId, vehicleJourney));
             if (trip != null) {
-                vehicleJourneyTripCache.put(vehicleJourney, trip);
+                extraJourneyTripCache.put(vehicleJourney, trip);
                 return trip.getId();
             }
         }
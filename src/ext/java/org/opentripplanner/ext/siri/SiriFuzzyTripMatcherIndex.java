@@ -0,0 +1,202 @@
+package org.opentripplanner.ext.siri;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.opentripplanner.model.Route;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.routing.RoutingService;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.trippattern.TripTimes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable lookup tables used by the {@link SiriFuzzyTripMatcher}. An index is built once for a
+ * given graph, eagerly and in parallel, and is never modified afterwards. This makes it safe to
+ * share between all SIRI updaters of the same graph without any locking - a reloaded graph gets
+ * its own new index.
+ * <p>
+ * The start-stop lookup is keyed on the stop id first and then on the (primitive) arrival time at
+ * the last stop, to avoid building a composite String key for every lookup.
+ */
+public final class SiriFuzzyTripMatcherIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SiriFuzzyTripMatcherIndex.class);
+
+    private final Map<String, Set<Trip>> tripsByUnpaddedId;
+    private final Map<String, Set<Trip>> railTripsByShortName;
+    private final Map<String, Set<Route>> routesByUnpaddedId;
+    private final Map<String, TIntObjectMap<Set<Trip>>> tripsByLastStopAndArrivalTime;
+    private final Map<String, Trip> tripsById;
+
+    private SiriFuzzyTripMatcherIndex(
+            Map<String, Set<Trip>> tripsByUnpaddedId,
+            Map<String, Set<Trip>> railTripsByShortName,
+            Map<String, Set<Route>> routesByUnpaddedId,
+            Map<String, TIntObjectMap<Set<Trip>>> tripsByLastStopAndArrivalTime,
+            Map<String, Trip> tripsById
+    ) {
+        this.tripsByUnpaddedId = tripsByUnpaddedId;
+        this.railTripsByShortName = railTripsByShortName;
+        this.routesByUnpaddedId = routesByUnpaddedId;
+        this.tripsByLastStopAndArrivalTime = tripsByLastStopAndArrivalTime;
+        this.tripsById = tripsById;
+    }
+
+    /**
+     * Build a new index from the transit model available through the given routing service. The
+     * trips are processed in parallel.
+     */
+    public static SiriFuzzyTripMatcherIndex create(RoutingService index) {
+        long start = System.currentTimeMillis();
+        Map<Trip, TripPattern> patternForTrip = index.getPatternForTrip();
+
+        Map<String, Set<Trip>> tripsByUnpaddedId = immutableCopy(
+                patternForTrip.keySet().parallelStream().collect(Collectors.groupingByConcurrent(
+                        trip -> getUnpaddedId(trip.getId().getId()),
+                        Collectors.toSet()
+                ))
+        );
+
+        // TODO - SIRI: Add support for submode (RAIL_REPLACEMENT_BUS)
+        Map<String, Set<Trip>> railTripsByShortName = immutableCopy(
+                patternForTrip.entrySet().parallelStream()
+                        .filter(e -> e.getValue() != null && e.getValue().getMode() == TraverseMode.RAIL)
+                        .map(Map.Entry::getKey)
+                        .filter(trip -> trip.getTripShortName() != null)
+                        .collect(Collectors.groupingByConcurrent(
+                                Trip::getTripShortName,
+                                Collectors.toSet()
+                        ))
+        );
+
+        Map<String, TIntObjectMap<Set<Trip>>> tripsByLastStopAndArrivalTime =
+                createLastStopIndex(patternForTrip);
+
+        Map<String, Set<Route>> routesByUnpaddedId = immutableCopy(
+                index.getPatternsForRoute().keySet().parallelStream().collect(Collectors.groupingByConcurrent(
+                        route -> getUnpaddedId(route.getId().getId()),
+                        Collectors.toSet()
+                ))
+        );
+
+        Map<String, Trip> tripsById = new HashMap<>();
+        for (Trip trip : index.getTripForId().values()) {
+            tripsById.put(trip.getId().getId(), trip);
+        }
+
+        LOG.info(
+                "Built SIRI fuzzy trip matcher index in {} ms [routes={}, vehicleRefs={}, trips={}, start-stops={}].",
+                System.currentTimeMillis() - start,
+                routesByUnpaddedId.size(),
+                railTripsByShortName.size(),
+                tripsByUnpaddedId.size(),
+                tripsByLastStopAndArrivalTime.size()
+        );
+
+        return new SiriFuzzyTripMatcherIndex(
+                tripsByUnpaddedId,
+                railTripsByShortName,
+                routesByUnpaddedId,
+                tripsByLastStopAndArrivalTime,
+                Map.copyOf(tripsById)
+        );
+    }
+
+    /** @return all trips with the given id, ignoring any "-" suffix. Never {@code null}. */
+    Set<Trip> getTripsByUnpaddedId(String id) {
+        return tripsByUnpaddedId.getOrDefault(id, Set.of());
+    }
+
+    /** @return all rail trips with the given trip short name. Never {@code null}. */
+    Set<Trip> getRailTripsByShortName(String tripShortName) {
+        return railTripsByShortName.getOrDefault(tripShortName, Set.of());
+    }
+
+    /** @return all routes with the given id, ignoring any "-" suffix. Never {@code null}. */
+    Set<Route> getRoutesByUnpaddedId(String id) {
+        return routesByUnpaddedId.getOrDefault(id, Set.of());
+    }
+
+    /**
+     * @return all trips ending at the given stop at the given scheduled arrival time (seconds since
+     *         start of service), or {@code null} if no such trip exist.
+     */
+    Set<Trip> getTripsByLastStop(String lastStopId, int arrivalTime) {
+        TIntObjectMap<Set<Trip>> tripsByTime = tripsByLastStopAndArrivalTime.get(lastStopId);
+        return tripsByTime == null ? null : tripsByTime.get(arrivalTime);
+    }
+
+    /** @return the trip with the given (feed-unscoped) id, or {@code null} if not found. */
+    Trip getTripById(String id) {
+        return tripsById.get(id);
+    }
+
+    static String getUnpaddedId(String id) {
+        int pos = id.indexOf("-");
+        return pos > 0 ? id.substring(0, pos) : id;
+    }
+
+    private static Map<String, TIntObjectMap<Set<Trip>>> createLastStopIndex(
+            Map<Trip, TripPattern> patternForTrip
+    ) {
+        ConcurrentMap<String, List<LastStopArrival>> arrivalsByStop = patternForTrip
+                .entrySet()
+                .parallelStream()
+                .map(e -> LastStopArrival.of(e.getKey(), e.getValue()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingByConcurrent(
+                        it -> it.stopId,
+                        Collectors.toList()
+                ));
+
+        Map<String, TIntObjectMap<Set<Trip>>> result = new HashMap<>();
+        arrivalsByStop.forEach((stopId, arrivals) -> {
+            TIntObjectMap<Set<Trip>> tripsByTime = new TIntObjectHashMap<>();
+            Map<Integer, Set<Trip>> grouped = arrivals.stream().collect(Collectors.groupingBy(
+                    it -> it.arrivalTime,
+                    Collectors.mapping(it -> it.trip, Collectors.toSet())
+            ));
+            grouped.forEach((time, trips) -> tripsByTime.put(time, Set.copyOf(trips)));
+            result.put(stopId, tripsByTime);
+        });
+        return Map.copyOf(result);
+    }
+
+    private static <T> Map<String, Set<T>> immutableCopy(Map<String, Set<T>> map) {
+        Map<String, Set<T>> result = new HashMap<>();
+        map.forEach((key, values) -> result.put(key, Set.copyOf(values)));
+        return Map.copyOf(result);
+    }
+
+    /** The scheduled arrival of a trip at the last stop in its pattern. */
+    private static class LastStopArrival {
+        private final String stopId;
+        private final int arrivalTime;
+        private final Trip trip;
+
+        private LastStopArrival(String stopId, int arrivalTime, Trip trip) {
+            this.stopId = stopId;
+            this.arrivalTime = arrivalTime;
+            this.trip = trip;
+        }
+
+        static LastStopArrival of(Trip trip, TripPattern pattern) {
+            if (pattern == null) { return null; }
+            TripTimes tripTimes = pattern.getScheduledTimetable().getTripTimes(trip);
+            if (tripTimes == null) { return null; }
+            String lastStopId = pattern.getStops().get(pattern.getStops().size() - 1).getId().getId();
+            int arrivalTime = tripTimes.getArrivalTime(tripTimes.getNumStops() - 1);
+            return new LastStopArrival(lastStopId, arrivalTime, trip);
+        }
+    }
+}
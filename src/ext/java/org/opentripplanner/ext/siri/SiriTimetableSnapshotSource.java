@@ -121,7 +121,7 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
         timeZone = graph.getTimeZone();
         routingService = new RoutingService(graph);
         transitLayerUpdater = graph.transitLayerUpdater;
-        siriFuzzyTripMatcher = new SiriFuzzyTripMatcher(routingService);
+        siriFuzzyTripMatcher = SiriFuzzyTripMatcher.of(graph);
     }
 
     /**
@@ -20,6 +20,7 @@ import org.opentripplanner.ext.siri.SiriTimetableSnapshotSource;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.util.HttpUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -262,6 +263,11 @@ public class SiriETGooglePubsubUpdater implements GraphUpdater {
         return configRef;
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.HIGH;
+    }
+
     private String getTimeSinceStartupString() {
         return DurationFormatUtils.formatDuration((now() - startTime), "HH:mm:ss");
     }
@@ -340,7 +346,7 @@ public class SiriETGooglePubsubUpdater implements GraphUpdater {
                             getTimeSinceStartupString());
                 }
 
-                updaterManager.execute(graph -> {
+                updaterManager.execute(SiriETGooglePubsubUpdater.this, graph -> {
                     snapshotSource.applyEstimatedTimetable(graph, feedId, false, estimatedTimetableDeliveries);
                 });
             }
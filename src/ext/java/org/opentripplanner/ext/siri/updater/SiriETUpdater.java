@@ -4,6 +4,7 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.opentripplanner.ext.siri.SiriTimetableSnapshotSource;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.updater.PollingGraphUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -133,7 +134,7 @@ public class SiriETUpdater extends PollingGraphUpdater {
                 final boolean markPrimed = !moreData;
                 List<EstimatedTimetableDeliveryStructure> etds = serviceDelivery.getEstimatedTimetableDeliveries();
                 if (etds != null) {
-                    updaterManager.execute(graph -> {
+                    updaterManager.execute(this, graph -> {
                         snapshotSource.applyEstimatedTimetable(graph, feedId, fullDataset, etds);
                         if (markPrimed) primed = true;
                     });
@@ -146,6 +147,11 @@ public class SiriETUpdater extends PollingGraphUpdater {
     public void teardown() {
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.HIGH;
+    }
+
     public String toString() {
         String s = (updateSource == null) ? "NONE" : updateSource.toString();
         return "Polling SIRI ET updater with update source = " + s;
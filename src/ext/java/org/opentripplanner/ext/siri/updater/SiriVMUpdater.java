@@ -3,9 +3,9 @@ package org.opentripplanner.ext.siri.updater;
 import org.apache.commons.lang3.BooleanUtils;
 import org.opentripplanner.ext.siri.SiriFuzzyTripMatcher;
 import org.opentripplanner.ext.siri.SiriTimetableSnapshotSource;
-import org.opentripplanner.routing.RoutingService;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.updater.PollingGraphUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,7 +106,7 @@ public class SiriVMUpdater extends PollingGraphUpdater {
     @Override
     public void setup(Graph graph) {
         if (fuzzyTripMatching) {
-            this.siriFuzzyTripMatcher = new SiriFuzzyTripMatcher(new RoutingService(graph));
+            this.siriFuzzyTripMatcher = SiriFuzzyTripMatcher.of(graph);
         }
         // Only create a realtime data snapshot source if none exists already
         // TODO OTP2 - This is thread safe, but only because updater setup methods are called sequentially.
@@ -126,7 +126,7 @@ public class SiriVMUpdater extends PollingGraphUpdater {
             snapshotSource.purgeExpiredData = purgeExpiredData;
         }
         if (siriFuzzyTripMatcher != null) {
-            siriFuzzyTripMatcher = new SiriFuzzyTripMatcher(new RoutingService(graph));
+            siriFuzzyTripMatcher = SiriFuzzyTripMatcher.of(graph);
         }
     }
 
@@ -149,7 +149,7 @@ public class SiriVMUpdater extends PollingGraphUpdater {
                 final boolean markPrimed = !moreData;
                 List<VehicleMonitoringDeliveryStructure> vmds = serviceDelivery.getVehicleMonitoringDeliveries();
                 if (vmds != null) {
-                    updaterManager.execute(graph -> {
+                    updaterManager.execute(this, graph -> {
                         snapshotSource.applyVehicleMonitoring(graph, feedId, fullDataset, vmds);
                         if (markPrimed) primed = true;
                     });
@@ -162,6 +162,11 @@ public class SiriVMUpdater extends PollingGraphUpdater {
     public void teardown() {
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.HIGH;
+    }
+
     public String toString() {
         String s = (updateSource == null) ? "NONE" : updateSource.toString();
         return "Polling SIRI VM updater with update source = " + s;
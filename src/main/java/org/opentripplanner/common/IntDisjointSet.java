@@ -0,0 +1,60 @@
+package org.opentripplanner.common;
+
+import java.util.Arrays;
+
+/**
+ * Union-find data structure with union by size and path compression, like {@link DisjointSet},
+ * but for the dense integer indexes 0 to size-1. The elements are kept in a single int array, so
+ * there is no map lookup or boxing, and it can be used on the vertices of a large graph.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class IntDisjointSet {
+
+    /** The parent of each element, or minus the size of the set for the root of a set. */
+    private final int[] parents;
+
+    public IntDisjointSet(int size) {
+        parents = new int[size];
+        Arrays.fill(parents, -1);
+    }
+
+    /** Merge the sets of the given elements, and return the root of the merged set. */
+    public int union(int element1, int element2) {
+        int p1 = find(element1);
+        int p2 = find(element2);
+
+        if (p1 == p2) {
+            return p1;
+        }
+        // Attach the smaller set to the larger one, the sizes are negative
+        if (parents[p1] > parents[p2]) {
+            int p = p1;
+            p1 = p2;
+            p2 = p;
+        }
+        parents[p1] += parents[p2];
+        parents[p2] = p1;
+        return p1;
+    }
+
+    /** Return the root of the set of the given element. */
+    public int find(int element) {
+        int root = element;
+        while (parents[root] >= 0) {
+            root = parents[root];
+        }
+        // Compress the path, without recursion since the paths can be long before compression
+        while (parents[element] >= 0 && parents[element] != root) {
+            int next = parents[element];
+            parents[element] = root;
+            element = next;
+        }
+        return root;
+    }
+
+    /** Return the size of the set of the given element. */
+    public int size(int element) {
+        return -parents[find(element)];
+    }
+}
@@ -11,9 +11,11 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.opentripplanner.datastore.CompositeDataSource;
 import org.opentripplanner.datastore.DataSource;
 import org.opentripplanner.ext.flex.FlexLocationsToStreetEdgesMapper;
+import org.opentripplanner.ext.flex.FlexPathMatrixBuilder;
 import org.opentripplanner.ext.transferanalyzer.DirectTransferAnalyzer;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.graph_builder.module.DirectTransferGenerator;
@@ -47,6 +49,35 @@ public class GraphBuilder implements Runnable {
 
     private static Logger LOG = LoggerFactory.getLogger(GraphBuilder.class);
 
+    /**
+     * The build config parameters which select the OSM and DEM input, or are used by the modules
+     * building the street graph from it. A change in any of these invalidates a saved street graph
+     * in an incremental build. Parameters which only change how the street graph is built, not the
+     * result, are left out: osmCacheDataInMem, multiThreadElevationCalculations and
+     * writeCachedElevations.
+     */
+    private static final List<String> STREET_CONFIG_PARAMETERS = List.of(
+            "areaVisibility",
+            "banDiscouragedBiking",
+            "banDiscouragedWalking",
+            "distanceBetweenElevationSamples",
+            "elevationBucket",
+            "elevationUnitMultiplier",
+            "extraEdgesStopPlatformLink",
+            "includeEllipsoidToGeoidDifference",
+            "islandWithStopsMaxSize",
+            "islandWithoutStopsMaxSize",
+            "maxAreaNodes",
+            "osmNaming",
+            "osmWayPropertySet",
+            "platformEntriesLinking",
+            "readCachedElevations",
+            "staticBikeParkAndRide",
+            "staticParkAndRide",
+            "storage",
+            "streets"
+    );
+
     private final List<GraphBuilderModule> graphBuilderModules = new ArrayList<>();
 
     private final Graph graph;
@@ -86,6 +117,20 @@ public class GraphBuilder implements Runnable {
         LOG.info("Main graph size: |V|={} |E|={}", graph.countVertices(), graph.countEdges());
     }
 
+    /**
+     * A fingerprint of the OSM and DEM input data and the street related build config. If this is
+     * unchanged, building the street graph again gives the same result.
+     *
+     * @return the fingerprint, or {@code null} if it can not be computed for the input data.
+     */
+    @Nullable
+    public static String streetInputFingerprint(
+            BuildConfig config,
+            GraphBuilderDataSources dataSources
+    ) {
+        return dataSources.select(OSM, DEM).fingerprint(config.toJson(STREET_CONFIG_PARAMETERS));
+    }
+
     /**
      * Factory method to create and configure a GraphBuilder with all the appropriate modules to
      * build a graph from the given data source and configuration directory.
@@ -182,7 +227,7 @@ public class GraphBuilder implements Runnable {
         // Load elevation data and apply it to the streets.
         // We want to do run this module after loading the OSM street network but before finding transfers.
         List<ElevationGridCoverageFactory> elevationGridCoverageFactories = new ArrayList<>();
-        if (config.elevationBucket != null) {
+        if (config.elevationBucket != null && hasOsm) {
             // Download the elevation tiles from an Amazon S3 bucket
             S3BucketConfig bucketConfig = config.elevationBucket;
             File cacheDirectory = new File(dataSources.getCacheDirectory(), "ned");
@@ -205,7 +250,7 @@ public class GraphBuilder implements Runnable {
             graphBuilder.addModule(
                 new ElevationModule(
                     factory,
-                    new File(dataSources.getCacheDirectory(), "cached_elevations.obj"),
+                    new File(dataSources.getCacheDirectory(), "cached_elevations.bin"),
                     config.readCachedElevations,
                     config.writeCachedElevations,
                     config.elevationUnitMultiplier,
@@ -219,11 +264,18 @@ public class GraphBuilder implements Runnable {
             // Add links to flex areas after the streets has been split, so that also the split edges are connected
             if (OTPFeature.FlexRouting.isOn()) {
                 graphBuilder.addModule(new FlexLocationsToStreetEdgesMapper());
+                if (config.flexPathMatrix) {
+                    graphBuilder.addModule(new FlexPathMatrixBuilder(config.flexPathMatrixMaxSize));
+                }
             }
             // The stops can be linked to each other once they are already linked to the street network.
             if ( ! config.useTransfersTxt) {
                 // This module will use streets or straight line distance depending on whether OSM data is found in the graph.
-                graphBuilder.addModule(new DirectTransferGenerator(config.maxTransferDurationSeconds, config.transferRequests));
+                graphBuilder.addModule(new DirectTransferGenerator(
+                        config.maxTransferDurationSeconds,
+                        config.transferRequests,
+                        config.pruneDominatedTransfers
+                ));
             }
             // Analyze routing between stops to generate report
             if (OTPFeature.TransferAnalyzer.isOn()) {
@@ -6,20 +6,27 @@ import org.opentripplanner.datastore.CompositeDataSource;
 import org.opentripplanner.datastore.DataSource;
 import org.opentripplanner.datastore.FileType;
 import org.opentripplanner.datastore.OtpDataStore;
+import org.opentripplanner.datastore.file.DirectoryDataSource;
 import org.opentripplanner.standalone.config.BuildConfig;
 import org.opentripplanner.standalone.config.CommandLineParameters;
 import org.opentripplanner.util.OtpAppException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.opentripplanner.datastore.FileType.DEM;
 import static org.opentripplanner.datastore.FileType.GTFS;
 import static org.opentripplanner.datastore.FileType.NETEX;
 import static org.opentripplanner.datastore.FileType.OSM;
+import static org.opentripplanner.model.projectinfo.OtpProjectInfo.projectInfo;
 
 
 /**
@@ -72,6 +79,18 @@ public class GraphBuilderDataSources {
         validateCliMatchesInputData(cli);
     }
 
+    /** Create a copy with only the given types of input data, the other input data is skipped. */
+    private GraphBuilderDataSources(GraphBuilderDataSources other, Set<FileType> types) {
+        this.store = other.store;
+        this.cacheDirectory = other.cacheDirectory;
+        this.outputGraph = other.outputGraph;
+        this.includeTypes.retainAll(types);
+        for (FileType type : other.inputData.keySet()) {
+            (types.contains(type) ? inputData : skipData).putAll(type, other.inputData.get(type));
+        }
+        skipData.putAll(other.skipData);
+    }
+
     /**
      * Create a wrapper around the data-store and resolve witch files to
      * import and export. Validate these files against the given command line
@@ -90,7 +109,7 @@ public class GraphBuilderDataSources {
      * @return {@code true} if and only if the data source exist, proper command line parameters is
      * set and not disabled by the loaded configuration files.
      */
-    boolean has(FileType type) {
+    public boolean has(FileType type) {
         return inputData.containsKey(type);
     }
 
@@ -110,6 +129,49 @@ public class GraphBuilderDataSources {
         return outputGraph;
     }
 
+    /**
+     * @return a copy of this with only the input data of the given types. This is used by the
+     * incremental build, to build the street graph and the transit data in separate steps.
+     */
+    public GraphBuilderDataSources select(FileType... types) {
+        return new GraphBuilderDataSources(this, EnumSet.copyOf(List.of(types)));
+    }
+
+    /**
+     * A fingerprint of the input data and the given config, used to detect if anything changed
+     * since a previous build. The fingerprint is computed from the path, size and last modified
+     * time of each data source, the content is not read. The files in a directory are included
+     * one by one.
+     *
+     * @return the fingerprint, or {@code null} if the size or last modified time of some data
+     * source is unknown.
+     */
+    @Nullable
+    public String fingerprint(String config) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, projectInfo().getOtpSerializationVersionId());
+        update(digest, config);
+        for (FileType type : FileType.values()) {
+            for (DataSource source : inputData.get(type)) {
+                if (!addToFingerprint(digest, source)) {
+                    LOG.info("Unable to fingerprint input data: {}", source.path());
+                    return null;
+                }
+            }
+        }
+        StringBuilder buf = new StringBuilder();
+        for (byte b : digest.digest()) {
+            buf.append(String.format("%02x", b));
+        }
+        return buf.toString();
+    }
+
 
     /* private methods */
 
@@ -184,6 +246,25 @@ public class GraphBuilderDataSources {
         return null;
     }
 
+    private static boolean addToFingerprint(MessageDigest digest, DataSource source) {
+        if (source instanceof DirectoryDataSource) {
+            for (DataSource it : ((DirectoryDataSource) source).content()) {
+                if (!addToFingerprint(digest, it)) { return false; }
+            }
+            return true;
+        }
+        if (source.size() < 0 || source.lastModified() < 0) {
+            return false;
+        }
+        update(digest, source.path() + ":" + source.size() + ":" + source.lastModified());
+        return true;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
     private void include(boolean include, FileType type) {
         // Add or remove type - we do not care if the element already exist or not
         if(include) {
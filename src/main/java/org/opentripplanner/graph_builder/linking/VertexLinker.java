@@ -23,11 +23,18 @@ import org.opentripplanner.util.OTPFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -67,6 +74,12 @@ public class VertexLinker {
 
   private static final int MAX_SEARCH_RADIUS_METERS = 1000;
 
+  /**
+   * Split points closer than this, in degrees, are the same point when splitting an edge at many
+   * points. This is less than a millimeter.
+   */
+  private static final double SAME_SPLIT_POINT_EPSILON = 1e-9;
+
   private static final GeometryFactory GEOMETRY_FACTORY = GeometryUtils.getGeometryFactory();
 
   // TODO Temporary code until we refactor WalkableAreaBuilder  (#3152)
@@ -98,6 +111,58 @@ public class VertexLinker {
     );
   }
 
+  /**
+   * Link many vertices permanently into the street graph. This is faster than calling
+   * {@link #linkVertexPermanently} for each vertex when there are many vertices.
+   * <p>
+   * The closest street edges of all the vertices are found first, in parallel, since this only
+   * reads the graph. Then each street edge is split once at all the points where vertices are
+   * linked to it, so the pieces of an edge are not split again and again, and the spatial index
+   * is only updated once per edge.
+   * <p>
+   * Each vertex is linked to the street edges that are closest to it in the graph as it was
+   * before the batch, at the same point along the edge as a single linking would use. Vertices
+   * linked to the same point of an edge share one splitter vertex. The links are not always the
+   * same as when the vertices are linked one at a time. In that case a vertex may be linked to a
+   * splitter vertex or an edge piece created for an earlier vertex, and the result depends on the
+   * order of the vertices. The batch result does not depend on that order.
+   */
+  public void linkVerticesPermanently(
+      Collection<? extends Vertex> vertices,
+      Function<Vertex, TraverseModeSet> traverseModes,
+      LinkingDirection direction,
+      BiFunction<Vertex, StreetVertex, List<Edge>> edgeFunction
+  ) {
+    List<Vertex> vertexList = new ArrayList<>(vertices);
+
+    List<List<LinkPoint>> linkPoints = vertexList
+        .parallelStream()
+        .map(v -> findLinkPoints(v, traverseModes.apply(v)))
+        .collect(Collectors.toList());
+
+    // Group the split points by edge, in the order of the vertices, so the labels of the splitter
+    // vertices are the same for every build
+    Map<StreetEdge, List<LinkPoint>> splitPointsByEdge = new LinkedHashMap<>();
+    for (List<LinkPoint> points : linkPoints) {
+      for (LinkPoint point : points) {
+        if (point.streetVertex == null) {
+          splitPointsByEdge.computeIfAbsent(point.edge, e -> new ArrayList<>()).add(point);
+        }
+      }
+    }
+    splitPointsByEdge.forEach(this::splitPermanently);
+
+    for (int i = 0; i < vertexList.size(); ++i) {
+      Set<StreetVertex> streetVertices = new LinkedHashSet<>();
+      for (LinkPoint point : linkPoints.get(i)) {
+        streetVertices.add(point.streetVertex);
+      }
+      for (StreetVertex streetVertex : streetVertices) {
+        edgeFunction.apply(vertexList.get(i), streetVertex);
+      }
+    }
+  }
+
   public DisposableEdgeCollection linkVertexForRealTime(
       Vertex vertex,
       TraverseModeSet traverseModes,
@@ -212,13 +277,55 @@ public class VertexLinker {
       int radiusMeters,
       DisposableEdgeCollection tempEdges
   ) {
+    final double xscale = xScale(vertex);
 
+    return findClosestEdges(vertex, traverseModes, scope, radiusMeters)
+            .stream()
+            .map(ce -> link(vertex, ce.item, xscale, scope, direction, tempEdges))
+            .collect(Collectors.toSet());
+  }
+
+  /**
+   * Find the points where the given vertex should be linked to the permanent street edges, without
+   * changing the graph.
+   */
+  private List<LinkPoint> findLinkPoints(Vertex vertex, TraverseModeSet traverseModes) {
+    Set<DistanceTo<StreetEdge>> closestEdges = findClosestEdges(
+        vertex,
+        traverseModes,
+        Scope.PERMANENT,
+        INITIAL_SEARCH_RADIUS_METERS
+    );
+    if (closestEdges.isEmpty()) {
+      closestEdges = findClosestEdges(
+          vertex,
+          traverseModes,
+          Scope.PERMANENT,
+          MAX_SEARCH_RADIUS_METERS
+      );
+    }
+
+    final double xscale = xScale(vertex);
+    List<LinkPoint> points = new ArrayList<>();
+    for (DistanceTo<StreetEdge> ce : closestEdges) {
+      LinearLocation ll = project(vertex, ce.item, xscale);
+      points.add(new LinkPoint(ce.item, ll, endpointAt(ce.item, ll)));
+    }
+    return points;
+  }
+
+  private Set<DistanceTo<StreetEdge>> findClosestEdges(
+      Vertex vertex,
+      TraverseModeSet traverseModes,
+      Scope scope,
+      int radiusMeters
+  ) {
     final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(radiusMeters);
 
     Envelope env = new Envelope(vertex.getCoordinate());
 
     // Perform a simple local equirectangular projection, so distances are expressed in degrees latitude.
-    final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
+    final double xscale = xScale(vertex);
 
     // Expand more in the longitude direction than the latitude direction to account for converging meridians.
     env.expandBy(radiusDeg / xscale, radiusDeg);
@@ -238,14 +345,7 @@ public class VertexLinker {
 
     if (candidateEdges.isEmpty()) { return Set.of(); }
 
-    Set<DistanceTo<StreetEdge>> closesEdges = getClosestEdgesPerMode(
-        traverseModes,
-        candidateEdges
-    );
-
-    return closesEdges.stream()
-            .map(ce -> link(vertex, ce.item, xscale, scope, direction, tempEdges))
-            .collect(Collectors.toSet());
+    return getClosestEdgesPerMode(traverseModes, candidateEdges);
   }
 
   /**
@@ -328,14 +428,34 @@ public class VertexLinker {
       LinkingDirection direction,
       DisposableEdgeCollection tempEdges
   ) {
+    LinearLocation ll = project(vertex, edge, xScale);
+
+    StreetVertex endpoint = endpointAt(edge, ll);
+    if (endpoint != null) {
+      return endpoint;
+    }
+
+    // split the edge, get the split vertex
+    SplitterVertex v0 = split(edge, ll, scope, direction, tempEdges);
+    addSplitterVertex(edge, v0, scope);
+    return v0;
+  }
+
+  /** Project the vertex onto the edge */
+  private static LinearLocation project(Vertex vertex, StreetEdge edge, double xScale) {
     // TODO: we've already built this line string, we should save it
-    LineString orig = edge.getGeometry();
-    LineString transformed = equirectangularProject(orig, xScale);
+    LineString transformed = equirectangularProject(edge.getGeometry(), xScale);
     LocationIndexedLine il = new LocationIndexedLine(transformed);
-    LinearLocation ll = il.project(new Coordinate(vertex.getLon() * xScale, vertex.getLat()));
+    return il.project(new Coordinate(vertex.getLon() * xScale, vertex.getLat()));
+  }
+
+  /**
+   * If the location is very close to one end of the line or the other, or endwise, we don't bother
+   * to split, and return the vertex at that end. Otherwise {@code null} is returned.
+   */
+  private static StreetVertex endpointAt(StreetEdge edge, LinearLocation ll) {
+    LineString orig = edge.getGeometry();
 
-    // if we're very close to one end of the line or the other, or endwise, don't bother to split,
-    // cut to the chase and link directly
     // We use a really tiny epsilon here because we only want points that actually snap to exactly the same location on the
     // street to use the same vertices. Otherwise the order the stops are loaded in will affect where they are snapped.
     if (ll.getSegmentIndex() == 0 && ll.getSegmentFraction() < 1e-8) {
@@ -352,27 +472,28 @@ public class VertexLinker {
         && ll.getSegmentFraction() > 1 - 1e-8) {
       return (StreetVertex) edge.getToVertex();
     }
+    return null;
+  }
 
-    else {
-      // split the edge, get the split vertex
-      SplitterVertex v0 = split(edge, ll, scope, direction, tempEdges);
-
-      // If splitter vertex is part of area; link splittervertex to all other vertexes in area, this creates
-      // edges that were missed by WalkableAreaBuilder
-      // TODO Temporary code until we refactor the WalkableAreaBuilder (#3152)
-      if (scope == Scope.PERMANENT && this.addExtraEdgesToAreas && edge instanceof AreaEdge) {
-        ((AreaEdge) edge).getArea().addVertex(v0, graph);
-      }
-
-      // TODO Consider moving this code
-      if (OTPFeature.FlexRouting.isOn()) {
-        FlexLocationAdder.addFlexLocations(edge, v0, graph);
-      }
+  /** Add a new splitter vertex of the given edge to its area and flex locations */
+  private void addSplitterVertex(StreetEdge edge, SplitterVertex v0, Scope scope) {
+    // If splitter vertex is part of area; link splittervertex to all other vertexes in area, this creates
+    // edges that were missed by WalkableAreaBuilder
+    // TODO Temporary code until we refactor the WalkableAreaBuilder (#3152)
+    if (scope == Scope.PERMANENT && this.addExtraEdgesToAreas && edge instanceof AreaEdge) {
+      ((AreaEdge) edge).getArea().addVertex(v0, graph);
+    }
 
-      return v0;
+    // TODO Consider moving this code
+    if (OTPFeature.FlexRouting.isOn()) {
+      FlexLocationAdder.addFlexLocations(edge, v0, graph);
     }
   }
 
+  private static double xScale(Vertex vertex) {
+    return Math.cos(vertex.getLat() * Math.PI / 180);
+  }
+
   /** projected distance from stop to edge, in latitude degrees */
   private static double distance(Vertex tstop, StreetEdge edge, double xscale) {
     // Despite the fact that we want to use a fast somewhat inaccurate projection, still use JTS library tools
@@ -466,6 +587,62 @@ public class VertexLinker {
     return v;
   }
 
+  /**
+   * Split the street edge permanently at all the given points, and link each point to its splitter
+   * vertex. The edge is split once for each distinct point, in order along the edge, and only the
+   * final pieces are added to the spatial index.
+   */
+  private void splitPermanently(StreetEdge originalEdge, List<LinkPoint> points) {
+    LineString geometry = originalEdge.getGeometry();
+    points.sort(Comparator.comparing(p -> p.location));
+
+    List<StreetEdge> pieces = new ArrayList<>();
+    StreetEdge remaining = originalEdge;
+    SplitterVertex previous = null;
+
+    for (LinkPoint point : points) {
+      Coordinate splitPoint = point.location.getCoordinate(geometry);
+
+      // Points at the same location are linked to the same splitter vertex
+      if (previous != null && previous.getCoordinate().equals2D(splitPoint, SAME_SPLIT_POINT_EPSILON)) {
+        point.streetVertex = previous;
+        continue;
+      }
+
+      String uniqueSplitLabel = "split_" + graph.nextSplitNumber++;
+      SplitterVertex v = new SplitterVertex(
+          graph,
+          uniqueSplitLabel,
+          splitPoint.x,
+          splitPoint.y,
+          originalEdge
+      );
+      P2<StreetEdge> newEdges = remaining.splitDestructively(v, graph);
+
+      // The pieces between two split points are split again, remove them from the graph
+      if (remaining != originalEdge) {
+        remaining.getToVertex().removeIncoming(remaining);
+        remaining.getFromVertex().removeOutgoing(remaining);
+      }
+      pieces.add(newEdges.first);
+      remaining = newEdges.second;
+
+      addSplitterVertex(originalEdge, v, Scope.PERMANENT);
+      point.streetVertex = v;
+      previous = v;
+    }
+    pieces.add(remaining);
+
+    for (StreetEdge piece : pieces) {
+      streetSpatialIndex.insert(piece.getGeometry(), piece, Scope.PERMANENT);
+    }
+
+    // remove original edge from the graph and the spatial index
+    originalEdge.getToVertex().removeIncoming(originalEdge);
+    originalEdge.getFromVertex().removeOutgoing(originalEdge);
+    removeEdgeFromIndex(originalEdge, Scope.PERMANENT);
+  }
+
   // TODO Temporary code until we refactor WalkableAreaBuilder (#3152)
   public void setAddExtraEdgesToAreas(Boolean addExtraEdgesToAreas) {
     this.addExtraEdgesToAreas = addExtraEdgesToAreas;
@@ -496,4 +673,20 @@ public class VertexLinker {
       return Objects.hash(item);
     }
   }
+
+  /** The point where a vertex is linked to a street edge, found before the edge is split. */
+  private static class LinkPoint {
+
+    final StreetEdge edge;
+    final LinearLocation location;
+
+    /** The vertex to link to, an end of the edge or the splitter vertex once it is split. */
+    StreetVertex streetVertex;
+
+    LinkPoint(StreetEdge edge, LinearLocation location, StreetVertex streetVertex) {
+      this.edge = edge;
+      this.location = location;
+      this.streetVertex = streetVertex;
+    }
+  }
 }
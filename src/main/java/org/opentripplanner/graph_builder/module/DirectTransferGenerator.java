@@ -1,20 +1,28 @@
 package org.opentripplanner.graph_builder.module;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimaps;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.graph_builder.issues.StopNotLinkedForTransfers;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.PathTransfer;
 import org.opentripplanner.model.Stop;
 import org.opentripplanner.model.StopLocation;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.routing.algorithm.raptor.transit.StreetRelevantOptions;
 import org.opentripplanner.routing.algorithm.raptor.transit.Transfer;
+import org.opentripplanner.routing.algorithm.raptor.transit.cost.RaptorCostConverter;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
@@ -32,6 +40,9 @@ import org.slf4j.LoggerFactory;
  *
  * It will use the street network if OSM data has already been loaded into the graph.
  * Otherwise it will use straight-line distance between stops.
+ *
+ * If pruning of dominated transfers is enabled, the transfers which Raptor can never use to reach
+ * a new pattern are removed, see {@link #pruneTransfers(Stop, Collection, GraphIndex)}.
  */
 public class DirectTransferGenerator implements GraphBuilderModule {
 
@@ -41,6 +52,12 @@ public class DirectTransferGenerator implements GraphBuilderModule {
 
     private final List<RoutingRequest> transferRequests;
 
+    private final boolean pruneDominatedTransfers;
+
+    private final AtomicInteger nPrunedFromStopsWithoutAlighting = new AtomicInteger();
+
+    private final AtomicInteger nPrunedWithoutNewPatterns = new AtomicInteger();
+
     public List<String> provides() {
         return List.of("linking");
     }
@@ -50,8 +67,17 @@ public class DirectTransferGenerator implements GraphBuilderModule {
     }
 
     public DirectTransferGenerator (double radiusByDurationInSeconds, List<RoutingRequest> transferRequests) {
+        this(radiusByDurationInSeconds, transferRequests, false);
+    }
+
+    public DirectTransferGenerator (
+            double radiusByDurationInSeconds,
+            List<RoutingRequest> transferRequests,
+            boolean pruneDominatedTransfers
+    ) {
         this.radiusByDurationInSeconds = radiusByDurationInSeconds;
         this.transferRequests = transferRequests;
+        this.pruneDominatedTransfers = pruneDominatedTransfers;
     }
 
     @Override
@@ -83,27 +109,46 @@ public class DirectTransferGenerator implements GraphBuilderModule {
 
         AtomicInteger nTransfersTotal = new AtomicInteger();
         AtomicInteger nLinkedStops = new AtomicInteger();
+        nPrunedFromStopsWithoutAlighting.set(0);
+        nPrunedWithoutNewPatterns.set(0);
 
-        // This is a synchronizedMultimap so that a parallel stream may be used to insert elements.
-        var transfersByStop = Multimaps.<StopLocation, PathTransfer>synchronizedMultimap(HashMultimap.create());
+        // Prepare the street requests once, they are cloned for each search
+        List<RoutingRequest> streetRequests = new ArrayList<>();
+        graph.transferRequestOptions.clear();
+        for (RoutingRequest transferProfile : transferRequests) {
+            RoutingRequest streetRequest = Transfer.prepareTransferRoutingRequest(transferProfile);
+            streetRequests.add(streetRequest);
+            graph.transferRequestOptions.add(new StreetRelevantOptions(streetRequest));
+        }
+
+        // The transfers are collected in parallel, and created in a deterministic order after.
+        List<Map.Entry<TransferKey, NearbyStop[]>> transfers = Collections.synchronizedList(new ArrayList<>());
 
         stops.stream().parallel().forEach(ts0 -> {
             /* Make transfers to each nearby stop that has lowest weight on some trip pattern.
-             * Use map based on the list of edges, so that only distinct transfers are stored. */
-            Map<TransferKey, PathTransfer> distinctTransfers = new HashMap<>();
+             * Use map based on the list of edges, so that only distinct transfers are stored.
+             * Keep the nearby stop found by each request, to store the duration for each. */
+            Map<TransferKey, NearbyStop[]> distinctTransfers = new HashMap<>();
             Stop stop = ts0.getStop();
+            boolean hasPrunedTransfers = false;
             LOG.debug("Linking stop '{}' {}", stop, ts0);
 
-            for (RoutingRequest transferProfile : transferRequests) {
-                RoutingRequest streetRequest = Transfer.prepareTransferRoutingRequest(transferProfile);
+            for (int i = 0; i < streetRequests.size(); ++i) {
+                RoutingRequest streetRequest = streetRequests.get(i);
 
-                for (NearbyStop sd : nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0, streetRequest, false)) {
+                Collection<NearbyStop> nearbyStops = nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0, streetRequest, false);
+                if (pruneDominatedTransfers) {
+                    int nNearbyStops = nearbyStops.size();
+                    nearbyStops = pruneTransfers(stop, nearbyStops, graph.index);
+                    hasPrunedTransfers |= nearbyStops.size() < nNearbyStops;
+                }
+                for (NearbyStop sd : nearbyStops) {
                     // Skip the origin stop, loop transfers are not needed.
                     if (sd.stop == stop) { continue; }
-                    distinctTransfers.put(
+                    distinctTransfers.computeIfAbsent(
                         new TransferKey(stop, sd.stop, sd.edges),
-                        new PathTransfer(stop, sd.stop, sd.distance, sd.edges)
-                    );
+                        k -> new NearbyStop[streetRequests.size()]
+                    )[i] = sd;
                 }
                 if (OTPFeature.FlexRouting.isOn()) {
                     // This code is for finding transfers from FlexStopLocations to Stops, transfers
@@ -112,20 +157,22 @@ public class DirectTransferGenerator implements GraphBuilderModule {
                         // Skip the origin stop, loop transfers are not needed.
                         if (sd.stop == stop) { continue; }
                         if (sd.stop instanceof Stop) { continue; }
-                        distinctTransfers.put(
+                        distinctTransfers.computeIfAbsent(
                             new TransferKey(sd.stop, stop, sd.edges),
-                            new PathTransfer(sd.stop, stop, sd.distance, sd.edges)
-                        );
+                            k -> new NearbyStop[streetRequests.size()]
+                        )[i] = sd;
                     }
                 }
             }
 
             LOG.debug("Linked stop {} with {} transfers to stops with different patterns.", stop, distinctTransfers.size());
             if (distinctTransfers.isEmpty()) {
-                issueStore.add(new StopNotLinkedForTransfers(ts0));
+                // A stop where all the transfers are pruned is linked, it just does not need them
+                if (!hasPrunedTransfers) {
+                    issueStore.add(new StopNotLinkedForTransfers(ts0));
+                }
             } else {
-                distinctTransfers.values()
-                        .forEach(transfer -> transfersByStop.put(transfer.from, transfer));
+                transfers.addAll(distinctTransfers.entrySet());
                 nLinkedStops.incrementAndGet();
                 nTransfersTotal.addAndGet(distinctTransfers.size());
             }
@@ -135,10 +182,24 @@ public class DirectTransferGenerator implements GraphBuilderModule {
             progress.step(m -> LOG.info(m));
         });
 
-        graph.transfersByStop.putAll(transfersByStop);
+        // The edges of the transfers get their index in the edge table as they are encoded, so
+        // they are encoded in the same order in each build of the same input.
+        transfers.sort(Map.Entry.comparingByKey(TransferKey.ORDER));
+        for (Map.Entry<TransferKey, NearbyStop[]> it : transfers) {
+            graph.transfersByStop.put(it.getKey().source, createPathTransfer(it.getKey(), it.getValue(), graph));
+        }
 
         LOG.info(progress.completeMessage());
         LOG.info("Done connecting stops to one another. Created a total of {} transfers from {} stops.", nTransfersTotal, nLinkedStops);
+        LOG.info("The transfers use {} distinct street edges.", graph.transferEdgeTable.size());
+        if (pruneDominatedTransfers) {
+            LOG.info(
+                    "Pruned {} transfers from stops where no pattern alights, and {} transfers "
+                            + "reaching no new patterns.",
+                    nPrunedFromStopsWithoutAlighting,
+                    nPrunedWithoutNewPatterns
+            );
+        }
         graph.hasDirectTransfers = true;
     }
 
@@ -147,7 +208,149 @@ public class DirectTransferGenerator implements GraphBuilderModule {
         // No inputs
     }
 
+    /**
+     * Create a transfer with the duration and cost for each request which found it. These are
+     * only needed by Raptor, for the transfers from a stop along a street path. The reverse
+     * searches of the flex transfers are not used for this.
+     */
+    private static PathTransfer createPathTransfer(
+            TransferKey key,
+            NearbyStop[] nearbyStopByRequest,
+            Graph graph
+    ) {
+        NearbyStop first = Arrays.stream(nearbyStopByRequest)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElseThrow();
+
+        if (key.edges == null || !(key.source instanceof Stop)) {
+            return new PathTransfer(
+                    key.source, key.target, first.distance, key.edges, graph.transferEdgeTable
+            );
+        }
+
+        int[] durationSeconds = new int[nearbyStopByRequest.length];
+        int[] generalizedCosts = new int[nearbyStopByRequest.length];
+        for (int i = 0; i < nearbyStopByRequest.length; ++i) {
+            NearbyStop sd = nearbyStopByRequest[i];
+            if (sd == null || sd.state == null) {
+                durationSeconds[i] = -1;
+                continue;
+            }
+            durationSeconds[i] = (int) sd.state.getElapsedTimeSeconds();
+            generalizedCosts[i] = RaptorCostConverter.toRaptorCost(sd.state.getWeight());
+        }
+        return new PathTransfer(
+                key.source,
+                key.target,
+                first.distance,
+                key.edges,
+                graph.transferEdgeTable,
+                durationSeconds,
+                generalizedCosts
+        );
+    }
+
+    /**
+     * Raptor only transfers after alighting, and before boarding a pattern. Remove the transfers
+     * it can not use to reach a new pattern:
+     * <ul>
+     *     <li>All transfers from a stop where no pattern alights.</li>
+     *     <li>Transfers to a stop where every pattern which can be boarded there can also be
+     *     boarded at the origin stop, or at the target of a shorter transfer. These transfers are
+     *     dominated by boarding at the other stop.</li>
+     * </ul>
+     * This is stronger than keeping the closest stop of each pattern, since a pattern can not
+     * be boarded at its last stop, or where pickup is not possible. The transfers to and from
+     * stops served by flex trips are always kept, as they are also used by the flex access and
+     * egress.
+     */
+    private List<NearbyStop> pruneTransfers(
+            Stop origin,
+            Collection<NearbyStop> nearbyStops,
+            GraphIndex index
+    ) {
+        if (servedByFlexTrips(origin, index)) {
+            return List.copyOf(nearbyStops);
+        }
+
+        // The origin stop itself is kept, so only the removed transfers are missing in the result
+        List<NearbyStop> result = new ArrayList<>(nearbyStops.size());
+        List<NearbyStop> transfers = new ArrayList<>(nearbyStops.size());
+        for (NearbyStop sd : nearbyStops) {
+            if (sd.stop == origin) { result.add(sd); }
+            else { transfers.add(sd); }
+        }
+
+        if (index.getPatternsForStop(origin).stream().noneMatch(p -> canAlightAt(p, origin))) {
+            nPrunedFromStopsWithoutAlighting.addAndGet(transfers.size());
+            return result;
+        }
+
+        // Visit the transfers from the shortest, the order of equal transfers is deterministic
+        transfers.sort(
+                Comparator.<NearbyStop>comparingDouble(sd -> sd.distance)
+                        .thenComparing(sd -> sd.stop.getId().toString())
+        );
+
+        Set<TripPattern> reachedPatterns = boardablePatterns(origin, index);
+        for (NearbyStop sd : transfers) {
+            boolean newPatterns = reachedPatterns.addAll(boardablePatterns(sd.stop, index));
+            if (newPatterns || !(sd.stop instanceof Stop) || servedByFlexTrips(sd.stop, index)) {
+                result.add(sd);
+            }
+            else {
+                nPrunedWithoutNewPatterns.incrementAndGet();
+            }
+        }
+        return result;
+    }
+
+    private static Set<TripPattern> boardablePatterns(StopLocation stop, GraphIndex index) {
+        Set<TripPattern> patterns = new HashSet<>();
+        for (TripPattern pattern : index.getPatternsForStop(stop)) {
+            if (canBoardAt(pattern, stop)) {
+                patterns.add(pattern);
+            }
+        }
+        return patterns;
+    }
+
+    /** A pattern can not be boarded at its last stop. */
+    private static boolean canBoardAt(TripPattern pattern, StopLocation stop) {
+        for (int i = 0; i < pattern.getStopPattern().getSize() - 1; ++i) {
+            if (pattern.getStop(i) == stop && pattern.canBoard(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** A pattern can not be alighted at its first stop. */
+    private static boolean canAlightAt(TripPattern pattern, StopLocation stop) {
+        for (int i = 1; i < pattern.getStopPattern().getSize(); ++i) {
+            if (pattern.getStop(i) == stop && pattern.canAlight(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean servedByFlexTrips(StopLocation stop, GraphIndex index) {
+        return OTPFeature.FlexRouting.isOn()
+                && index.getFlexIndex().flexTripsByStop.containsKey(stop);
+    }
+
     private static class TransferKey {
+        /**
+         * Order by the source and target stops, and then by the labels of the vertices along the
+         * edges, which do not depend on the order in which the stops are linked.
+         */
+        private static final Comparator<TransferKey> ORDER =
+                Comparator.<TransferKey, FeedScopedId>comparing(k -> k.source.getId())
+                        .thenComparing(k -> k.target.getId())
+                        .thenComparing(k -> k.edges, Comparator.nullsFirst(TransferKey::compareEdges));
+
         private final StopLocation source;
         private final StopLocation target;
         private final List<Edge> edges;
@@ -170,5 +373,16 @@ public class DirectTransferGenerator implements GraphBuilderModule {
         public int hashCode() {
             return Objects.hash(source, target, edges);
         }
+
+        private static int compareEdges(List<Edge> a, List<Edge> b) {
+            int c = Integer.compare(a.size(), b.size());
+            for (int i = 0; c == 0 && i < a.size(); ++i) {
+                c = a.get(i).getFromVertex().getLabel().compareTo(b.get(i).getFromVertex().getLabel());
+                if (c == 0) {
+                    c = a.get(i).getToVertex().getLabel().compareTo(b.get(i).getToVertex().getLabel());
+                }
+            }
+            return c;
+        }
     }
 }
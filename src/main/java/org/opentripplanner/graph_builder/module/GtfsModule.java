@@ -12,6 +12,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.onebusaway.csv_entities.CsvInputSource;
 import org.onebusaway.csv_entities.EntityHandler;
 import org.onebusaway.gtfs.impl.GtfsRelationalDaoImpl;
 import org.onebusaway.gtfs.model.Agency;
@@ -23,6 +24,7 @@ import org.onebusaway.gtfs.model.ServiceCalendar;
 import org.onebusaway.gtfs.model.ServiceCalendarDate;
 import org.onebusaway.gtfs.model.ShapePoint;
 import org.onebusaway.gtfs.model.Stop;
+import org.onebusaway.gtfs.model.StopTime;
 import org.onebusaway.gtfs.model.Trip;
 import org.onebusaway.gtfs.serialization.GtfsReader;
 import org.onebusaway.gtfs.services.GenericMutableDao;
@@ -33,6 +35,7 @@ import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.graph_builder.module.geometry.GeometryAndBlockProcessor;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
 import org.opentripplanner.gtfs.GenerateTripPatternsOperation;
+import org.opentripplanner.gtfs.ParallelStopTimeReader;
 import org.opentripplanner.gtfs.RepairStopTimesForEachTripOperation;
 import org.opentripplanner.gtfs.mapping.GTFSToOtpTransitServiceMapper;
 import org.opentripplanner.model.FeedScopedId;
@@ -123,15 +126,7 @@ public class GtfsModule implements GraphBuilderModule {
                     gtfsBundle.useCached = useCached;
                 }
 
-                GtfsMutableRelationalDao gtfsDao = loadBundle(gtfsBundle);
-                GTFSToOtpTransitServiceMapper mapper = new GTFSToOtpTransitServiceMapper(
-                        gtfsBundle.getFeedId().getId(),
-                        issueStore,
-                        gtfsDao
-                );
-                mapper.mapStopTripAndRouteDatantoBuilder();
-
-                OtpTransitServiceBuilder builder =  mapper.getBuilder();
+                OtpTransitServiceBuilder builder = mapBundle(gtfsBundle);
 
                 builder.limitServiceDays(transitPeriodLimit);
 
@@ -177,6 +172,22 @@ public class GtfsModule implements GraphBuilderModule {
 
     /* Private Methods */
 
+    /**
+     * Load the bundle and map it into a new transit service builder. The onebusaway DAO and the
+     * mapper are only referenced from this method, so they can be garbage collected before the
+     * trip patterns are generated.
+     */
+    private OtpTransitServiceBuilder mapBundle(GtfsBundle gtfsBundle) throws IOException {
+        GtfsMutableRelationalDao gtfsDao = loadBundle(gtfsBundle);
+        GTFSToOtpTransitServiceMapper mapper = new GTFSToOtpTransitServiceMapper(
+                gtfsBundle.getFeedId().getId(),
+                issueStore,
+                gtfsDao
+        );
+        mapper.mapStopTripAndRouteDatantoBuilder();
+        return mapper.getBuilder();
+    }
+
     /**
      * This method have side-effects, the {@code stopTimesByTrip} is updated.
      */
@@ -234,6 +245,10 @@ public class GtfsModule implements GraphBuilderModule {
 
         for (Class<?> entityClass : reader.getEntityClasses()) {
             LOG.info("reading entities: " + entityClass.getName());
+            if (entityClass == StopTime.class && readStopTimesInParallel(gtfsBundle, store)) {
+                store.flush();
+                continue;
+            }
             reader.readEntities(entityClass);
             store.flush();
             // NOTE that agencies are first in the list and read before all other entity types, so it is effective to
@@ -292,6 +307,25 @@ public class GtfsModule implements GraphBuilderModule {
         return store.dao;
     }
 
+    /**
+     * Read the stop times, usually the largest file of the feed, with the {@link
+     * ParallelStopTimeReader}.
+     *
+     * @return {@code false} if the file must be read with the default onebusaway reader.
+     */
+    private boolean readStopTimesInParallel(GtfsBundle gtfsBundle, StoreImpl store)
+            throws IOException {
+        CsvInputSource input = gtfsBundle.getCsvInputSource();
+        if (!input.hasResource(ParallelStopTimeReader.FILE_NAME)) {
+            return false;
+        }
+        ParallelStopTimeReader stopTimeReader = new ParallelStopTimeReader(
+                store.getAllEntitiesForType(Trip.class),
+                store.getAllEntitiesForType(Stop.class)
+        );
+        return stopTimeReader.read(input.getResource(ParallelStopTimeReader.FILE_NAME), store);
+    }
+
     /**
      * Generates routeText colors for routes with routeColor and without routeTextColor
      *
@@ -0,0 +1,413 @@
+package org.opentripplanner.graph_builder.module;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import org.opentripplanner.common.IntDisjointSet;
+import org.opentripplanner.common.geometry.Subgraph;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.ElevatorEdge;
+import org.opentripplanner.routing.edgetype.FreeEdge;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTransitEntityLink;
+import org.opentripplanner.routing.edgetype.StreetTransitEntranceLink;
+import org.opentripplanner.routing.edgetype.StreetTransitStopLink;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Find the islands of the street network for {@link PruneNoThruIslands}. The vertices are given a
+ * dense index, and the connected components are found with a union-find over the indexes instead
+ * of walking the graph.
+ * <p>
+ * The edges of all modes are collected in a single pass over the vertices, done in parallel. The
+ * components of each mode are then computed in parallel. The graph must not be changed while the
+ * islands are found, the islands are applied to the graph afterwards.
+ */
+class NoThruIslandFinder {
+
+    /** The number of vertices scanned by one task in the parallel edge scan. */
+    private static final int CHUNK_SIZE = 10_000;
+
+    private final Vertex[] vertices;
+
+    private final TObjectIntMap<Vertex> indexes;
+
+    private long edgeScanTime;
+
+    NoThruIslandFinder(Graph graph) {
+        vertices = graph.getVertices().toArray(new Vertex[0]);
+        indexes = new TObjectIntHashMap<>(vertices.length, 0.5f, -1);
+        for (int i = 0; i < vertices.length; ++i) {
+            indexes.put(vertices[i], i);
+        }
+    }
+
+    /** Find the islands of each of the given modes. */
+    Map<TraverseMode, Islands> findIslands(List<TraverseMode> modes) {
+        long start = System.currentTimeMillis();
+        List<ModeEdges> edges = collectEdges(modes);
+        edgeScanTime = System.currentTimeMillis() - start;
+
+        List<Islands> islands = IntStream.range(0, modes.size())
+                .parallel()
+                .mapToObj(i -> findIslands(modes.get(i), edges.get(i)))
+                .collect(Collectors.toList());
+
+        Map<TraverseMode, Islands> result = new EnumMap<>(TraverseMode.class);
+        islands.forEach(it -> result.put(it.mode, it));
+        return result;
+    }
+
+    /** The time used to collect the edges of all modes, in milliseconds. */
+    long edgeScanTime() {
+        return edgeScanTime;
+    }
+
+    /* The islands are found with the same strategy as the breadth first walks used before:
+       1. Islands without using noThruTraffic edges at all (the "anchored" components).
+       2. Islands using all edges, the edges of small islands are isolated.
+       3. Expanded islands: an anchored component and the components of the vertices only reached
+          through noThruTraffic edges, called free components, next to it. The expansion does not
+          jump across anchored components, so a free component can be part of several expanded
+          islands.
+       4. The free components which are not next to any anchored component.
+       Islands 3 and 4 are the islands to prune, in the same order as found by the walks.
+     */
+    private Islands findIslands(TraverseMode mode, ModeEdges edges) {
+        long start = System.currentTimeMillis();
+        int n = vertices.length;
+        boolean[] present = new boolean[n];
+        boolean[] anchored = new boolean[n];
+        IntDisjointSet allSets = new IntDisjointSet(n);
+        IntDisjointSet anchorSets = new IntDisjointSet(n);
+
+        TIntArrayList through = edges.through;
+        for (int i = 0; i < through.size(); i += 2) {
+            int a = through.get(i);
+            int b = through.get(i + 1);
+            present[a] = present[b] = anchored[a] = anchored[b] = true;
+            allSets.union(a, b);
+            anchorSets.union(a, b);
+        }
+        TIntArrayList noThru = edges.noThru;
+        for (int i = 0; i < noThru.size(); i += 2) {
+            int a = noThru.get(i);
+            int b = noThru.get(i + 1);
+            present[a] = present[b] = true;
+            allSets.union(a, b);
+        }
+
+        // Join the free components, and find the anchored components next to each of them
+        TIntObjectMap<TIntSet> freeRootsByAnchor = new TIntObjectHashMap<>();
+        boolean[] attached = new boolean[n];
+        for (int i = 0; i < noThru.size(); i += 2) {
+            int a = noThru.get(i);
+            int b = noThru.get(i + 1);
+            if (!anchored[a] && !anchored[b]) {
+                anchorSets.union(a, b);
+            }
+        }
+        for (int i = 0; i < noThru.size(); i += 2) {
+            int a = noThru.get(i);
+            int b = noThru.get(i + 1);
+            if (anchored[a] == anchored[b]) { continue; }
+            int anchorRoot = anchorSets.find(anchored[a] ? a : b);
+            int freeRoot = anchorSets.find(anchored[a] ? b : a);
+            TIntSet freeRoots = freeRootsByAnchor.get(anchorRoot);
+            if (freeRoots == null) {
+                freeRoots = new TIntHashSet();
+                freeRootsByAnchor.put(anchorRoot, freeRoots);
+            }
+            freeRoots.add(freeRoot);
+            attached[freeRoot] = true;
+        }
+
+        Components allComponents = new Components(allSets, present);
+        Components anchorComponents = new Components(anchorSets, present);
+
+        List<Island> islandsWithNoThru = new ArrayList<>();
+        for (int root : allComponents.roots) {
+            islandsWithNoThru.add(new Island(allComponents, new int[] { root }));
+        }
+
+        List<Island> islands = new ArrayList<>();
+        int anchoredCount = 0;
+        for (int root : anchorComponents.roots) {
+            if (!anchored[root]) { continue; }
+            TIntSet freeRoots = freeRootsByAnchor.get(root);
+            int[] roots = new int[1 + (freeRoots == null ? 0 : freeRoots.size())];
+            roots[0] = root;
+            if (freeRoots != null) {
+                System.arraycopy(freeRoots.toArray(), 0, roots, 1, freeRoots.size());
+            }
+            islands.add(new Island(anchorComponents, roots));
+            anchoredCount++;
+        }
+        int noThruCount = 0;
+        for (int root : anchorComponents.roots) {
+            if (anchored[root] || attached[root]) { continue; }
+            islands.add(new Island(anchorComponents, new int[] { root }));
+            noThruCount++;
+        }
+
+        return new Islands(
+                mode,
+                anchoredCount,
+                islandsWithNoThru,
+                noThruCount,
+                islands,
+                System.currentTimeMillis() - start
+        );
+    }
+
+    private List<ModeEdges> collectEdges(List<TraverseMode> modes) {
+        int nChunks = (vertices.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        List<List<ModeEdges>> chunks = IntStream.range(0, nChunks)
+                .parallel()
+                .mapToObj(c -> collectEdges(
+                        modes,
+                        c * CHUNK_SIZE,
+                        Math.min(vertices.length, (c + 1) * CHUNK_SIZE)
+                ))
+                .collect(Collectors.toList());
+
+        List<ModeEdges> result = new ArrayList<>();
+        for (int m = 0; m < modes.size(); ++m) {
+            ModeEdges edges = new ModeEdges();
+            for (List<ModeEdges> chunk : chunks) {
+                edges.through.addAll(chunk.get(m).through);
+                edges.noThru.addAll(chunk.get(m).noThru);
+            }
+            result.add(edges);
+        }
+        return result;
+    }
+
+    /** Collect the edges traversable by each mode from the street vertices in the given range. */
+    private List<ModeEdges> collectEdges(List<TraverseMode> modes, int start, int end) {
+        List<RoutingRequest> options = new ArrayList<>();
+        List<ModeEdges> result = new ArrayList<>();
+        for (TraverseMode mode : modes) {
+            options.add(new RoutingRequest(new TraverseModeSet(mode)));
+            result.add(new ModeEdges());
+        }
+
+        for (int i = start; i < end; ++i) {
+            Vertex vertex = vertices[i];
+            if (!(vertex instanceof StreetVertex)) { continue; }
+
+            for (int m = 0; m < modes.size(); ++m) {
+                TraverseMode mode = modes.get(m);
+                State s0 = new State(vertex, options.get(m));
+                for (Edge e : vertex.getOutgoing()) {
+                    if (!isConnectivityEdge(e)) { continue; }
+                    State s1 = e.traverse(s0);
+                    if (s1 == null) { continue; }
+                    int out = indexes.get(s1.getVertex());
+                    if (out < 0) { continue; }
+                    boolean noThruTraffic = e instanceof StreetEdge
+                            && ((StreetEdge) e).isNoThruTraffic(mode);
+                    result.get(m).add(i, out, noThruTraffic);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isConnectivityEdge(Edge e) {
+        return e instanceof StreetEdge || e instanceof StreetTransitStopLink
+                || e instanceof StreetTransitEntranceLink || e instanceof ElevatorEdge
+                || e instanceof FreeEdge || e instanceof StreetTransitEntityLink;
+    }
+
+    /** The edges traversable by one mode, as pairs of vertex indexes. */
+    private static class ModeEdges {
+        private final TIntArrayList through = new TIntArrayList();
+        private final TIntArrayList noThru = new TIntArrayList();
+
+        private void add(int from, int to, boolean noThruTraffic) {
+            TIntArrayList edges = noThruTraffic ? noThru : through;
+            edges.add(from);
+            edges.add(to);
+        }
+    }
+
+    /** The islands of one mode. */
+    static class Islands {
+        final TraverseMode mode;
+
+        /** The number of islands without noThruTraffic edges. */
+        final int anchoredCount;
+
+        /** The islands using all edges, including noThruTraffic edges. */
+        final List<Island> islandsWithNoThru;
+
+        /** The number of islands only connected by noThruTraffic edges. */
+        final int noThruCount;
+
+        /** The expanded islands and the noThruTraffic islands, to prune. */
+        final List<Island> islands;
+
+        /** The time used to find the islands, in milliseconds. */
+        final long analysisTime;
+
+        private Islands(
+                TraverseMode mode,
+                int anchoredCount,
+                List<Island> islandsWithNoThru,
+                int noThruCount,
+                List<Island> islands,
+                long analysisTime
+        ) {
+            this.mode = mode;
+            this.anchoredCount = anchoredCount;
+            this.islandsWithNoThru = islandsWithNoThru;
+            this.noThruCount = noThruCount;
+            this.islands = islands;
+            this.analysisTime = analysisTime;
+        }
+    }
+
+    /** An island made of one or more components. */
+    static class Island {
+        private final Components components;
+        private final int[] roots;
+        private final int streetSize;
+        private final int stopSize;
+
+        private Island(Components components, int[] roots) {
+            this.components = components;
+            this.roots = roots;
+            int streets = 0;
+            int stops = 0;
+            for (int root : roots) {
+                streets += components.streetSize(root);
+                stops += components.stopSize(root);
+            }
+            this.streetSize = streets;
+            this.stopSize = stops;
+        }
+
+        int streetSize() {
+            return streetSize;
+        }
+
+        int stopSize() {
+            return stopSize;
+        }
+
+        /** Create the subgraph of the vertices in the island. */
+        Subgraph toSubgraph() {
+            Subgraph subgraph = new Subgraph();
+            for (int root : roots) {
+                components.addVertices(root, subgraph);
+            }
+            return subgraph;
+        }
+    }
+
+    /** The components of a union-find, with the vertices of each component. */
+    private class Components {
+
+        /**
+         * The union-find roots of the components with a street vertex, in the order of their first
+         * street vertex.
+         */
+        private final int[] roots;
+
+        /** The component number of each root, the other elements are not used. */
+        private final int[] componentOfRoot;
+
+        private final int[] streetSizes;
+        private final int[] stopSizes;
+
+        /** The vertices of each component, starting at the offset of the component. */
+        private final int[] members;
+        private final int[] offsets;
+
+        private Components(IntDisjointSet sets, boolean[] present) {
+            int n = present.length;
+            componentOfRoot = new int[n];
+            Arrays.fill(componentOfRoot, -1);
+            TIntArrayList rootList = new TIntArrayList();
+            TIntArrayList streets = new TIntArrayList();
+            TIntArrayList stops = new TIntArrayList();
+            BitSet hasStreetVertex = new BitSet();
+
+            int nMembers = 0;
+            for (int v = 0; v < n; ++v) {
+                if (!present[v]) { continue; }
+                int root = sets.find(v);
+                int c = componentOfRoot[root];
+                if (c < 0) {
+                    c = streets.size();
+                    componentOfRoot[root] = c;
+                    streets.add(0);
+                    stops.add(0);
+                }
+                if (vertices[v] instanceof TransitStopVertex) {
+                    stops.set(c, stops.get(c) + 1);
+                }
+                else {
+                    streets.set(c, streets.get(c) + 1);
+                }
+                if (vertices[v] instanceof StreetVertex && !hasStreetVertex.get(c)) {
+                    hasStreetVertex.set(c);
+                    rootList.add(root);
+                }
+                nMembers++;
+            }
+            roots = rootList.toArray();
+            streetSizes = streets.toArray();
+            stopSizes = stops.toArray();
+
+            int nComponents = streetSizes.length;
+            offsets = new int[nComponents + 1];
+            for (int c = 0; c < nComponents; ++c) {
+                offsets[c + 1] = offsets[c] + streetSizes[c] + stopSizes[c];
+            }
+            members = new int[nMembers];
+            int[] next = Arrays.copyOf(offsets, nComponents);
+            for (int v = 0; v < n; ++v) {
+                if (present[v]) {
+                    members[next[componentOfRoot[sets.find(v)]]++] = v;
+                }
+            }
+        }
+
+        private int streetSize(int root) {
+            return streetSizes[componentOfRoot[root]];
+        }
+
+        private int stopSize(int root) {
+            return stopSizes[componentOfRoot[root]];
+        }
+
+        private void addVertices(int root, Subgraph subgraph) {
+            int c = componentOfRoot[root];
+            for (int i = offsets[c]; i < offsets[c + 1]; ++i) {
+                subgraph.addVertex(vertices[members[i]]);
+            }
+        }
+    }
+}
@@ -9,17 +9,13 @@ import org.opentripplanner.graph_builder.issues.GraphConnectivity;
 import org.opentripplanner.graph_builder.issues.GraphIsland;
 import org.opentripplanner.graph_builder.issues.IsolatedStop;
 import org.opentripplanner.graph_builder.issues.PrunedIslandStop;
-import org.opentripplanner.routing.api.request.RoutingRequest;
-import org.opentripplanner.routing.core.State;
+import org.opentripplanner.graph_builder.module.NoThruIslandFinder.Island;
+import org.opentripplanner.graph_builder.module.NoThruIslandFinder.Islands;
 import org.opentripplanner.routing.core.TraverseMode;
-import org.opentripplanner.routing.core.TraverseModeSet;
-import org.opentripplanner.routing.edgetype.ElevatorEdge;
-import org.opentripplanner.routing.edgetype.FreeEdge;
 import org.opentripplanner.routing.edgetype.StreetEdge;
 import org.opentripplanner.routing.edgetype.StreetTransitStopLink;
 import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
 import org.opentripplanner.routing.edgetype.StreetTransitEntranceLink;
-import org.opentripplanner.routing.edgetype.StreetTransitEntityLink;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Vertex;
@@ -34,12 +30,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Set;
 
 /**
  * this module is part of the  {@link org.opentripplanner.graph_builder.services.GraphBuilderModule}
@@ -93,18 +91,34 @@ public class PruneNoThruIslands implements GraphBuilderModule {
     ) {
         LOG.info("Pruning islands and areas isolated by nothru edges in street network");
 
-        pruneNoThruIslands(graph, pruningThresholdIslandWithoutStops,
-                pruningThresholdIslandWithStops,
-                issueStore, TraverseMode.BICYCLE
-        );
-        pruneNoThruIslands(graph, pruningThresholdIslandWithoutStops,
-                pruningThresholdIslandWithStops,
-                issueStore, TraverseMode.WALK
-        );
-        pruneNoThruIslands(graph, pruningThresholdIslandWithoutStops,
-                pruningThresholdIslandWithStops,
-                issueStore, TraverseMode.CAR
-        );
+        List<TraverseMode> modes = List.of(TraverseMode.BICYCLE, TraverseMode.WALK, TraverseMode.CAR);
+        NoThruIslandFinder finder = new NoThruIslandFinder(graph);
+        Map<TraverseMode, Islands> islandsByMode = finder.findIslands(modes);
+        LOG.info("Collected street edges of {} modes in {} ms", modes.size(), finder.edgeScanTime());
+
+        Map<TraverseMode, String> timeByMode = new EnumMap<>(TraverseMode.class);
+        boolean stopsUnlinked = false;
+        for (TraverseMode mode : modes) {
+            Islands islands = islandsByMode.get(mode);
+            if (mode == TraverseMode.CAR && stopsUnlinked) {
+                // Cars may drive through the links of the stops removed from the walk islands, so
+                // the car islands are found again without them
+                NoThruIslandFinder carFinder = new NoThruIslandFinder(graph);
+                islands = carFinder.findIslands(List.of(mode)).get(mode);
+                LOG.info("Collected street edges of {} again in {} ms", mode, carFinder.edgeScanTime());
+            }
+            long start = System.currentTimeMillis();
+            int unlinked = pruneNoThruIslands(graph, islands, pruningThresholdIslandWithoutStops,
+                    pruningThresholdIslandWithStops, issueStore
+            );
+            stopsUnlinked |= unlinked > 0;
+            timeByMode.put(mode, String.format(
+                    "%s: analysis %d ms, pruning %d ms",
+                    mode, islands.analysisTime, System.currentTimeMillis() - start
+            ));
+        }
+        LOG.info("Island pruning time by mode: {}", String.join(", ", timeByMode.values()));
+
         // reconnect stops that got disconnected
         if (streetLinkerModule != null) {
             LOG.info("Reconnecting stops");
@@ -153,68 +167,41 @@ public class PruneNoThruIslands implements GraphBuilderModule {
        3  Relax connectivity even more: generate islands by allowing jumps between islands. Find out unreachable edges of small islands.
        4. Analyze small expanded islands (from step 2). Convert edges which are reachable only via noThruTraffic edges
           to noThruTraffic state. Remove traversal mode specific access from unreachable edges. Removed unconnected edges.
+       The islands are found by the NoThruIslandFinder, this applies them to the graph.
      */
 
-    private static void pruneNoThruIslands(
-            Graph graph, int maxIslandSize,
-            int islandWithStopMaxSize, DataImportIssueStore issueStore,
-            TraverseMode traverseMode
+    /** @return the number of stops unlinked from the street network */
+    private static int pruneNoThruIslands(
+            Graph graph, Islands islands, int maxIslandSize,
+            int islandWithStopMaxSize, DataImportIssueStore issueStore
     ) {
         LOG.debug("nothru pruning");
-        Map<Vertex, Subgraph> subgraphs = new HashMap<Vertex, Subgraph>();
-        Map<Vertex, Subgraph> extgraphs = new HashMap<Vertex, Subgraph>();
-        Map<Vertex, ArrayList<Vertex>> neighborsForVertex =
-                new HashMap<Vertex, ArrayList<Vertex>>();
-        Map<Edge, Boolean> isolated = new HashMap<Edge, Boolean>();
-        ArrayList<Subgraph> islands = new ArrayList<Subgraph>();
-        int count;
-
-        /* establish vertex neighbourhood without currently relevant noThruTrafficEdges */
-        collectNeighbourVertices(graph, neighborsForVertex, traverseMode, false);
-
-        /* associate each connected vertex with a subgraph */
-        count = collectSubGraphs(graph, neighborsForVertex, subgraphs, null, null);
-        LOG.info("Islands without {} noThruTraffic edges: {}", traverseMode, count);
-
-        /* Expand vertex neighbourhood with relevant noThruTrafficEdges
-           Note that we can reuse the original neighbour map here
-           and simply process a smaller set of noThruTrafficEdges */
-        collectNeighbourVertices(graph, neighborsForVertex, traverseMode, true);
-
-        /* Next: generate subgraphs without considering access limitations */
-        count = collectSubGraphs(graph, neighborsForVertex, extgraphs, null, islands);
-        LOG.info("Islands with {} noThruTraffic edges: {}", traverseMode, count);
-
-        /* collect unreachable edges to a map */
-        processIslands(graph, islands, isolated, true,
-                maxIslandSize, islandWithStopMaxSize, issueStore, traverseMode
-        );
+        TraverseMode traverseMode = islands.mode;
+        Set<Edge> isolated = new HashSet<>();
 
-        extgraphs = new HashMap<Vertex, Subgraph>(); // let old map go
-        islands = new ArrayList<Subgraph>(); // reset this too
+        LOG.info("Islands without {} noThruTraffic edges: {}", traverseMode, islands.anchoredCount);
+        LOG.info("Islands with {} noThruTraffic edges: {}", traverseMode, islands.islandsWithNoThru.size());
 
-        /* Recompute expanded subgraphs by accepting noThruTraffic edges in graph expansion.
-           However, expansion is not allowed to jump from an original island to another one
-         */
-        collectSubGraphs(graph, neighborsForVertex, extgraphs, subgraphs, islands);
-
-        /* Next round: generate purely noThruTraffic islands if such ones exist */
-        count = collectSubGraphs(graph, neighborsForVertex, extgraphs, null, islands);
-        LOG.info("{} noThruTraffic island count: {}", traverseMode, count);
+        /* collect unreachable edges to a set */
+        processIslands(graph, islands.islandsWithNoThru, isolated, true,
+                maxIslandSize, islandWithStopMaxSize, issueStore, traverseMode
+        );
 
-        LOG.info("Total {} sub graphs found", islands.size());
+        LOG.info("{} noThruTraffic island count: {}", traverseMode, islands.noThruCount);
+        LOG.info("Total {} sub graphs found", islands.islands.size());
 
         /* remove all tiny subgraphs and large subgraphs without stops */
-        count = processIslands(graph, islands, isolated, false,
+        Map<String, Integer> stats = processIslands(graph, islands.islands, isolated, false,
                 maxIslandSize, islandWithStopMaxSize, issueStore, traverseMode
         );
-        LOG.info("Modified {} islands", count);
+        LOG.info("Modified {} islands", stats.get("modified"));
+        return stats.get("unlinked");
     }
 
-    private static int processIslands(
+    private static Map<String, Integer> processIslands(
             Graph graph,
-            ArrayList<Subgraph> islands,
-            Map<Edge, Boolean> isolated,
+            List<Island> islands,
+            Set<Edge> isolated,
             boolean markIsolated,
             int maxIslandSize,
             int islandWithStopMaxSize,
@@ -228,18 +215,17 @@ public class PruneNoThruIslands implements GraphBuilderModule {
         stats.put("removed", 0);
         stats.put("noThru", 0);
         stats.put("restricted", 0);
+        stats.put("unlinked", 0);
 
         int count = 0;
         int islandsWithStops = 0;
         int islandsWithStopsChanged = 0;
-        for (Subgraph island : islands) {
-            boolean changed = false;
+        for (Island island : islands) {
             if (island.stopSize() > 0) {
                 //for islands with stops
                 islandsWithStops++;
                 if (island.streetSize() < islandWithStopMaxSize) {
-                    restrictOrRemove(graph, island, isolated, stats, markIsolated, traverseMode, issueStore);
-                    changed = true;
+                    restrictOrRemove(graph, island.toSubgraph(), isolated, stats, markIsolated, traverseMode, issueStore);
                     islandsWithStopsChanged++;
                     count++;
                 }
@@ -247,8 +233,7 @@ public class PruneNoThruIslands implements GraphBuilderModule {
             else {
                 //for islands without stops
                 if (island.streetSize() < maxIslandSize) {
-                    restrictOrRemove(graph, island, isolated, stats, markIsolated, traverseMode, issueStore);
-                    changed = true;
+                    restrictOrRemove(graph, island.toSubgraph(), isolated, stats, markIsolated, traverseMode, issueStore);
                     count++;
                 }
             }
@@ -267,102 +252,14 @@ public class PruneNoThruIslands implements GraphBuilderModule {
                 stats.get("removed"), stats.get("restricted"), stats.get("noThru")
             ));
         }
-        return count;
-    }
-
-    private static void collectNeighbourVertices(
-            Graph graph, Map<Vertex, ArrayList<Vertex>> neighborsForVertex, TraverseMode traverseMode, boolean shouldMatchNoThruType
-    ) {
-
-        RoutingRequest options = new RoutingRequest(new TraverseModeSet(traverseMode));
-
-        for (Vertex gv : graph.getVertices()) {
-            if (!(gv instanceof StreetVertex)) {
-                continue;
-            }
-            State s0 = new State(gv, options);
-            for (Edge e : gv.getOutgoing()) {
-                Vertex in = gv;
-                if (!(
-                    e instanceof StreetEdge || e instanceof StreetTransitStopLink ||
-                    e instanceof StreetTransitEntranceLink || e instanceof ElevatorEdge ||
-                    e instanceof FreeEdge || e instanceof StreetTransitEntityLink
-                )
-                ) {
-                    continue;
-                }
-                if (e instanceof StreetEdge
-                    && shouldMatchNoThruType != ((StreetEdge) e).isNoThruTraffic(traverseMode)
-                ) {
-                    continue;
-                }
-                State s1 = e.traverse(s0);
-                if (s1 == null) {
-                    continue;
-                }
-                Vertex out = s1.getVertex();
-
-                ArrayList<Vertex> vertexList = neighborsForVertex.get(in);
-                if (vertexList == null) {
-                    vertexList = new ArrayList<Vertex>();
-                    neighborsForVertex.put(in, vertexList);
-                }
-                vertexList.add(out);
-
-                vertexList = neighborsForVertex.get(out);
-                if (vertexList == null) {
-                    vertexList = new ArrayList<Vertex>();
-                    neighborsForVertex.put(out, vertexList);
-                }
-                vertexList.add(in);
-            }
-        }
-    }
-
-    private static int collectSubGraphs(
-            Graph graph,
-            Map<Vertex, ArrayList<Vertex>> neighborsForVertex,
-            Map<Vertex, Subgraph> newgraphs, // put new subgraphs here
-            Map<Vertex, Subgraph> subgraphs, // optional isolation map from a previous round
-            ArrayList<Subgraph> islands
-    ) {   // final list of islands or null
-
-        int count = 0;
-        for (Vertex gv : graph.getVertices()) {
-            if (!(gv instanceof StreetVertex)) {
-                continue;
-            }
-            Vertex vertex = gv;
-
-            if (subgraphs != null && !subgraphs.containsKey(vertex)) {
-                // do not start new graph generation from non-classified vertex
-                continue;
-            }
-            if (newgraphs.containsKey(vertex)) { // already processed
-                continue;
-            }
-            if (!neighborsForVertex.containsKey(vertex)) {
-                continue;
-            }
-            Subgraph subgraph = computeConnectedSubgraph(neighborsForVertex, vertex, subgraphs);
-            if (subgraph != null) {
-                for (Iterator<Vertex> vIter = subgraph.streetIterator(); vIter.hasNext(); ) {
-                    Vertex subnode = vIter.next();
-                    newgraphs.put(subnode, subgraph);
-                }
-                if (islands != null) {
-                    islands.add(subgraph);
-                }
-                count++;
-            }
-        }
-        return count;
+        stats.put("modified", count);
+        return stats;
     }
 
     private static void restrictOrRemove(
             Graph graph,
             Subgraph island,
-            Map<Edge, Boolean> isolated,
+            Set<Edge> isolated,
             Map<String, Integer> stats,
             boolean markIsolated,
             TraverseMode traverseMode,
@@ -375,12 +272,12 @@ public class PruneNoThruIslands implements GraphBuilderModule {
             for (Edge e : outgoing) {
                 if (e instanceof StreetEdge) {
                     if (markIsolated) {
-                        isolated.put(e, true);
+                        isolated.add(e);
                         stats.put("isolated", stats.get("isolated") + 1);
                     }
                     else {
                         StreetEdge pse = (StreetEdge) e;
-                        if (!isolated.containsKey(e)) {
+                        if (!isolated.contains(e)) {
                             // not a true island edge but has limited access
                             // so convert to noThruTraffic
                             if (traverseMode == TraverseMode.CAR) {
@@ -441,40 +338,9 @@ public class PruneNoThruIslands implements GraphBuilderModule {
                     }
                 }
                 issueStore.add(new PrunedIslandStop(v));
+                stats.put("unlinked", stats.get("unlinked") + 1);
             }
         }
         issueStore.add(new GraphIsland(island.getRepresentativeVertex(), island.streetSize()));
     }
-
-    private static Subgraph computeConnectedSubgraph(
-            Map<Vertex, ArrayList<Vertex>> neighborsForVertex,
-            Vertex startVertex,
-            Map<Vertex, Subgraph> anchors
-    ) {
-        Subgraph subgraph = new Subgraph();
-        Queue<Vertex> q = new LinkedList<Vertex>();
-        Subgraph anchor = null;
-
-        if (anchors != null) {
-            // anchor subgraph expansion to this subgraph
-            anchor = anchors.get(startVertex);
-        }
-        q.add(startVertex);
-        while (!q.isEmpty()) {
-            Vertex vertex = q.poll();
-            for (Vertex neighbor : neighborsForVertex.get(vertex)) {
-                if (!subgraph.contains(neighbor)) {
-                    if (anchor != null) {
-                        Subgraph compare = anchors.get(neighbor);
-                        if (compare != null && compare != anchor) { // do not enter a new island
-                            continue;
-                        }
-                    }
-                    subgraph.addVertex(neighbor);
-                    q.add(neighbor);
-                }
-            }
-        }
-        return subgraph;
-    }
 }
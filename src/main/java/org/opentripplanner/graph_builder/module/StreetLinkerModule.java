@@ -1,12 +1,15 @@
 package org.opentripplanner.graph_builder.module;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.graph_builder.issues.ParkAndRideEntranceRemoved;
 import org.opentripplanner.graph_builder.linking.LinkingDirection;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.model.StopLocation;
 import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.core.TraverseModeSet;
 import org.opentripplanner.routing.edgetype.StreetTransitStopLink;
@@ -20,7 +23,6 @@ import org.opentripplanner.routing.vertextype.TransitEntranceVertex;
 import org.opentripplanner.routing.vertextype.TransitStopVertex;
 import org.opentripplanner.routing.vertextype.VehicleParkingEntranceVertex;
 import org.opentripplanner.util.OTPFeature;
-import org.opentripplanner.util.ProgressTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,11 +72,8 @@ public class StreetLinkerModule implements GraphBuilderModule {
 
   public void linkTransitStops(Graph graph) {
     List<TransitStopVertex> vertices = graph.getVerticesOfType(TransitStopVertex.class);
-    var progress = ProgressTracker.track("Linking transit stops to graph", 5000, vertices.size());
-    LOG.info(progress.startMessage());
-
+    List<TransitStopVertex> stopsToLink = new ArrayList<>();
     for (TransitStopVertex tStop : vertices) {
-
       // Stops with pathways do not need to be connected to the street network, since there are explicit entraces defined for that
       if (tStop.hasPathways()) {
         continue;
@@ -83,44 +82,44 @@ public class StreetLinkerModule implements GraphBuilderModule {
       if (tStop.getDegreeOut() + tStop.getDegreeIn() > 0) {
         continue;
       }
-      TraverseModeSet modes = new TraverseModeSet(TraverseMode.WALK);
-
-      if (OTPFeature.FlexRouting.isOn()) {
-        // If regular stops are used for flex trips, they also need to be connected to car routable
-        // street edges.
-        if (graph.getAllFlexStopsFlat().contains(tStop.getStop())) {
-          modes = new TraverseModeSet(TraverseMode.WALK, TraverseMode.CAR);
-        }
-      }
-
-      graph.getLinker().linkVertexPermanently(
-          tStop,
-          modes,
-          LinkingDirection.BOTH_WAYS,
-          (vertex, streetVertex) -> List.of(
-              new StreetTransitStopLink((TransitStopVertex) vertex, streetVertex),
-              new StreetTransitStopLink(streetVertex, (TransitStopVertex) vertex)
-          )
-      );
-      //noinspection Convert2MethodRef
-      progress.step(m -> LOG.info(m));
+      stopsToLink.add(tStop);
     }
-    LOG.info(progress.completeMessage());
+
+    // If regular stops are used for flex trips, they also need to be connected to car routable
+    // street edges.
+    Set<StopLocation> flexStops = OTPFeature.FlexRouting.isOn()
+        ? graph.getAllFlexStopsFlat()
+        : Set.of();
+
+    LOG.info("Linking {} transit stops to graph...", stopsToLink.size());
+    long start = System.currentTimeMillis();
+
+    // The stops are linked in one batch, which is much faster than one at a time
+    graph.getLinker().linkVerticesPermanently(
+        stopsToLink,
+        vertex -> flexStops.contains(((TransitStopVertex) vertex).getStop())
+            ? new TraverseModeSet(TraverseMode.WALK, TraverseMode.CAR)
+            : new TraverseModeSet(TraverseMode.WALK),
+        LinkingDirection.BOTH_WAYS,
+        (vertex, streetVertex) -> List.of(
+            new StreetTransitStopLink((TransitStopVertex) vertex, streetVertex),
+            new StreetTransitStopLink(streetVertex, (TransitStopVertex) vertex)
+        )
+    );
+    LOG.info("Linked transit stops in {} s.", (System.currentTimeMillis() - start) / 1000);
   }
 
   private void linkTransitEntrances(Graph graph) {
     LOG.info("Linking transit entrances to graph...");
-    for (TransitEntranceVertex tEntrance : graph.getVerticesOfType(TransitEntranceVertex.class)) {
-      graph.getLinker().linkVertexPermanently(
-          tEntrance,
-          new TraverseModeSet(TraverseMode.WALK),
-          LinkingDirection.BOTH_WAYS,
-          (vertex, streetVertex) -> List.of(
-              new StreetTransitEntranceLink((TransitEntranceVertex) vertex, streetVertex),
-              new StreetTransitEntranceLink(streetVertex, (TransitEntranceVertex) vertex)
-          )
-      );
-    }
+    graph.getLinker().linkVerticesPermanently(
+        graph.getVerticesOfType(TransitEntranceVertex.class),
+        vertex -> new TraverseModeSet(TraverseMode.WALK),
+        LinkingDirection.BOTH_WAYS,
+        (vertex, streetVertex) -> List.of(
+            new StreetTransitEntranceLink((TransitEntranceVertex) vertex, streetVertex),
+            new StreetTransitEntranceLink(streetVertex, (TransitEntranceVertex) vertex)
+        )
+    );
   }
 
   private void linkVehicleParks(Graph graph, DataImportIssueStore issueStore) {
@@ -0,0 +1,247 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.PackedCoordinateSequence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A file of pre-calculated elevation profiles, keyed by a stable hash of the street edge geometry.
+ * <p>
+ * The file is memory-mapped and the profiles are looked up by binary search in a sorted key
+ * index, so nothing needs to be loaded before the first edge is processed, and only the profiles
+ * of the edges actually looked up are decoded. Lookups are thread-safe.
+ * <p>
+ * File layout, all values in big-endian byte order:
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    number of profiles (n)
+ *   long   key[n]           - sorted, without duplicates
+ *   int    offset[n + 1]    - offset of each profile, relative to the start of the profile data
+ *   double profile data     - the (distance, elevation) pairs of each profile
+ * </pre>
+ * Since the geometry is the only key, a changed street network only invalidates the profiles of
+ * the edges with a changed geometry - all other edges are still found in the cache.
+ */
+class ElevationCache {
+
+    private static final int MAGIC = 0x4f545045; // "OTPE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    /** Coordinates are rounded to 1e-7 degrees (about 1 cm) before hashing. */
+    private static final double COORDINATE_PRECISION = 1e7;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int offsetsStart;
+    private final int dataStart;
+
+    private ElevationCache(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+        this.offsetsStart = HEADER_SIZE + size * Long.BYTES;
+        this.dataStart = offsetsStart + (size + 1) * Integer.BYTES;
+    }
+
+    /**
+     * Map the given cache file into memory.
+     *
+     * @throws IOException if the file can not be read or is not an elevation cache.
+     */
+    static ElevationCache open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid elevation cache file size: " + length);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an elevation cache file: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported elevation cache version: " + version);
+            }
+            int size = buffer.getInt(8);
+            if (size < 0 || indexSize(size) > length) {
+                throw new IOException("Elevation cache file is truncated or corrupt: " + file);
+            }
+            ElevationCache cache = new ElevationCache(buffer, size);
+            if (cache.dataStart + (long) cache.offset(size) != length) {
+                throw new IOException("Elevation cache file is truncated or corrupt: " + file);
+            }
+            return cache;
+        }
+    }
+
+    /** The size of the header, keys and offsets of a cache with the given number of profiles. */
+    private static long indexSize(int size) {
+        return HEADER_SIZE + (long) size * (Long.BYTES + Integer.BYTES) + Integer.BYTES;
+    }
+
+    /** The number of profiles in the cache. */
+    int size() {
+        return size;
+    }
+
+    /** @return the cached elevation profile for the given geometry, or {@code null}. */
+    PackedCoordinateSequence get(Geometry geometry) {
+        int index = indexOf(key(geometry));
+        if (index < 0) { return null; }
+
+        int start = dataStart + offset(index);
+        int end = dataStart + offset(index + 1);
+        double[] coords = new double[(end - start) / Double.BYTES];
+        for (int i = 0; i < coords.length; ++i) {
+            coords[i] = buffer.getDouble(start + i * Double.BYTES);
+        }
+        return new PackedCoordinateSequence.Double(coords, 2);
+    }
+
+    private int indexOf(long key) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midKey = buffer.getLong(HEADER_SIZE + mid * Long.BYTES);
+            if (midKey < key) { lo = mid + 1; }
+            else if (midKey > key) { hi = mid - 1; }
+            else { return mid; }
+        }
+        return -1;
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(offsetsStart + index * Integer.BYTES);
+    }
+
+    /**
+     * A stable 64-bit hash of the coordinates of the geometry. Unlike {@link Object#hashCode()}
+     * this does not change between JVM runs.
+     */
+    static long key(Geometry geometry) {
+        long hash = 0;
+        if (geometry instanceof LineString) {
+            CoordinateSequence coordinates = ((LineString) geometry).getCoordinateSequence();
+            for (int i = 0; i < coordinates.size(); ++i) {
+                hash = mix(hash, coordinates.getX(i));
+                hash = mix(hash, coordinates.getY(i));
+            }
+        }
+        else {
+            for (Coordinate c : geometry.getCoordinates()) {
+                hash = mix(hash, c.x);
+                hash = mix(hash, c.y);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, double value) {
+        hash = (hash ^ Math.round(value * COORDINATE_PRECISION)) * 0x9e3779b97f4a7c15L;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Collect elevation profiles and write them to a new cache file. Adding the same geometry more
+     * than once keeps the first profile.
+     */
+    static class Writer {
+
+        private long[] keys = new long[1024];
+        private final List<PackedCoordinateSequence> profiles = new ArrayList<>();
+
+        void add(Geometry geometry, PackedCoordinateSequence profile) {
+            int i = profiles.size();
+            if (i == keys.length) {
+                keys = Arrays.copyOf(keys, i + (i >> 1));
+            }
+            keys[i] = key(geometry);
+            profiles.add(profile);
+        }
+
+        /**
+         * Write the cache file. The file is first written to a temporary file next to the target,
+         * which then replaces the target - so a failed write does not destroy an existing cache.
+         */
+        void write(File file) throws IOException {
+            int[] order = sortedDistinctKeys();
+
+            long dataSize = 0;
+            for (int i : order) {
+                dataSize += (long) profiles.get(i).size() * 2 * Double.BYTES;
+            }
+            long fileSize = indexSize(order.length) + dataSize;
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Too much data for an elevation cache file: " + fileSize);
+            }
+
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(order.length);
+                for (int i : order) {
+                    out.writeLong(keys[i]);
+                }
+                int offset = 0;
+                out.writeInt(offset);
+                for (int i : order) {
+                    offset += profiles.get(i).size() * 2 * Double.BYTES;
+                    out.writeInt(offset);
+                }
+                for (int i : order) {
+                    PackedCoordinateSequence profile = profiles.get(i);
+                    for (int j = 0; j < profile.size(); ++j) {
+                        out.writeDouble(profile.getX(j));
+                        out.writeDouble(profile.getY(j));
+                    }
+                }
+            }
+            catch (IOException e) {
+                Files.deleteIfExists(tmp.toPath());
+                throw e;
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * @return the profile indexes sorted by key, keeping only the first profile added for each
+         *         key.
+         */
+        private int[] sortedDistinctKeys() {
+            int[] sorted = IntStream.range(0, profiles.size())
+                    .boxed()
+                    .sorted(Comparator.comparingLong(i -> keys[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            int n = 0;
+            for (int i = 0; i < sorted.length; ++i) {
+                if (n == 0 || keys[sorted[i]] != keys[sorted[n - 1]]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import org.geotools.coverage.GridSampleDimension;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.util.ElevationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+/**
+ * A regular grid of values in WGS84 (longitude, latitude), with bilinear interpolation between the
+ * cell centers. The values are kept in a single float array, so sampling is a pure array
+ * computation which can be done from any number of threads without locking - unlike the GeoTools
+ * {@link org.geotools.coverage.grid.Interpolator2D}, which needs one instance per thread.
+ * <p>
+ * Missing values are stored as NaN, and any sample depending on a missing value is NaN.
+ */
+class ElevationGrid {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ElevationGrid.class);
+
+    /**
+     * The largest grid decoded into memory, 250 million cells take 1 GB. A larger elevation model
+     * is sampled through the coverage interpolator instead.
+     */
+    static final long MAX_CELLS = 250_000_000L;
+
+    /** The number of cells read outside the window, so interpolation at its border is exact. */
+    private static final int MARGIN_CELLS = 2;
+
+    private final float[] values;
+    private final int width;
+    private final int height;
+
+    /** The coordinate of the center of the first cell, and the size of a cell. */
+    private final double x0;
+    private final double y0;
+    private final double dx;
+    private final double dy;
+
+    ElevationGrid(float[] values, int width, int height, double x0, double y0, double dx, double dy) {
+        if (values.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " values.");
+        }
+        this.values = values;
+        this.width = width;
+        this.height = height;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Decode the first band of the given coverage into a grid. Only the part of the coverage
+     * covering the given window, plus a margin of a few cells, is read. This is only possible for
+     * coverages in (longitude, latitude) WGS84 with a grid that is not rotated.
+     *
+     * @param window the area where the grid is sampled, usually the extent of the street graph
+     * @param maxCells the maximum number of cells to decode, see {@link #MAX_CELLS}
+     * @return the grid, or {@code null} if the coverage can not be represented as a grid, does not
+     *         overlap the window, or the grid would be larger than {@code maxCells}.
+     */
+    static ElevationGrid fromCoverage(GridCoverage2D coverage, Envelope window, long maxCells) {
+        if (!CRS.equalsIgnoreMetadata(coverage.getCoordinateReferenceSystem2D(), GeometryUtils.WGS84_XY)) {
+            return null;
+        }
+        MathTransform2D gridToCrs = coverage.getGridGeometry().getGridToCRS2D(PixelOrientation.CENTER);
+        if (!(gridToCrs instanceof AffineTransform)) { return null; }
+        AffineTransform transform = (AffineTransform) gridToCrs;
+        if (transform.getShearX() != 0 || transform.getShearY() != 0) { return null; }
+
+        RenderedImage image = coverage.getRenderedImage();
+        Rectangle bounds = pixelWindow(transform, image, window);
+        if (bounds.isEmpty()) { return null; }
+        if ((long) bounds.width * bounds.height > maxCells) {
+            LOG.warn(
+                "The elevation model covering the graph is {}x{} cells, more than the maximum of {} "
+                    + "cells decoded into memory.",
+                bounds.width, bounds.height, maxCells
+            );
+            return null;
+        }
+        int width = bounds.width;
+        int height = bounds.height;
+
+        // Only the tiles overlapping the window are requested from the image
+        int minTileX = Math.floorDiv(bounds.x - image.getTileGridXOffset(), image.getTileWidth());
+        int maxTileX = Math.floorDiv(bounds.x + width - 1 - image.getTileGridXOffset(), image.getTileWidth());
+        int minTileY = Math.floorDiv(bounds.y - image.getTileGridYOffset(), image.getTileHeight());
+        int maxTileY = Math.floorDiv(bounds.y + height - 1 - image.getTileGridYOffset(), image.getTileHeight());
+
+        float[] values = new float[width * height];
+        for (int ty = minTileY; ty <= maxTileY; ++ty) {
+            for (int tx = minTileX; tx <= maxTileX; ++tx) {
+                Raster tile = image.getTile(tx, ty);
+                Rectangle r = tile.getBounds().intersection(bounds);
+                if (r.isEmpty()) { continue; }
+                float[] row = new float[r.width];
+                for (int y = r.y; y < r.y + r.height; ++y) {
+                    tile.getSamples(r.x, y, r.width, 1, 0, row);
+                    System.arraycopy(row, 0, values, (y - bounds.y) * width + r.x - bounds.x, r.width);
+                }
+            }
+        }
+
+        GridSampleDimension band = coverage.getSampleDimension(0);
+        double[] noDataValues = band.getNoDataValues();
+        if (noDataValues != null) {
+            for (int i = 0; i < values.length; ++i) {
+                for (double noData : noDataValues) {
+                    if (values[i] == (float) noData) { values[i] = Float.NaN; }
+                }
+            }
+        }
+
+        return new ElevationGrid(
+                values,
+                width,
+                height,
+                transform.getTranslateX() + transform.getScaleX() * bounds.x,
+                transform.getTranslateY() + transform.getScaleY() * bounds.y,
+                transform.getScaleX(),
+                transform.getScaleY()
+        );
+    }
+
+    /**
+     * The pixels of the image covering the window, with a margin. The computation is done in
+     * doubles and clipped to the image before converting to int, so a window much larger than
+     * the image does not overflow.
+     */
+    private static Rectangle pixelWindow(AffineTransform transform, RenderedImage image, Envelope window) {
+        if (window.isNull()) { return new Rectangle(); }
+        double c1 = (window.getMinX() - transform.getTranslateX()) / transform.getScaleX();
+        double c2 = (window.getMaxX() - transform.getTranslateX()) / transform.getScaleX();
+        double r1 = (window.getMinY() - transform.getTranslateY()) / transform.getScaleY();
+        double r2 = (window.getMaxY() - transform.getTranslateY()) / transform.getScaleY();
+
+        double minX = Math.max(image.getMinX(), Math.floor(Math.min(c1, c2)) - MARGIN_CELLS);
+        double maxX = Math.min(image.getMinX() + image.getWidth() - 1, Math.ceil(Math.max(c1, c2)) + MARGIN_CELLS);
+        double minY = Math.max(image.getMinY(), Math.floor(Math.min(r1, r2)) - MARGIN_CELLS);
+        double maxY = Math.min(image.getMinY() + image.getHeight() - 1, Math.ceil(Math.max(r1, r2)) + MARGIN_CELLS);
+
+        if (maxX < minX || maxY < minY) { return new Rectangle(); }
+        return new Rectangle((int) minX, (int) minY, (int) (maxX - minX) + 1, (int) (maxY - minY) + 1);
+    }
+
+    /**
+     * Compute the difference between the ellipsoid and the geoid at regular intervals covering
+     * the given envelope. The geoid model is smooth, so interpolating in a grid with a resolution
+     * of a few kilometers gives the same result as computing the difference at every point, at a
+     * fraction of the cost.
+     *
+     * @param resolution the distance between the grid points in degrees
+     */
+    static ElevationGrid ellipsoidToGeoidDifference(Envelope envelope, double resolution)
+            throws TransformException {
+        double x0 = Math.floor(envelope.getMinX() / resolution) * resolution;
+        double y0 = Math.floor(envelope.getMinY() / resolution) * resolution;
+        int width = (int) Math.ceil((envelope.getMaxX() - x0) / resolution) + 1;
+        int height = (int) Math.ceil((envelope.getMaxY() - y0) / resolution) + 1;
+
+        float[] values = new float[width * height];
+        for (int row = 0; row < height; ++row) {
+            for (int col = 0; col < width; ++col) {
+                values[row * width + col] = (float) ElevationUtils.computeEllipsoidToGeoidDifference(
+                        y0 + row * resolution,
+                        x0 + col * resolution
+                );
+            }
+        }
+        return new ElevationGrid(values, width, height, x0, y0, resolution, resolution);
+    }
+
+    int width() { return width; }
+
+    int height() { return height; }
+
+    /**
+     * @return the interpolated value at the given coordinate, or NaN if the coordinate is outside
+     *         the grid or close to a missing value.
+     */
+    double sample(double x, double y) {
+        double col = (x - x0) / dx;
+        double row = (y - y0) / dy;
+        // The outer half of the border cells is covered by the grid, using the value of the border cell
+        if (!(col >= -0.5 && row >= -0.5 && col <= width - 0.5 && row <= height - 0.5)) {
+            return Double.NaN;
+        }
+        col = Math.max(0, Math.min(col, width - 1));
+        row = Math.max(0, Math.min(row, height - 1));
+
+        int c0 = (int) col;
+        int r0 = (int) row;
+        int c1 = Math.min(c0 + 1, width - 1);
+        int r1 = Math.min(r0 + 1, height - 1);
+        double fc = col - c0;
+        double fr = row - r0;
+
+        double top = interpolate(values[r0 * width + c0], values[r0 * width + c1], fc);
+        if (fr == 0) { return top; }
+        double bottom = interpolate(values[r1 * width + c0], values[r1 * width + c1], fc);
+        return interpolate(top, bottom, fr);
+    }
+
+    /** Linear interpolation, where a value with zero weight does not contribute even if it is NaN. */
+    private static double interpolate(double a, double b, double f) {
+        return f == 0 ? a : a * (1 - f) + b * f;
+    }
+}
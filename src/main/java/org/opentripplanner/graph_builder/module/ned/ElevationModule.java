@@ -3,7 +3,9 @@ package org.opentripplanner.graph_builder.module.ned;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
+import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.geometry.DirectPosition2D;
+import org.locationtech.jts.geom.Envelope;
 import org.opengis.coverage.Coverage;
 import org.opengis.coverage.PointOutsideCoverageException;
 import org.opengis.referencing.operation.TransformException;
@@ -23,18 +25,12 @@ import org.opentripplanner.routing.edgetype.StreetWithElevationEdge;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Vertex;
-import org.opentripplanner.util.PolylineEncoder;
 import org.opentripplanner.util.ProgressTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -67,6 +63,12 @@ public class ElevationModule implements GraphBuilderModule {
      */
     private static final Logger ELEVATION_EDGE_ERROR_LOG = throttle(LOG);
 
+    /**
+     * The distance in degrees between the points where the ellipsoid to geoid difference is computed. The geoid model
+     * varies slowly, so interpolating between points about 5 km apart gives practically the same result.
+     */
+    private static final double GEOID_DIFFERENCE_GRID_RESOLUTION = 0.05;
+
 
     /** The elevation data to be used in calculating elevations. */
     private final ElevationGridCoverageFactory gridCoverageFactory;
@@ -87,12 +89,12 @@ public class ElevationModule implements GraphBuilderModule {
     private DataImportIssueStore issueStore;
 
     /**
-     * A map of PackedCoordinateSequence values identified by Strings of encoded polylines.
+     * Elevation profiles from a previous build, identified by the edge geometry.
      *
-     * Note: Since this map has a key of only the encoded polylines, it is assumed that all other inputs are the same as
+     * Note: Since the cache is keyed on the geometry only, it is assumed that all other inputs are the same as
      * those that occurred in the graph build that produced this data.
      */
-    private HashMap<String, PackedCoordinateSequence> cachedElevations;
+    private ElevationCache cachedElevations;
 
     // Keep track of the proportion of elevation fetch operations that fail so we can issue warnings. AtomicInteger is
     // used to provide thread-safe updating capabilities.
@@ -117,6 +119,15 @@ public class ElevationModule implements GraphBuilderModule {
     /** A concurrent hashmap used for storing geoid difference values at various coordinates */
     private final ConcurrentHashMap<Integer, Double> geoidDifferenceCache = new ConcurrentHashMap<>();
 
+    /**
+     * The elevation model decoded into a grid shared by all threads, or null if the elevation model can not be
+     * represented as a grid. In that case the thread-specific coverage interpolators are used.
+     */
+    private ElevationGrid elevationGrid;
+
+    /** The geoid difference precomputed for the graph extent, used instead of the cache above when set. */
+    private ElevationGrid geoidDifferenceGrid;
+
     /** Used only when the ElevationModule is requested to be ran with a single thread */
     private Coverage singleThreadedCoverageInterpolator;
 
@@ -179,14 +190,15 @@ public class ElevationModule implements GraphBuilderModule {
 
         graph.setDistanceBetweenElevationSamples(this.distanceBetweenSamplesM);
 
+        prepareElevationGrids(graph);
+
         // try to load in the cached elevation data
         if (readCachedElevations) {
-            // try to load in the cached elevation data
+            // map the cache file, profiles are read on demand while processing the edges
             try {
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(cachedElevationsFile));
-                cachedElevations = (HashMap<String, PackedCoordinateSequence>) in.readObject();
-                LOG.info("Cached elevation data loaded into memory!");
-            } catch (IOException | ClassNotFoundException e) {
+                cachedElevations = ElevationCache.open(cachedElevationsFile);
+                LOG.info("Cached elevation data found for {} edges.", cachedElevations.size());
+            } catch (IOException e) {
                 issueStore.add(new Graphwide(
                     String.format("Cached elevations file could not be read in due to error: %s!", e.getMessage())));
             }
@@ -255,17 +267,16 @@ public class ElevationModule implements GraphBuilderModule {
         }
 
         if (writeCachedElevations) {
-            // write information from edgesWithElevation to a new cache file for subsequent graph builds
-            HashMap<String, PackedCoordinateSequence> newCachedElevations = new HashMap<>();
+            // write information from edgesWithElevation to a new cache file for subsequent graph builds. This
+            // includes the edges found in the old cache, so profiles of unchanged streets are kept.
+            ElevationCache.Writer newCachedElevations = new ElevationCache.Writer();
             for (StreetEdge streetEdge : edgesWithCalculatedElevations) {
-                newCachedElevations.put(PolylineEncoder.createEncodings(streetEdge.getGeometry()).getPoints(),
-                    streetEdge.getElevationProfile());
+                newCachedElevations.add(streetEdge.getGeometry(), streetEdge.getElevationProfile());
             }
+            // release the mapped file before it is replaced
+            cachedElevations = null;
             try {
-                ObjectOutputStream out = new ObjectOutputStream(
-                    new BufferedOutputStream(new FileOutputStream(cachedElevationsFile)));
-                out.writeObject(newCachedElevations);
-                out.close();
+                newCachedElevations.write(cachedElevationsFile);
             } catch (IOException e) {
                 LOG.error(e.getMessage());
                 issueStore.add(new Graphwide("Failed to write cached elevation file!"));
@@ -276,6 +287,38 @@ public class ElevationModule implements GraphBuilderModule {
         assignMissingElevations(graph, edgesWithCalculatedElevations, extraElevation);
     }
 
+    /**
+     * Decode the part of the elevation model covering the graph extent into a grid and precompute the geoid
+     * difference for the graph extent, if possible. This makes the elevation lookup a pure array computation shared
+     * by all threads.
+     */
+    private void prepareElevationGrids(Graph graph) {
+        Envelope extent = graph.getExtent();
+        Coverage coverage = gridCoverageFactory.getGridCoverage();
+        if (coverage instanceof GridCoverage2D && !extent.isNull()) {
+            elevationGrid = ElevationGrid.fromCoverage((GridCoverage2D) coverage, extent, ElevationGrid.MAX_CELLS);
+        }
+        if (elevationGrid != null) {
+            LOG.info(
+                "Elevation model decoded into a {}x{} grid.", elevationGrid.width(), elevationGrid.height()
+            );
+        } else {
+            LOG.info("Elevation model can not be decoded into a grid, using the coverage interpolator.");
+        }
+
+        if (includeEllipsoidToGeoidDifference) {
+            if (!extent.isNull()) {
+                try {
+                    geoidDifferenceGrid = ElevationGrid.ellipsoidToGeoidDifference(
+                        extent, GEOID_DIFFERENCE_GRID_RESOLUTION
+                    );
+                } catch (TransformException e) {
+                    LOG.warn("Failed to precompute the ellipsoid to geoid difference: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
     static class ElevationRepairState {
         /* This uses an intuitionist approach to elevation inspection */
         public StreetEdge backEdge;
@@ -536,9 +579,7 @@ public class ElevationModule implements GraphBuilderModule {
         // first try to find a cached value if possible
         Geometry edgeGeometry = ee.getGeometry();
         if (cachedElevations != null) {
-            PackedCoordinateSequence coordinateSequence = cachedElevations.get(
-                PolylineEncoder.createEncodings(edgeGeometry).getPoints()
-            );
+            PackedCoordinateSequence coordinateSequence = cachedElevations.get(edgeGeometry);
             if (coordinateSequence != null) {
                 // found a cached value! Set the elevation profile with the pre-calculated data.
                 setEdgeElevationProfile(ee, coordinateSequence, graph);
@@ -547,8 +588,8 @@ public class ElevationModule implements GraphBuilderModule {
         }
 
         // Needs full calculation. Calculate with a thread-specific coverage instance to avoid waiting for any locks on
-        // coverage instances in other threads.
-        Coverage coverage = getThreadSpecificCoverageInterpolator();
+        // coverage instances in other threads. The coverage is not needed if the elevation grid is available.
+        Coverage coverage = elevationGrid == null ? getThreadSpecificCoverageInterpolator() : null;
 
         // did not find a cached value, calculate
         // If any of the coordinates throw an error when trying to lookup their value, immediately bail and do not
@@ -709,6 +750,16 @@ public class ElevationModule implements GraphBuilderModule {
      * @return elevation in meters
      */
     private double getElevation(Coverage coverage, double x, double y) throws PointOutsideCoverageException, TransformException {
+        if (elevationGrid != null) {
+            double elevation = elevationGrid.sample(x, y);
+            if (Double.isNaN(elevation)) {
+                nPointsOutsideDEM.incrementAndGet();
+                throw new PointOutsideCoverageException("No elevation data at: " + x + ", " + y);
+            }
+            nPointsEvaluated.incrementAndGet();
+            return (elevation * elevationUnitMultiplier) -
+                (includeEllipsoidToGeoidDifference ? getApproximateEllipsoidToGeoidDifference(y, x) : 0);
+        }
         double values[] = new double[1];
         try {
             // We specify a CRS here because otherwise the coordinates are assumed to be in the coverage's native CRS.
@@ -738,6 +789,12 @@ public class ElevationModule implements GraphBuilderModule {
      * @param x longitude
      */
     private double getApproximateEllipsoidToGeoidDifference(double y, double x) throws TransformException {
+        if (geoidDifferenceGrid != null) {
+            double difference = geoidDifferenceGrid.sample(x, y);
+            if (!Double.isNaN(difference)) {
+                return difference;
+            }
+        }
         int geoidDifferenceCoordinateValueMultiplier = 100;
         int xVal = (int) Math.round(x * geoidDifferenceCoordinateValueMultiplier);
         int yVal = (int) Math.round(y * geoidDifferenceCoordinateValueMultiplier);
@@ -0,0 +1,162 @@
+package org.opentripplanner.graph_builder.module.osm;
+
+import org.opentripplanner.openstreetmap.model.OSMNode;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage of OSM nodes without any tags, as three parallel primitive arrays: the node ids,
+ * sorted, and the latitude and longitude of each node. This takes 24 bytes per node, compared to
+ * around 70 bytes for an {@link OSMNode} instance in a hash map. The large majority of the nodes in
+ * OSM are untagged nodes used only for the geometry of ways.
+ * <p>
+ * Nodes are appended while loading, and the arrays are sorted by id (and duplicates removed) the
+ * first time a node is looked up after new nodes are added. PBF files are normally sorted by id,
+ * in which case only a linear check is needed.
+ * <p>
+ * {@link #get(long)} creates a new {@link OSMNode} instance for each call. Callers which depend on
+ * the identity of the node instance should promote the node to a normal object, see
+ * {@link OSMDatabase}.
+ * <p>
+ * This class is not thread-safe.
+ */
+class CompactOsmNodeStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Sort small ranges with insertion sort. */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] lats = new double[INITIAL_CAPACITY];
+    private double[] lons = new double[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /** The number of nodes at the start of the arrays which are sorted and without duplicates. */
+    private int sortedSize = 0;
+
+    void add(long id, double lat, double lon) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+        }
+        ids[size] = id;
+        lats[size] = lat;
+        lons[size] = lon;
+        ++size;
+    }
+
+    boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /** @return a new node instance with the stored id and coordinate, or {@code null}. */
+    OSMNode get(long id) {
+        int index = indexOf(id);
+        if (index < 0) { return null; }
+        OSMNode node = new OSMNode();
+        node.setId(id);
+        node.lat = lats[index];
+        node.lon = lons[index];
+        return node;
+    }
+
+    /** The number of distinct nodes. */
+    int size() {
+        ensureSorted();
+        return size;
+    }
+
+    private int indexOf(long id) {
+        ensureSorted();
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    private void ensureSorted() {
+        if (sortedSize == size) { return; }
+
+        if (!isSorted(sortedSize > 0 ? sortedSize - 1 : 0, size)) {
+            sort(0, size - 1);
+        }
+        removeDuplicates();
+        sortedSize = size;
+    }
+
+    private boolean isSorted(int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            if (ids[i - 1] > ids[i]) { return false; }
+        }
+        return true;
+    }
+
+    /** The same node may be added more than once when reading more than one file. */
+    private void removeDuplicates() {
+        if (size == 0) { return; }
+        int j = 0;
+        for (int i = 1; i < size; ++i) {
+            if (ids[i] != ids[j]) {
+                ++j;
+                move(i, j);
+            }
+        }
+        size = j + 1;
+    }
+
+    /** Quicksort the three arrays by id, using the median of three as pivot. */
+    private void sort(int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[mid] < ids[lo]) { swap(mid, lo); }
+            if (ids[hi] < ids[lo]) { swap(hi, lo); }
+            if (ids[hi] < ids[mid]) { swap(hi, mid); }
+            long pivot = ids[mid];
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (ids[i] < pivot) { ++i; }
+                while (ids[j] > pivot) { --j; }
+                if (i <= j) {
+                    swap(i, j);
+                    ++i;
+                    --j;
+                }
+            }
+            // Recurse into the smaller part, to limit the stack depth
+            if (j - lo < hi - i) {
+                sort(lo, j);
+                lo = i;
+            }
+            else {
+                sort(i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; ++i) {
+            for (int j = i; j > lo && ids[j - 1] > ids[j]; --j) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double lat = lats[a];
+        lats[a] = lats[b];
+        lats[b] = lat;
+        double lon = lons[a];
+        lons[a] = lons[b];
+        lons[b] = lon;
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        lats[to] = lats[from];
+        lons[to] = lons[from];
+    }
+}
@@ -59,9 +59,15 @@ public class OSMDatabase {
 
     private DataImportIssueStore issueStore;
 
-    /* Map of all nodes used in ways/areas keyed by their OSM ID */
+    /* Map of all nodes used in ways/areas keyed by their OSM ID, except the untagged way nodes */
     private TLongObjectMap<OSMNode> nodesById = new TLongObjectHashMap<>();
 
+    /* Untagged nodes only used in ways, these are the large majority of the nodes */
+    private final CompactOsmNodeStore untaggedWayNodes = new CompactOsmNodeStore();
+
+    /* The number of nodes in both nodesById and untaggedWayNodes */
+    private int promotedNodes = 0;
+
     /* Map of all bike parking nodes, keyed by their OSM ID */
     private TLongObjectMap<OSMNode> bikeParkingNodes = new TLongObjectHashMap<>();
 
@@ -136,7 +142,8 @@ public class OSMDatabase {
     }
 
     public OSMNode getNode(Long nodeId) {
-        return nodesById.get(nodeId);
+        OSMNode node = nodesById.get(nodeId);
+        return node != null ? node : untaggedWayNodes.get(nodeId);
     }
 
     public OSMWay getWay(Long nodeId) {
@@ -148,7 +155,7 @@ public class OSMDatabase {
     }
 
     public int nodeCount() {
-        return nodesById.size();
+        return nodesById.size() + untaggedWayNodes.size() - promotedNodes;
     }
 
     public int wayCount() {
@@ -224,6 +231,12 @@ public class OSMDatabase {
             return;
         }
 
+        // Duplicates are removed by the store
+        if (node.getTags() == null && !areaNodeIds.contains(node.getId())) {
+            untaggedWayNodes.add(node.getId(), node.lat, node.lon);
+            return;
+        }
+
         nodesById.put(node.getId(), node);
 
         if (nodesById.size() % 100000 == 0) {
@@ -334,6 +347,18 @@ public class OSMDatabase {
 
         markNodesForKeeping(waysById.valueCollection(), waysNodeIds);
         markNodesForKeeping(areaWaysById.valueCollection(), areaNodeIds);
+
+        // Nodes loaded from a previous file may be used by areas in this file, the area
+        // processing need the node instances.
+        for (TLongIterator it = areaNodeIds.iterator(); it.hasNext(); ) {
+            long nodeId = it.next();
+            if (!nodesById.containsKey(nodeId)) {
+                OSMNode node = untaggedWayNodes.get(nodeId);
+                if (node != null) {
+                    promoteNode(node);
+                }
+            }
+        }
     }
 
     /**
@@ -397,8 +422,8 @@ public class OSMDatabase {
 
             // For each segment of the way
             for (int i = 0; i < way.getNodeRefs().size() - 1; i++) {                
-                OSMNode nA = nodesById.get(way.getNodeRefs().get(i));
-                OSMNode nB = nodesById.get(way.getNodeRefs().get(i + 1));
+                OSMNode nA = getNode(way.getNodeRefs().get(i));
+                OSMNode nB = getNode(way.getNodeRefs().get(i + 1));
                 if (nA == null || nB == null) {
                     continue;
                 }
@@ -556,6 +581,10 @@ public class OSMDatabase {
                      * The line below is O(n^2) but we do not insert often and ring size should be
                      * rather small.
                      */
+                    // The ring is compared by node instance, make sure the same instance is
+                    // returned the next time the node is looked up.
+                    promoteNode(splitNode);
+
                     int j = ringSegment.ring.nodes.indexOf(ringSegment.nB);
                     ringSegment.ring.nodes.add(j, splitNode);
 
@@ -613,6 +642,17 @@ public class OSMDatabase {
         ring.holes.forEach(hole -> processAreaRingForUnconnectedAreas(commonSegments, spndx, area, hole));
     }
 
+    /**
+     * Keep the given node instance, so the same instance is returned by {@link #getNode(Long)} for
+     * all later lookups. Nodes in the compact store are otherwise created on each lookup.
+     */
+    private void promoteNode(OSMNode node) {
+        if (nodesById.putIfAbsent(node.getId(), node) == null
+                && untaggedWayNodes.contains(node.getId())) {
+            ++promotedNodes;
+        }
+    }
+
     /**
      * Create a virtual OSM node, using a negative unique ID.
      * 
@@ -1019,8 +1059,8 @@ public class OSMDatabase {
                 } else {
                     issueStore.add(new TooManyAreasInRelation(relation.getId()));
                 }
-            } else if ("node".equals(member.getType()) && nodesById.containsKey(member.getRef())) {
-                platformsNodes.add(nodesById.get(member.getRef()));
+            } else if ("node".equals(member.getType()) && getNode(member.getRef()) != null) {
+                platformsNodes.add(getNode(member.getRef()));
             }
         }
         if (platformArea != null && !platformsNodes.isEmpty()) {
@@ -2,7 +2,9 @@ package org.opentripplanner.graph_builder.module.osm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.opentripplanner.common.model.P2;
@@ -184,6 +186,25 @@ public class OSMSpecifier {
         return builder.toString();
     }
 
+    /**
+     * @return the (lower case) tag keys used to compute the match scores of this specifier,
+     *         including the :left and :right variants. Tags not in this set do not affect the
+     *         scores.
+     */
+    public Set<String> getTagKeys() {
+        Set<String> keys = new HashSet<>();
+        for (P2<String> pair : logicalANDPairs) {
+            String tag = pair.first.toLowerCase();
+            keys.add(tag);
+            keys.add(tag + ":left");
+            keys.add(tag + ":right");
+        }
+        for (P2<String> pair : logicalORPairs) {
+            keys.add(pair.first.toLowerCase());
+        }
+        return keys;
+    }
+
     public boolean containsLogicalOr() {
         return !logicalORPairs.isEmpty();
     }
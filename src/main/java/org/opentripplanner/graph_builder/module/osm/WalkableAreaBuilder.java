@@ -52,6 +52,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * Theoretically, it is not correct to build the visibility graph on the joined polygon of areas
@@ -255,11 +256,17 @@ public class WalkableAreaBuilder {
 
             OSMWithTags areaEntity = group.getSomeOSMObject();
 
+            // Computing the visibility polygons is by far the most expensive part, and it does not
+            // touch the graph. Compute them in parallel, and then create the edges sequentially.
+            Polygon[] visibilityPolygons = IntStream.range(0, visibilityNodes.size())
+                    .parallel()
+                    .mapToObj(i -> toJTSPolygon(new VisibilityPolygon(
+                            visibilityPoints.get(i), areaEnv, VISIBILITY_EPSILON)))
+                    .toArray(Polygon[]::new);
+
             for (int i = 0; i < visibilityNodes.size(); ++i) {
                 OSMNode nodeI = visibilityNodes.get(i);
-                VisibilityPolygon visibilityPolygon = new VisibilityPolygon(
-                        visibilityPoints.get(i), areaEnv, VISIBILITY_EPSILON);
-                Polygon poly = toJTSPolygon(visibilityPolygon);
+                Polygon poly = visibilityPolygons[i];
                 for (int j = 0; j < visibilityNodes.size(); ++j) {
                     OSMNode nodeJ = visibilityNodes.get(j);
                     P2<OSMNode> nodePair = new P2<OSMNode>(nodeI, nodeJ);
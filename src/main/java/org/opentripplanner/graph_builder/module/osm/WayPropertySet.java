@@ -12,11 +12,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,6 +53,19 @@ public class WayPropertySet {
     /** The WayProperties applied to all ways that do not match any WayPropertyPicker. */
     public WayProperties defaultProperties;
 
+    /**
+     * The sorted tag keys used by the way property pickers, {@code null} if not computed. Only
+     * these tags affect the result of {@link #getDataForWay(OSMWithTags)}.
+     */
+    private String[] wayPropertyTagKeys = null;
+
+    /**
+     * Memoized results of {@link #getDataForWay(OSMWithTags)}, keyed by the values of the
+     * {@link #wayPropertyTagKeys} of the way. Most ways share their combination of these tags with
+     * many other ways.
+     */
+    private final Map<List<String>, WayProperties> dataForWayCache = new ConcurrentHashMap<>();
+
     public WayPropertySet() {
         /* sensible defaults */
         defaultProperties = new WayProperties();
@@ -72,6 +87,28 @@ public class WayPropertySet {
      * will have their safety values applied if they match at all.
      */
     public WayProperties getDataForWay(OSMWithTags way) {
+        String[] keys = wayPropertyTagKeys;
+        if (keys == null) {
+            keys = wayProperties.stream()
+                    .flatMap(it -> it.getSpecifier().getTagKeys().stream())
+                    .distinct()
+                    .sorted()
+                    .toArray(String[]::new);
+            wayPropertyTagKeys = keys;
+        }
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            values[i] = way.getTag(keys[i]);
+        }
+        WayProperties result = dataForWayCache.computeIfAbsent(
+                Arrays.asList(values),
+                k -> computeDataForWay(way)
+        );
+        // The returned instance is mutable
+        return result.clone();
+    }
+
+    private WayProperties computeDataForWay(OSMWithTags way) {
         WayProperties leftResult = defaultProperties;
         WayProperties rightResult = defaultProperties;
         int bestLeftScore = 0;
@@ -274,10 +311,17 @@ public class WayPropertySet {
            );
         }
         wayProperties.add(new WayPropertyPicker(spec, properties, mixin));
+        clearDataForWayCache();
     }
 
     public void addProperties(OSMSpecifier spec, WayProperties properties) {
         wayProperties.add(new WayPropertyPicker(spec, properties, false));
+        clearDataForWayCache();
+    }
+
+    private void clearDataForWayCache() {
+        wayPropertyTagKeys = null;
+        dataForWayCache.clear();
     }
 
     public void addCreativeNamer(OSMSpecifier spec, CreativeNamer namer) {
@@ -0,0 +1,303 @@
+package org.opentripplanner.gtfs;
+
+import org.onebusaway.gtfs.model.Stop;
+import org.onebusaway.gtfs.model.StopTime;
+import org.onebusaway.gtfs.model.Trip;
+import org.onebusaway.gtfs.services.GenericMutableDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A fast reader for the {@code stop_times.txt} file of a GTFS feed, used instead of the generic
+ * reflection based onebusaway entity reader. This file is usually by far the largest file in a
+ * feed. The file is read in chunks of lines, the chunks are parsed in parallel, and the stop times
+ * are saved to the store in file order on the calling thread - so the result is the same as
+ * reading the file with the onebusaway reader.
+ * <p>
+ * Only the most common columns are supported, see {@link #SUPPORTED_COLUMNS}. If the file has
+ * other columns, contains values which can not be parsed, or references trips or stops (or flex
+ * locations) not found, nothing is saved and {@link #read(InputStream, GenericMutableDao)}
+ * returns {@code false}. The caller should then read the file with the onebusaway reader, which
+ * supports all columns and reports the errors properly.
+ */
+public class ParallelStopTimeReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelStopTimeReader.class);
+
+    public static final String FILE_NAME = "stop_times.txt";
+
+    private static final String TRIP_ID = "trip_id";
+    private static final String ARRIVAL_TIME = "arrival_time";
+    private static final String DEPARTURE_TIME = "departure_time";
+    private static final String STOP_ID = "stop_id";
+    private static final String STOP_SEQUENCE = "stop_sequence";
+    private static final String STOP_HEADSIGN = "stop_headsign";
+    private static final String PICKUP_TYPE = "pickup_type";
+    private static final String DROP_OFF_TYPE = "drop_off_type";
+    private static final String SHAPE_DIST_TRAVELED = "shape_dist_traveled";
+    private static final String TIMEPOINT = "timepoint";
+
+    private static final Set<String> SUPPORTED_COLUMNS = Set.of(
+            TRIP_ID,
+            ARRIVAL_TIME,
+            DEPARTURE_TIME,
+            STOP_ID,
+            STOP_SEQUENCE,
+            STOP_HEADSIGN,
+            PICKUP_TYPE,
+            DROP_OFF_TYPE,
+            SHAPE_DIST_TRAVELED,
+            TIMEPOINT
+    );
+
+    private static final int CHUNK_SIZE = 20_000;
+
+    /** Limit the number of chunks of lines waiting to be parsed. */
+    private static final int MAX_CHUNKS_IN_FLIGHT = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final Map<String, Trip> tripsById = new HashMap<>();
+    private final Map<String, Stop> stopsById = new HashMap<>();
+
+    /** Deduplicate the headsigns, like the interning of strings in the onebusaway reader. */
+    private final Map<String, String> headsigns = new ConcurrentHashMap<>();
+
+    private Map<String, Integer> columns;
+
+    public ParallelStopTimeReader(Collection<Trip> trips, Collection<Stop> stops) {
+        for (Trip trip : trips) {
+            tripsById.put(trip.getId().getId(), trip);
+        }
+        for (Stop stop : stops) {
+            stopsById.put(stop.getId().getId(), stop);
+        }
+    }
+
+    /**
+     * Read all stop times from the given input and save them in the store.
+     *
+     * @return {@code true} if the stop times are saved, {@code false} if the file is not supported
+     * by this reader and nothing is saved.
+     */
+    public boolean read(InputStream input, GenericMutableDao store) throws IOException {
+        List<List<StopTime>> result = new ArrayList<>();
+        Deque<CompletableFuture<List<StopTime>>> pending = new ArrayDeque<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16)
+        ) {
+            String header = reader.readLine();
+            if (header == null || !parseHeader(header)) {
+                return false;
+            }
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    if (pending.size() >= MAX_CHUNKS_IN_FLIGHT) {
+                        result.add(pending.removeFirst().join());
+                    }
+                    List<String> lines = chunk;
+                    pending.addLast(CompletableFuture.supplyAsync(() -> parse(lines)));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            pending.addLast(CompletableFuture.completedFuture(parse(chunk)));
+            while (!pending.isEmpty()) {
+                result.add(pending.removeFirst().join());
+            }
+        }
+        catch (UnsupportedStopTimesException e) {
+            LOG.info("Reading {} with the default reader: {}", FILE_NAME, e.getMessage());
+            return false;
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof UnsupportedStopTimesException) {
+                LOG.info("Reading {} with the default reader: {}", FILE_NAME, e.getCause().getMessage());
+                return false;
+            }
+            throw e;
+        }
+        finally {
+            pending.forEach(it -> it.cancel(true));
+        }
+
+        int n = 0;
+        for (List<StopTime> stopTimes : result) {
+            for (StopTime stopTime : stopTimes) {
+                store.saveEntity(stopTime);
+            }
+            n += stopTimes.size();
+        }
+        LOG.info("Read {} stop times in parallel.", n);
+        return true;
+    }
+
+    private boolean parseHeader(String line) {
+        // Remove the byte order mark, if present
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1);
+        }
+        String[] names = split(line, Integer.MAX_VALUE);
+        columns = new HashMap<>();
+        for (int i = 0; i < names.length; ++i) {
+            if (!SUPPORTED_COLUMNS.contains(names[i])) {
+                LOG.info("Reading {} with the default reader, column not supported: {}", FILE_NAME, names[i]);
+                return false;
+            }
+            columns.put(names[i], i);
+        }
+        return columns.containsKey(TRIP_ID)
+                && columns.containsKey(STOP_ID)
+                && columns.containsKey(STOP_SEQUENCE);
+    }
+
+    private List<StopTime> parse(List<String> lines) {
+        List<StopTime> result = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (line.isBlank()) { continue; }
+            String[] fields = split(line, columns.size());
+            try {
+                result.add(parse(fields));
+            }
+            catch (NumberFormatException e) {
+                throw new UnsupportedStopTimesException("Invalid number in line: " + line);
+            }
+        }
+        return result;
+    }
+
+    private StopTime parse(String[] fields) {
+        StopTime stopTime = new StopTime();
+        stopTime.setTrip(lookup(tripsById, value(fields, TRIP_ID), "trip"));
+        stopTime.setStop(lookup(stopsById, value(fields, STOP_ID), "stop"));
+        stopTime.setStopSequence(Integer.parseInt(value(fields, STOP_SEQUENCE)));
+
+        // Leave the default value of the entity for empty optional values
+        String value = value(fields, ARRIVAL_TIME);
+        if (!value.isEmpty()) { stopTime.setArrivalTime(parseTime(value)); }
+
+        value = value(fields, DEPARTURE_TIME);
+        if (!value.isEmpty()) { stopTime.setDepartureTime(parseTime(value)); }
+
+        value = value(fields, STOP_HEADSIGN);
+        if (!value.isEmpty()) { stopTime.setStopHeadsign(headsigns.computeIfAbsent(value, it -> it)); }
+
+        value = value(fields, PICKUP_TYPE);
+        if (!value.isEmpty()) { stopTime.setPickupType(Integer.parseInt(value)); }
+
+        value = value(fields, DROP_OFF_TYPE);
+        if (!value.isEmpty()) { stopTime.setDropOffType(Integer.parseInt(value)); }
+
+        value = value(fields, SHAPE_DIST_TRAVELED);
+        if (!value.isEmpty()) { stopTime.setShapeDistTraveled(Double.parseDouble(value)); }
+
+        value = value(fields, TIMEPOINT);
+        if (!value.isEmpty()) { stopTime.setTimepoint(Integer.parseInt(value)); }
+
+        return stopTime;
+    }
+
+    private String value(String[] fields, String column) {
+        Integer index = columns.get(column);
+        return index == null ? "" : fields[index];
+    }
+
+    private static <T> T lookup(Map<String, T> entities, String id, String type) {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new UnsupportedStopTimesException("Unknown " + type + ": " + id);
+        }
+        return entity;
+    }
+
+    /** Parse a time on the format H:MM:SS, the hours may be more than 24. */
+    static int parseTime(String value) {
+        int c1 = value.indexOf(':');
+        int c2 = value.indexOf(':', c1 + 1);
+        if (c1 < 1 || c2 - c1 != 3 || value.length() - c2 != 3) {
+            throw new UnsupportedStopTimesException("Invalid time: " + value);
+        }
+        return Integer.parseInt(value.substring(0, c1)) * 3600
+                + Integer.parseInt(value.substring(c1 + 1, c2)) * 60
+                + Integer.parseInt(value.substring(c2 + 1));
+    }
+
+    /**
+     * Split a CSV line into the given number of trimmed fields. Missing fields are empty, and
+     * fields after the given number are ignored.
+     */
+    static String[] split(String line, int size) {
+        List<String> fields = new ArrayList<>();
+        int len = line.length();
+        int i = 0;
+        while (fields.size() < size) {
+            String value;
+            int end;
+            if (i < len && line.charAt(i) == '"') {
+                StringBuilder buf = new StringBuilder();
+                ++i;
+                while (true) {
+                    if (i >= len) {
+                        throw new UnsupportedStopTimesException("Quoted line break in line: " + line);
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        buf.append(c);
+                    }
+                    else if (i < len && line.charAt(i) == '"') {
+                        buf.append('"');
+                        ++i;
+                    }
+                    else {
+                        break;
+                    }
+                }
+                end = line.indexOf(',', i);
+                if (end < 0) { end = len; }
+                value = buf.toString();
+            }
+            else {
+                end = line.indexOf(',', i);
+                if (end < 0) { end = len; }
+                value = line.substring(i, end);
+            }
+            fields.add(value.trim());
+            if (end >= len) { break; }
+            i = end + 1;
+        }
+        if (size == Integer.MAX_VALUE) {
+            return fields.toArray(new String[0]);
+        }
+        String[] result = new String[size];
+        Arrays.fill(result, "");
+        for (int j = 0; j < fields.size(); ++j) {
+            result[j] = fields.get(j);
+        }
+        return result;
+    }
+
+    private static class UnsupportedStopTimesException extends RuntimeException {
+        UnsupportedStopTimesException(String message) {
+            super(message);
+        }
+    }
+}
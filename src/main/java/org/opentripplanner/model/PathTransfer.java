@@ -1,16 +1,21 @@
 package org.opentripplanner.model;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import org.opentripplanner.model.base.ToStringBuilder;
 import org.opentripplanner.model.transfer.ConstrainedTransfer;
 import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.EdgeTable;
 
 /**
  * Represents a transfer between stops with the street network path attatched to it.
  * <p>
  * Do not confuse this with {@link ConstrainedTransfer}.
+ * <p>
+ * The street path is stored compactly in an {@link EdgeTable} shared by all the transfers of the
+ * graph, and the edges are only decoded when they are needed.
  *
  * <p>
  * TODO these should really have a set of valid modes in case bike vs. walk transfers are different
@@ -26,13 +31,46 @@ public class PathTransfer implements Serializable {
 
     private final double distanceMeters;
 
-    private final List<Edge> edges;
+    /** The street path encoded by the edge table, or null if there is no street path */
+    private final byte[] encodedEdges;
+
+    private final EdgeTable edgeTable;
+
+    /**
+     * The duration and generalized Raptor cost for each transfer request used at graph build, or
+     * null if none are pre-calculated. A negative duration means the transfer was not found by
+     * that request.
+     */
+    private final int[] durationSeconds;
+
+    private final int[] generalizedCosts;
+
+    public PathTransfer(
+            StopLocation from,
+            StopLocation to,
+            double distanceMeters,
+            List<Edge> edges,
+            EdgeTable edgeTable
+    ) {
+        this(from, to, distanceMeters, edges, edgeTable, null, null);
+    }
 
-    public PathTransfer(StopLocation from, StopLocation to, double distanceMeters, List<Edge> edges) {
+    public PathTransfer(
+            StopLocation from,
+            StopLocation to,
+            double distanceMeters,
+            List<Edge> edges,
+            EdgeTable edgeTable,
+            int[] durationSeconds,
+            int[] generalizedCosts
+    ) {
         this.from = from;
         this.to = to;
         this.distanceMeters = distanceMeters;
-        this.edges = edges;
+        this.encodedEdges = edges == null ? null : edgeTable.encode(edges);
+        this.edgeTable = edgeTable;
+        this.durationSeconds = durationSeconds;
+        this.generalizedCosts = generalizedCosts;
     }
 
     public String getName() {
@@ -43,11 +81,34 @@ public class PathTransfer implements Serializable {
         return distanceMeters;
     }
 
-    public List<Edge> getEdges() { return this.edges; }
+    /** Decode the edges of the street path, or return null if there is no street path */
+    public List<Edge> getEdges() {
+        return encodedEdges == null ? null : edgeTable.decode(encodedEdges);
+    }
+
+    /**
+     * The duration pre-calculated for the graph build transfer request with the given index, see
+     * {@link org.opentripplanner.routing.graph.Graph#transferRequestOptions}, or -1 if there is
+     * none.
+     */
+    public int getDurationSeconds(int transferRequestIndex) {
+        if (durationSeconds == null || transferRequestIndex >= durationSeconds.length) {
+            return -1;
+        }
+        return durationSeconds[transferRequestIndex];
+    }
+
+    /**
+     * The generalized Raptor cost pre-calculated for the graph build transfer request with the
+     * given index. Only valid if there is a duration for the same request.
+     */
+    public int getGeneralizedCost(int transferRequestIndex) {
+        return generalizedCosts[transferRequestIndex];
+    }
 
     @Override
     public int hashCode() {
-        return Objects.hash(from, to, distanceMeters, edges);
+        return Objects.hash(from, to, distanceMeters, Arrays.hashCode(encodedEdges));
     }
 
     @Override
@@ -56,7 +117,7 @@ public class PathTransfer implements Serializable {
                 .addObj("from", from)
                 .addObj("to", to)
                 .addNum("distance", distanceMeters)
-                .addColSize("edges", edges)
+                .addColSize("edges", getEdges())
                 .toString();
     }
 }
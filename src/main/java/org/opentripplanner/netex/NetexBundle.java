@@ -2,8 +2,11 @@ package org.opentripplanner.netex;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.xml.bind.JAXBException;
 import org.opentripplanner.datastore.CompositeDataSource;
 import org.opentripplanner.datastore.DataSource;
@@ -12,7 +15,7 @@ import org.opentripplanner.model.impl.OtpTransitServiceBuilder;
 import org.opentripplanner.netex.index.NetexEntityIndex;
 import org.opentripplanner.netex.loader.GroupEntries;
 import org.opentripplanner.netex.loader.NetexDataSourceHierarchy;
-import org.opentripplanner.netex.loader.NetexXmlParser;
+import org.opentripplanner.netex.loader.ParallelNetexXmlParser;
 import org.opentripplanner.netex.loader.parser.NetexDocumentParser;
 import org.opentripplanner.netex.mapping.NetexMapper;
 import org.opentripplanner.netex.validation.Validator;
@@ -51,20 +54,28 @@ public class NetexBundle implements Closeable {
     /** maps the NeTEx XML document to OTP transit model. */
     private NetexMapper mapper;
 
-    private NetexXmlParser xmlParser;
+    private ParallelNetexXmlParser xmlParser;
 
     private final Set<String> ferryIdsNotAllowedForBicycle;
 
+    /**
+     * The number of documents parsed ahead of the mapping, each parsed document is held in memory
+     * until it is added to the index.
+     */
+    private final int parseAheadDocuments;
+
     public NetexBundle(
             String netexFeedId,
             CompositeDataSource source,
             NetexDataSourceHierarchy hierarchy,
-            Set<String> ferryIdsNotAllowedForBicycle
+            Set<String> ferryIdsNotAllowedForBicycle,
+            int parseAheadDocuments
     ) {
         this.netexFeedId = netexFeedId;
         this.source = source;
         this.hierarchy = hierarchy;
         this.ferryIdsNotAllowedForBicycle = ferryIdsNotAllowedForBicycle;
+        this.parseAheadDocuments = parseAheadDocuments;
     }
 
     /** load the bundle, map it to the OTP transit model and return */
@@ -79,8 +90,13 @@ public class NetexBundle implements Closeable {
         // Store result in a mutable OTP Transit Model
         OtpTransitServiceBuilder transitBuilder = new OtpTransitServiceBuilder();
 
-        // init parser and mapper
-        xmlParser = new NetexXmlParser();
+        // init parser and mapper, the XML files are parsed in parallel ahead of the mapping
+        ExecutorService executor = parseAheadDocuments > 0
+                ? Executors.newFixedThreadPool(
+                        Math.min(Runtime.getRuntime().availableProcessors(), parseAheadDocuments)
+                )
+                : null;
+        xmlParser = new ParallelNetexXmlParser(executor, parseAheadDocuments, entriesInLoadOrder());
         mapper = new NetexMapper(
                 transitBuilder,
                 netexFeedId,
@@ -90,7 +106,15 @@ public class NetexBundle implements Closeable {
         );
 
         // Load data
-        loadFileEntries();
+        try {
+            loadFileEntries();
+        }
+        finally {
+            xmlParser.cancel();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
 
         return transitBuilder;
     }
@@ -104,6 +128,17 @@ public class NetexBundle implements Closeable {
 
     /* private methods */
 
+    /** All entries, in the same order as they are loaded by {@link #loadFileEntries()}. */
+    private List<DataSource> entriesInLoadOrder() {
+        List<DataSource> entries = new ArrayList<>();
+        hierarchy.sharedEntries().forEach(entries::add);
+        for (GroupEntries group : hierarchy.groups()) {
+            entries.addAll(group.sharedEntries());
+            entries.addAll(group.independentEntries());
+        }
+        return entries;
+    }
+
     /** Load all files entries in the bundle */
     private void loadFileEntries() {
         // Load global shared files
@@ -169,7 +204,7 @@ public class NetexBundle implements Closeable {
         try {
             LOG.info("reading entity {}: {}", fileDescription, entry.name());
 
-            PublicationDeliveryStructure doc = xmlParser.parseXmlDoc(entry.asInputStream());
+            PublicationDeliveryStructure doc = xmlParser.parse(entry);
             NetexDocumentParser.parseAndPopulateIndex(index, doc);
 
         } catch (JAXBException e) {
@@ -68,7 +68,8 @@ public class NetexConfig {
                 buildParams.netex.netexFeedId,
                 source,
                 hierarchy(source),
-                buildParams.netex.ferryIdsNotAllowedForBicycle
+                buildParams.netex.ferryIdsNotAllowedForBicycle,
+                buildParams.netex.parseAheadDocuments
         );
     }
 
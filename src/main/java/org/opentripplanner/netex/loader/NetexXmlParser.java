@@ -8,8 +8,16 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.InputStream;
 
-/** Simple wrapper to perform typesafe xml parsing and simple error handling. */
+/**
+ * Simple wrapper to perform typesafe xml parsing and simple error handling.
+ * <p>
+ * An instance is not thread-safe, use one instance for each thread. The expensive JAXB context is
+ * shared by all instances.
+ */
 public class NetexXmlParser {
+    /** The JAXB context is thread-safe and expensive to create, so it is created once. */
+    private static JAXBContext jaxbContext;
+
     /** used to parse the XML. */
     private final Unmarshaller unmarshaller;
 
@@ -32,9 +40,7 @@ public class NetexXmlParser {
     /** factory method for unmarshaller */
     private static Unmarshaller createUnmarshaller() {
         try {
-            return JAXBContext
-                    .newInstance(PublicationDeliveryStructure.class)
-                    .createUnmarshaller();
+            return jaxbContext().createUnmarshaller();
         } catch (JAXBException e) {
             // This is a programming error - not expected!
             // We abort early and also allow for this to happen in the constructor;
@@ -42,4 +48,11 @@ public class NetexXmlParser {
             throw new RuntimeException(e);
         }
     }
+
+    private static synchronized JAXBContext jaxbContext() throws JAXBException {
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(PublicationDeliveryStructure.class);
+        }
+        return jaxbContext;
+    }
 }
@@ -0,0 +1,114 @@
+package org.opentripplanner.netex.loader;
+
+import org.opentripplanner.datastore.DataSource;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+
+import javax.xml.bind.JAXBException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Parse the XML documents of a NeTEx bundle on the given executor, ahead of the caller. The
+ * caller takes the documents in the same order as the entries are given to the constructor, and
+ * while the caller adds a document to the index and maps it, the next documents are parsed.
+ * <p>
+ * The number of documents parsed ahead is limited, since the document tree of a large NeTEx file
+ * can be many times larger than the file itself. Each document parsed ahead is held in memory
+ * together with the document the caller is processing. With no documents parsed ahead, each
+ * document is parsed by the caller.
+ */
+public class ParallelNetexXmlParser {
+
+    private final ExecutorService executor;
+
+    private final int documentsAhead;
+
+    private final Iterator<? extends DataSource> entries;
+
+    private final Deque<PendingDocument> pending = new ArrayDeque<>();
+
+    /** The JAXB unmarshaller is not thread-safe, so each thread has its own parser. */
+    private final ThreadLocal<NetexXmlParser> parsers = ThreadLocal.withInitial(NetexXmlParser::new);
+
+    /**
+     * @param executor       the executor to parse the documents ahead on, not used if no
+     *                       documents are parsed ahead.
+     * @param documentsAhead the maximum number of documents parsed ahead of the caller.
+     * @param entries        all entries to parse, in the order they are taken with
+     *                       {@link #parse(DataSource)}.
+     */
+    public ParallelNetexXmlParser(
+            ExecutorService executor,
+            int documentsAhead,
+            Iterable<? extends DataSource> entries
+    ) {
+        this.executor = executor;
+        this.documentsAhead = documentsAhead;
+        this.entries = entries.iterator();
+    }
+
+    /**
+     * Return the parsed document of the given entry, waiting for the parsing to complete if
+     * necessary. The entry must be the next entry in the order given to the constructor.
+     */
+    public PublicationDeliveryStructure parse(DataSource entry) throws JAXBException {
+        PendingDocument next = pending.pollFirst();
+        DataSource expected = next != null
+                ? next.entry
+                : entries.hasNext() ? entries.next() : null;
+        if (expected != entry) {
+            if (next != null) { next.result.cancel(true); }
+            throw new IllegalStateException("NeTEx entries read out of order: " + entry.name());
+        }
+        // Start parsing the next entries while this one is processed by the caller
+        submitAhead();
+
+        if (next == null) {
+            // Not parsed ahead, the first entry or all entries if no documents are parsed ahead
+            return parsers.get().parseXmlDoc(entry.asInputStream());
+        }
+        try {
+            return next.result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing " + entry.name(), e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof JAXBException) {
+                throw (JAXBException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Cancel the parsing of all entries not taken yet. */
+    public void cancel() {
+        pending.forEach(it -> it.result.cancel(true));
+        pending.clear();
+    }
+
+    private void submitAhead() {
+        while (pending.size() < documentsAhead && entries.hasNext()) {
+            DataSource entry = entries.next();
+            pending.addLast(new PendingDocument(
+                    entry,
+                    executor.submit(() -> parsers.get().parseXmlDoc(entry.asInputStream()))
+            ));
+        }
+    }
+
+    private static class PendingDocument {
+        private final DataSource entry;
+        private final Future<PublicationDeliveryStructure> result;
+
+        private PendingDocument(DataSource entry, Future<PublicationDeliveryStructure> result) {
+            this.entry = entry;
+            this.result = result;
+        }
+    }
+}
@@ -6,9 +6,11 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.model.Agency;
 import org.opentripplanner.model.FeedScopedId;
@@ -37,6 +39,8 @@ import org.rutebanken.netex.model.JourneyPattern;
 import org.rutebanken.netex.model.Line;
 import org.rutebanken.netex.model.NoticeAssignment;
 import org.rutebanken.netex.model.StopPlace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -52,6 +56,8 @@ import org.rutebanken.netex.model.StopPlace;
  * </p>
  */
 public class NetexMapper {
+    private static final Logger LOG = LoggerFactory.getLogger(NetexMapper.class);
+
     private static final int LEVEL_SHARED = 0;
     private static final int LEVEL_GROUP = 1;
 
@@ -76,6 +82,9 @@ public class NetexMapper {
      */
     private final Map<String, StopTime> stopTimesByNetexId = new HashMap<>();
 
+    /** The time spent in each mapping stage in milliseconds, for all files in the bundle. */
+    private final Map<String, Long> timeByStage = new LinkedHashMap<>();
+
 
     public NetexMapper(
             OtpTransitServiceBuilder transitBuilder,
@@ -128,6 +137,7 @@ public class NetexMapper {
         transitBuilder.getCalendarDates().addAll(
                 calendarServiceBuilder.createServiceCalendar()
         );
+        logTimeByStage();
     }
 
     /**
@@ -160,27 +170,30 @@ public class NetexMapper {
         // Be careful, the order matter. For example a Route has a reference to Agency; Hence Agency must be mapped
         // before Route - if both entities are defined in the same file.
         this.currentNetexIndex = netexIndex;
-        mapAuthorities();
-        mapOperators();
-        mapShapePoints();
+        timed("Authorities", this::mapAuthorities);
+        timed("Operators", this::mapOperators);
+        timed("Shape points", this::mapShapePoints);
 
         // The tariffZoneMapper is used to map all currently valid zones and to map the correct
         // referenced zone in StopPlace - which may not be the most currently valid zone.
         // This is a workaround until versioned entities are supported by OTP
-        var tariffZoneMapper = mapTariffZones();
-        mapStopPlaceAndQuays(tariffZoneMapper);
-        mapMultiModalStopPlaces();
-        mapGroupsOfStopPlaces();
-        mapFlexibleStopPlaces();
-        mapDatedServiceJourneys();
-        mapDayTypeAssignments();
+        var tariffZoneMapper = timed("Tariff zones", this::mapTariffZones);
+        timed("Stop places and quays", () -> mapStopPlaceAndQuays(tariffZoneMapper));
+        timed("Multi modal stop places", this::mapMultiModalStopPlaces);
+        timed("Groups of stop places", this::mapGroupsOfStopPlaces);
+        timed("Flexible stop places", this::mapFlexibleStopPlaces);
+        timed("Dated service journeys", this::mapDatedServiceJourneys);
+        timed("Day type assignments", this::mapDayTypeAssignments);
 
         // DayType and DSJ is mapped to a service calendar and a serviceId is generated
-        Map<String, FeedScopedId> serviceIds = createCalendarForServiceJourney();
+        Map<String, FeedScopedId> serviceIds = timed(
+                "Service journey calendars",
+                this::createCalendarForServiceJourney
+        );
 
-        mapRoute();
-        mapTripPatterns(serviceIds);
-        mapNoticeAssignments();
+        timed("Routes", this::mapRoute);
+        timed("Trip patterns", () -> mapTripPatterns(serviceIds));
+        timed("Notice assignments", this::mapNoticeAssignments);
 
         addEntriesToGroupMapperForPostProcessingLater();
     }
@@ -364,9 +377,10 @@ public class NetexMapper {
                 deduplicator
         );
 
-        for (JourneyPattern journeyPattern : currentNetexIndex.getJourneyPatternsById().localValues()) {
-            TripPatternMapperResult result = tripPatternMapper.mapTripPattern(journeyPattern);
+        Collection<JourneyPattern> journeyPatterns =
+                currentNetexIndex.getJourneyPatternsById().localValues();
 
+        for (TripPatternMapperResult result : tripPatternMapper.mapTripPatterns(journeyPatterns)) {
             for (Map.Entry<Trip, List<StopTime>> it : result.tripStopTimes.entrySet()) {
                 transitBuilder.getStopTimesSortedByTrip().put(it.getKey(), it.getValue());
                 transitBuilder.getTripsById().add(it.getKey());
@@ -403,6 +417,25 @@ public class NetexMapper {
         }
     }
 
+    private void timed(String stage, Runnable task) {
+        timed(stage, () -> { task.run(); return null; });
+    }
+
+    private <T> T timed(String stage, Supplier<T> task) {
+        long start = System.currentTimeMillis();
+        try {
+            return task.get();
+        }
+        finally {
+            timeByStage.merge(stage, System.currentTimeMillis() - start, Long::sum);
+        }
+    }
+
+    private void logTimeByStage() {
+        LOG.info("NeTEx mapping time by stage:");
+        timeByStage.forEach((stage, time) -> LOG.info(String.format("  - %-26s %,8d ms", stage, time)));
+    }
+
     /**
      * The start of period is used to find the valid entities based on the current time.
      * This should probably be configurable in the future, or even better incorporate the version
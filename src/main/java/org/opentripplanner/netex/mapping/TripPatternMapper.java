@@ -7,6 +7,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.FlexLocationGroup;
@@ -20,6 +23,7 @@ import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.model.impl.EntityById;
 import org.opentripplanner.netex.index.api.ReadOnlyHierarchicalMap;
 import org.opentripplanner.netex.index.api.ReadOnlyHierarchicalMapById;
+import org.opentripplanner.netex.mapping.support.BufferedIssueStore;
 import org.opentripplanner.netex.mapping.support.FeedScopedIdFactory;
 import org.opentripplanner.routing.trippattern.Deduplicator;
 import org.opentripplanner.routing.trippattern.TripTimes;
@@ -35,9 +39,13 @@ import org.rutebanken.netex.model.ServiceJourney;
  * TimeTabledPassingTimes that are mapped to StopTimes.
  * <p>
  * Headsigns in NeTEx are only specified once and then valid for each subsequent TimeTabledPassingTime until a new
- * headsign is specified. This is accounted for in the mapper.
+ * headsign is specified. This is accounted for in the mapper, within each JourneyPattern.
  * <p>
- * THIS CLASS IS NOT THREADSAFE! This mapper store its intermediate results as part of its state.
+ * The mapping is done in two steps. The first step, {@link #mapServiceJourneys(JourneyPattern,
+ * DataImportIssueStore)}, maps the service journeys into trips and stop times. It only reads the
+ * shared state, so the journey patterns can be mapped in parallel. The second step, {@link
+ * #createTripPattern(JourneyPattern, TripPatternMapperResult)}, creates the trip pattern and the
+ * trip times, using the {@link Deduplicator}. This step is NOT thread-safe.
  */
 class TripPatternMapper {
 
@@ -53,12 +61,15 @@ class TripPatternMapper {
 
     private final TripMapper tripMapper;
 
-    private final StopTimesMapper stopTimesMapper;
+    /**
+     * The stop times mapper keeps the current headsign while mapping a journey pattern, so a new
+     * mapper is created for each journey pattern. A headsign is not carried over from one journey
+     * pattern to the next.
+     */
+    private final Function<DataImportIssueStore, StopTimesMapper> stopTimesMapperFactory;
 
     private final Deduplicator deduplicator;
 
-    private TripPatternMapperResult result;
-
     TripPatternMapper(
             DataImportIssueStore issueStore,
             FeedScopedIdFactory idFactory,
@@ -91,8 +102,8 @@ class TripPatternMapper {
             serviceIds,
             shapePointsIds
         );
-        this.stopTimesMapper = new StopTimesMapper(
-            issueStore,
+        this.stopTimesMapperFactory = issues -> new StopTimesMapper(
+            issues,
             idFactory,
             stopsById,
             flexStopLocationsById,
@@ -111,9 +122,44 @@ class TripPatternMapper {
         }
     }
 
+    /**
+     * Map the given journey patterns. The service journeys of each journey pattern are mapped in
+     * parallel, and the trip patterns are created in the given order, on the calling thread. The
+     * results, and the issues reported, are the same as when each journey pattern is mapped in
+     * sequence with {@link #mapTripPattern(JourneyPattern)}.
+     */
+    List<TripPatternMapperResult> mapTripPatterns(Collection<JourneyPattern> journeyPatterns) {
+        List<JourneyPattern> patterns = new ArrayList<>(journeyPatterns);
+        List<BufferedIssueStore> issues = patterns.stream()
+                .map(it -> new BufferedIssueStore())
+                .collect(Collectors.toList());
+        List<TripPatternMapperResult> results = IntStream.range(0, patterns.size())
+                .parallel()
+                .mapToObj(i -> mapServiceJourneys(patterns.get(i), issues.get(i)))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < patterns.size(); ++i) {
+            issues.get(i).flushTo(issueStore);
+            createTripPattern(patterns.get(i), results.get(i));
+        }
+        return results;
+    }
+
     TripPatternMapperResult mapTripPattern(JourneyPattern journeyPattern) {
-        // Make sure the result is clean, by creating a new object.
-        result = new TripPatternMapperResult();
+        TripPatternMapperResult result = mapServiceJourneys(journeyPattern, issueStore);
+        createTripPattern(journeyPattern, result);
+        return result;
+    }
+
+    /**
+     * Map the service journeys of the given journey pattern into trips and stop times. This method
+     * is thread-safe, if each thread use its own issue store.
+     */
+    TripPatternMapperResult mapServiceJourneys(
+            JourneyPattern journeyPattern,
+            DataImportIssueStore issueStore
+    ) {
+        TripPatternMapperResult result = new TripPatternMapperResult();
         Collection<ServiceJourney> serviceJourneys = serviceJourniesByPatternId.get(journeyPattern.getId());
 
         if (serviceJourneys == null || serviceJourneys.isEmpty()) {
@@ -125,7 +171,7 @@ class TripPatternMapper {
             return result;
         }
 
-        List<Trip> trips = new ArrayList<>();
+        StopTimesMapper stopTimesMapper = stopTimesMapperFactory.apply(issueStore);
 
         for (ServiceJourney serviceJourney : serviceJourneys) {
             Trip trip = tripMapper.mapServiceJourney(serviceJourney);
@@ -151,11 +197,20 @@ class TripPatternMapper {
             result.stopTimeByNetexId.putAll(stopTimes.stopTimeByNetexId);
 
             trip.setTripHeadsign(getHeadsign(stopTimes.stopTimes));
-            trips.add(trip);
+            result.trips.add(trip);
         }
+        return result;
+    }
+
+    /**
+     * Create the trip pattern of the trips mapped by {@link #mapServiceJourneys(JourneyPattern,
+     * DataImportIssueStore)}, and add it to the result. This method is NOT thread-safe.
+     */
+    void createTripPattern(JourneyPattern journeyPattern, TripPatternMapperResult result) {
+        List<Trip> trips = result.trips;
 
         // No trips successfully mapped
-        if(trips.isEmpty()) { return result; }
+        if(trips.isEmpty()) { return; }
 
         // TODO OTP2 Trips containing FlexStopLocations are not added to StopPatterns until support
         //           for this is added.
@@ -168,7 +223,7 @@ class TripPatternMapper {
                     || t.getStop() instanceof FlexLocationGroup
                 )
         ) {
-            return result;
+            return;
         }
 
         // Create StopPattern from any trip (since they are part of the same JourneyPattern)
@@ -183,11 +238,9 @@ class TripPatternMapper {
         tripPattern.setName(
             journeyPattern.getName() == null ? "" : journeyPattern.getName().getValue());
 
-        createTripTimes(trips, tripPattern);
+        createTripTimes(trips, tripPattern, result);
 
         result.tripPatterns.add(tripPattern);
-
-        return result;
     }
 
     private org.opentripplanner.model.Route lookupRoute(
@@ -199,7 +252,8 @@ class TripPatternMapper {
 
     private void createTripTimes(
             List<Trip> trips,
-            TripPattern tripPattern
+            TripPattern tripPattern,
+            TripPatternMapperResult result
     ) {
         for (Trip trip : trips) {
             if (result.tripStopTimes.get(trip).size() == 0) {
@@ -20,6 +20,9 @@ class TripPatternMapperResult {
      */
     final ArrayListMultimap<String, String> scheduledStopPointsIndex = ArrayListMultimap.create();
 
+    /** The mapped trips, in the order of the service journeys. */
+    final List<Trip> trips = new ArrayList<>();
+
     final Map<Trip, List<StopTime>> tripStopTimes = new HashMap<>();
 
     final List<TripPattern> tripPatterns = new ArrayList<>();
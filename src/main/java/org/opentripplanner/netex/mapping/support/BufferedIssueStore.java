@@ -0,0 +1,34 @@
+package org.opentripplanner.netex.mapping.support;
+
+import org.opentripplanner.graph_builder.DataImportIssue;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keep the issues reported by a mapping task running in parallel with other tasks, until they can
+ * be added to the real issue store. The issues of each task are added in the same order as the
+ * tasks would run in sequence, so the issue report is the same for every build.
+ * <p>
+ * An instance is used by one task at a time, and is not thread-safe.
+ */
+public class BufferedIssueStore extends DataImportIssueStore {
+
+    private final List<DataImportIssue> buffer = new ArrayList<>();
+
+    public BufferedIssueStore() {
+        super(false);
+    }
+
+    @Override
+    public void add(DataImportIssue issue) {
+        buffer.add(issue);
+    }
+
+    /** Add the buffered issues to the given store, and clear the buffer. */
+    public void flushTo(DataImportIssueStore issueStore) {
+        buffer.forEach(issueStore::add);
+        buffer.clear();
+    }
+}
@@ -2,7 +2,6 @@ package org.opentripplanner.openstreetmap;
 
 import org.openstreetmap.osmosis.osmbinary.BinaryParser;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
-import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
 import org.opentripplanner.openstreetmap.model.OSMNode;
 import org.opentripplanner.openstreetmap.model.OSMNodeRef;
 import org.opentripplanner.openstreetmap.model.OSMRelation;
@@ -10,23 +9,38 @@ import org.opentripplanner.openstreetmap.model.OSMRelationMember;
 import org.opentripplanner.openstreetmap.model.OSMTag;
 import org.opentripplanner.openstreetmap.model.OSMWay;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Parser for the OpenStreetMap PBF Format.
+ * Parser for the OpenStreetMap PBF Format. The parser decodes one primitive block at the time into
+ * a {@link OsmPbfBlock}, only entities for the current {@link OsmParserPhase} are materialised.
+ * <p>
+ * A parser instance keep the state of the block being parsed, and can only be used by one thread
+ * at the time. The string table used to internalize tags may be shared between parsers.
  *
  * @since 0.4
  */
 public class BinaryOpenStreetMapParser extends BinaryParser {
 
-    private OSMDatabase osmdb;
-    private OsmParserPhase parsePhase;
-    private Map<String, String> stringTable = new HashMap<String, String>();
+    private final OsmParserPhase parsePhase;
+    private final ConcurrentMap<String, String> stringTable;
+    private OsmPbfBlock block;
 
-    public BinaryOpenStreetMapParser(OSMDatabase osmdb) {
-        this.osmdb = osmdb;
+    BinaryOpenStreetMapParser(OsmParserPhase parsePhase, ConcurrentMap<String, String> stringTable) {
+        this.parsePhase = parsePhase;
+        this.stringTable = stringTable;
+    }
+
+    /**
+     * Decode the given block, returning the entities of the current phase.
+     */
+    OsmPbfBlock decode(Osmformat.PrimitiveBlock primitiveBlock) {
+        block = new OsmPbfBlock();
+        parse(primitiveBlock);
+        OsmPbfBlock result = block;
+        block = null;
+        return result;
     }
 
     // The strings are already being pulled from a string table in the PBF file,
@@ -34,12 +48,8 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
     // String.intern grinds to a halt on large PBF files (as it did on GTFS import), so 
     // we implement our own. 
     public String internalize(String s) {
-        String fromTable = stringTable.get(s);
-        if (fromTable == null) {
-            stringTable.put(s, s);
-            return s;
-        } 
-        return fromTable;
+        String fromTable = stringTable.putIfAbsent(s, s);
+        return fromTable == null ? s : fromTable;
     }
 
     @Override
@@ -49,6 +59,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
 
     @Override
     protected void parseNodes(List<Osmformat.Node> nodes) {
+        if (!nodes.isEmpty()) { block.markContains(OsmParserPhase.Nodes); }
         if(parsePhase != OsmParserPhase.Nodes) { return; }
 
         for (Osmformat.Node i : nodes) {
@@ -67,7 +78,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 tmp.addTag(tag);
             }
 
-            osmdb.addNode(tmp);
+            block.addNode(tmp);
         }
     }
 
@@ -76,6 +87,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
         long lastId = 0, lastLat = 0, lastLon = 0;
         int j = 0; // Index into the keysvals array.
 
+        if (nodes.getIdCount() > 0) { block.markContains(OsmParserPhase.Nodes); }
         if(parsePhase != OsmParserPhase.Nodes) { return; }
 
         for (int i = 0; i < nodes.getIdCount(); i++) {
@@ -109,12 +121,13 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 j++; // Skip over the '0' delimiter.
             }
 
-            osmdb.addNode(tmp);
+            block.addNode(tmp);
         }
     }
 
     @Override
     protected void parseWays(List<Osmformat.Way> ways) {
+        if (!ways.isEmpty()) { block.markContains(OsmParserPhase.Ways); }
         if(parsePhase != OsmParserPhase.Ways) { return; }
 
         for (Osmformat.Way i : ways) {
@@ -139,12 +152,13 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 lastId = j + lastId;
             }
 
-            osmdb.addWay(tmp);
+            block.addWay(tmp);
         }
     }
 
     @Override
     protected void parseRelations(List<Osmformat.Relation> rels) {
+        if (!rels.isEmpty()) { block.markContains(OsmParserPhase.Relations); }
         if(parsePhase != OsmParserPhase.Relations) { return; }
 
         for (Osmformat.Relation i : rels) {
@@ -183,7 +197,7 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
                 tmp.addMember(relMember);
             }
 
-            osmdb.addRelation(tmp);
+            block.addRelation(tmp);
         }
     }
 
@@ -199,11 +213,4 @@ public class BinaryOpenStreetMapParser extends BinaryParser {
             throw new IllegalStateException("File requires unknown feature: " + s);
         }
     }
-
-    /**
-     * Set the phase to be parsed
-     */
-    public void setPhase(OsmParserPhase phase) {
-        this.parsePhase = phase;
-    }
 }
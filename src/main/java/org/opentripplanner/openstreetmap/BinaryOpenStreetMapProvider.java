@@ -1,6 +1,5 @@
 package org.opentripplanner.openstreetmap;
 
-import org.openstreetmap.osmosis.osmbinary.file.BlockInputStream;
 import org.opentripplanner.datastore.DataSource;
 import org.opentripplanner.datastore.FileType;
 import org.opentripplanner.datastore.file.FileDataSource;
@@ -13,10 +12,16 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Parser for the OpenStreetMap PBF format. Parses files in three passes:
  * First the relations, then the ways, then the nodes are also loaded.
+ * <p>
+ * The blocks are decompressed and decoded in parallel, see {@link OsmPbfBlockReader}. The first
+ * pass index which blocks contain relations, ways and nodes, so the ways and nodes passes only
+ * decode the blocks they need.
  */
 public class BinaryOpenStreetMapProvider {
     private static final Logger LOG = LoggerFactory.getLogger(BinaryOpenStreetMapProvider.class);
@@ -37,34 +42,32 @@ public class BinaryOpenStreetMapProvider {
     }
 
     public void readOSM(OSMDatabase osmdb) {
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         try {
-            BinaryOpenStreetMapParser parser = new BinaryOpenStreetMapParser(osmdb);
+            OsmPbfBlockReader reader = new OsmPbfBlockReader(executor, 2 * nThreads);
 
-            parsePhase(parser, OsmParserPhase.Relations);
+            parsePhase(reader, osmdb, OsmParserPhase.Relations);
             osmdb.doneFirstPhaseRelations();
 
-            parsePhase(parser, OsmParserPhase.Ways);
+            parsePhase(reader, osmdb, OsmParserPhase.Ways);
             osmdb.doneSecondPhaseWays();
 
-            parsePhase(parser, OsmParserPhase.Nodes);
+            parsePhase(reader, osmdb, OsmParserPhase.Nodes);
             osmdb.doneThirdPhaseNodes();
         }
         catch (Exception ex) {
             throw new IllegalStateException("error loading OSM from path " + source.path(), ex);
         }
+        finally {
+            executor.shutdownNow();
+        }
     }
 
-    private void parsePhase(BinaryOpenStreetMapParser parser, OsmParserPhase phase) throws IOException {
-        parser.setPhase(phase);
-        BlockInputStream in = null;
-        try {
-            in = new BlockInputStream(createInputStream(phase), parser);
-            in.process();
-        }
-        finally {
-            // Close
-            try { if(in != null) { in.close(); } }
-            catch (Exception e) { LOG.error(e.getMessage(), e); }
+    private void parsePhase(OsmPbfBlockReader reader, OSMDatabase osmdb, OsmParserPhase phase)
+            throws IOException {
+        try (InputStream in = createInputStream(phase)) {
+            reader.read(in, phase, osmdb);
         }
     }
 
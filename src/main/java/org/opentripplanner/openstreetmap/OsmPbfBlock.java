@@ -0,0 +1,41 @@
+package org.opentripplanner.openstreetmap;
+
+import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+import org.opentripplanner.openstreetmap.model.OSMRelation;
+import org.opentripplanner.openstreetmap.model.OSMWay;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The entities decoded from one PBF primitive block, for one parser phase. Blocks are decoded in
+ * parallel, and then added to the {@link OSMDatabase} in file order.
+ */
+class OsmPbfBlock {
+
+    private final List<OSMNode> nodes = new ArrayList<>();
+    private final List<OSMWay> ways = new ArrayList<>();
+    private final List<OSMRelation> relations = new ArrayList<>();
+
+    /** The kind of entities in the block, also for the entities not decoded in this phase. */
+    private final Set<OsmParserPhase> contains = EnumSet.noneOf(OsmParserPhase.class);
+
+    void addNode(OSMNode node) { nodes.add(node); }
+
+    void addWay(OSMWay way) { ways.add(way); }
+
+    void addRelation(OSMRelation relation) { relations.add(relation); }
+
+    void markContains(OsmParserPhase phase) { contains.add(phase); }
+
+    boolean contains(OsmParserPhase phase) { return contains.contains(phase); }
+
+    void addTo(OSMDatabase osmdb) {
+        for (OSMRelation it : relations) { osmdb.addRelation(it); }
+        for (OSMWay it : ways) { osmdb.addWay(it); }
+        for (OSMNode it : nodes) { osmdb.addNode(it); }
+    }
+}
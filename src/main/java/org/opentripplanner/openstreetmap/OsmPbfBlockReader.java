@@ -0,0 +1,220 @@
+package org.opentripplanner.openstreetmap;
+
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read the blocks of a PBF file, and decompress and decode them in parallel on the given executor.
+ * The decoded entities are added to the {@link OSMDatabase} on the calling thread, in the same
+ * order as they appear in the file.
+ * <p>
+ * The same file is read once for each {@link OsmParserPhase}. The first read decodes all blocks,
+ * and record which kind of entities each block contains. The following phases use this block
+ * index to skip the blocks without any entities of interest without decompressing them - in a
+ * sorted PBF file the ways are only read in the way phase, and the nodes in the node phase.
+ */
+class OsmPbfBlockReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OsmPbfBlockReader.class);
+
+    /** Limits from the PBF specification. */
+    private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private static final String OSM_HEADER = "OSMHeader";
+    private static final String OSM_DATA = "OSMData";
+
+    private final ExecutorService executor;
+
+    /** Limit the number of decoded blocks held in memory while waiting to be added. */
+    private final int maxBlocksInFlight;
+
+    private final ConcurrentMap<String, String> stringTable = new ConcurrentHashMap<>();
+
+    /** The data blocks containing entities for each phase, by the block sequence number. */
+    private final Map<OsmParserPhase, BitSet> blockIndex = new EnumMap<>(OsmParserPhase.class);
+
+    private boolean blockIndexComplete = false;
+
+    OsmPbfBlockReader(ExecutorService executor, int maxBlocksInFlight) {
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        for (OsmParserPhase phase : OsmParserPhase.values()) {
+            blockIndex.put(phase, new BitSet());
+        }
+    }
+
+    /**
+     * Read all entities for the given phase from the input and add them to the database. The input
+     * must be the same file for all phases.
+     */
+    void read(InputStream input, OsmParserPhase phase, OSMDatabase osmdb) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        ThreadLocal<BinaryOpenStreetMapParser> parsers = ThreadLocal.withInitial(
+                () -> new BinaryOpenStreetMapParser(phase, stringTable)
+        );
+        Deque<PendingBlock> pending = new ArrayDeque<>();
+        boolean indexing = !blockIndexComplete;
+        int blockNr = 0;
+        int skipped = 0;
+
+        try {
+            while (true) {
+                Fileformat.BlobHeader header = readBlobHeader(in);
+                if (header == null) { break; }
+
+                int size = header.getDatasize();
+                if (size < 0 || size > MAX_BLOB_SIZE) {
+                    throw new IOException("Invalid PBF blob size: " + size);
+                }
+
+                if (OSM_DATA.equals(header.getType())) {
+                    int nr = blockNr++;
+                    if (!indexing && !blockIndex.get(phase).get(nr)) {
+                        skipFully(in, size);
+                        ++skipped;
+                        continue;
+                    }
+                    byte[] blob = new byte[size];
+                    in.readFully(blob);
+
+                    if (pending.size() >= maxBlocksInFlight) {
+                        addToDatabase(pending.removeFirst(), indexing, osmdb);
+                    }
+                    pending.addLast(new PendingBlock(nr, executor.submit(() ->
+                            parsers.get().decode(Osmformat.PrimitiveBlock.parseFrom(inflate(blob)))
+                    )));
+                }
+                else if (OSM_HEADER.equals(header.getType())) {
+                    byte[] blob = new byte[size];
+                    in.readFully(blob);
+                    new BinaryOpenStreetMapParser(phase, stringTable)
+                            .parse(Osmformat.HeaderBlock.parseFrom(inflate(blob)));
+                }
+                else {
+                    // Unknown blocks should be skipped according to the specification
+                    skipFully(in, size);
+                }
+            }
+            while (!pending.isEmpty()) {
+                addToDatabase(pending.removeFirst(), indexing, osmdb);
+            }
+        }
+        finally {
+            pending.forEach(it -> it.result.cancel(true));
+        }
+
+        if (indexing) {
+            blockIndexComplete = true;
+        }
+        LOG.debug("PBF phase {}: {} data blocks, {} skipped.", phase, blockNr, skipped);
+    }
+
+    private void addToDatabase(PendingBlock pending, boolean indexing, OSMDatabase osmdb)
+            throws IOException {
+        OsmPbfBlock block;
+        try {
+            block = pending.result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding PBF block " + pending.blockNr, e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Failed to decode PBF block " + pending.blockNr, e.getCause());
+        }
+        if (indexing) {
+            for (OsmParserPhase phase : OsmParserPhase.values()) {
+                if (block.contains(phase)) {
+                    blockIndex.get(phase).set(pending.blockNr);
+                }
+            }
+        }
+        block.addTo(osmdb);
+    }
+
+    /** @return the next blob header, or {@code null} at the end of the file. */
+    private static Fileformat.BlobHeader readBlobHeader(DataInputStream in) throws IOException {
+        int headerSize;
+        try {
+            headerSize = in.readInt();
+        }
+        catch (EOFException e) {
+            return null;
+        }
+        if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+            throw new IOException("Invalid PBF blob header size: " + headerSize);
+        }
+        byte[] header = new byte[headerSize];
+        in.readFully(header);
+        return Fileformat.BlobHeader.parseFrom(header);
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Fileformat.Blob blob = Fileformat.Blob.parseFrom(data);
+        if (blob.hasRaw()) {
+            return blob.getRaw().toByteArray();
+        }
+        if (!blob.hasZlibData()) {
+            throw new IOException("Unsupported PBF blob compression, only zlib is supported.");
+        }
+        byte[] result = new byte[blob.getRawSize()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob.getZlibData().toByteArray());
+            inflater.inflate(result);
+            if (!inflater.finished()) {
+                throw new IOException("PBF blob is larger than the given raw size.");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Invalid zlib data in PBF blob.", e);
+        }
+        finally {
+            inflater.end();
+        }
+        return result;
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                // Some streams do not support skipping, fall back to reading
+                if (in.read() < 0) { throw new EOFException(); }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private static class PendingBlock {
+        private final int blockNr;
+        private final Future<OsmPbfBlock> result;
+
+        private PendingBlock(int blockNr, Future<OsmPbfBlock> result) {
+            this.blockNr = blockNr;
+            this.result = result;
+        }
+    }
+}
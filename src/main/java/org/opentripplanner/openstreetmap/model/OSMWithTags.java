@@ -1,6 +1,8 @@
 package org.opentripplanner.openstreetmap.model;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.opentripplanner.graph_builder.module.osm.TemplateLibrary;
@@ -14,8 +16,13 @@ import org.opentripplanner.util.TranslatedString;
 
 public class OSMWithTags {
 
-    /* To save memory this is only created when an entity actually has tags. */
-    private Map<String, String> tags;
+    /**
+     * The tags as a flat array of alternating keys and values. The strings are internalized by the
+     * parser, so the array only holds references to shared instances. An array is much smaller
+     * than a HashMap, and for the handful of tags of a typical entity a linear scan is as fast as
+     * hashing the key. To save memory this is only created when an entity actually has tags.
+     */
+    private String[] tags;
 
     protected long id;
 
@@ -39,10 +46,7 @@ public class OSMWithTags {
      * Adds a tag.
      */
     public void addTag(OSMTag tag) {
-        if (tags == null)
-            tags = new HashMap<String, String>();
-
-        tags.put(tag.getK().toLowerCase(), tag.getV());
+        putTag(tag.getK().toLowerCase(), tag.getV());
     }
 
     /**
@@ -52,17 +56,61 @@ public class OSMWithTags {
         if (key == null || value == null)
             return;
 
-        if (tags == null)
-            tags = new HashMap<String, String>();
-
-        tags.put(key.toLowerCase(), value);
+        putTag(key.toLowerCase(), value);
     }
 
     /**
-     * The tags of an entity.
+     * The tags of an entity, as a new map. Returns {@code null} if the entity has no tags.
      */
     public Map<String, String> getTags() {
-        return tags;
+        if (tags == null) {
+            return null;
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            map.put(tags[i], tags[i + 1]);
+        }
+        return map;
+    }
+
+    private void putTag(String key, String value) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            tags[index + 1] = value;
+            return;
+        }
+        if (tags == null) {
+            tags = new String[] { key, value };
+            return;
+        }
+        int n = tags.length;
+        tags = Arrays.copyOf(tags, n + 2);
+        tags[n] = key;
+        tags[n + 1] = value;
+    }
+
+    /** @return the index of the given lower case key in the tags array, or -1. */
+    private int indexOfKey(String key) {
+        if (tags == null) {
+            return -1;
+        }
+        for (int i = 0; i < tags.length; i += 2) {
+            String k = tags[i];
+            // Keys are usually internalized, compare the references first
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean containsKey(String key) {
+        return indexOfKey(key) >= 0;
+    }
+
+    private String tagValue(String key) {
+        int index = indexOfKey(key);
+        return index < 0 ? null : tags[index + 1];
     }
 
     /**
@@ -70,7 +118,7 @@ public class OSMWithTags {
      */
     public boolean hasTag(String tag) {
         tag = tag.toLowerCase();
-        return tags != null && tags.containsKey(tag);
+        return containsKey(tag);
     }
 
     /**
@@ -113,10 +161,7 @@ public class OSMWithTags {
     /** @return a tag's value, converted to lower case. */
     public String getTag(String tag) {
         tag = tag.toLowerCase();
-        if (tags != null && tags.containsKey(tag)) {
-            return tags.get(tag);
-        }
-        return null;
+        return tagValue(tag);
     }
 
     /**
@@ -124,8 +169,8 @@ public class OSMWithTags {
      */
     public Boolean isTag(String tag, String value) {
         tag = tag.toLowerCase();
-        if (tags != null && tags.containsKey(tag) && value != null) {
-            return value.equals(tags.get(tag));
+        if (value != null && containsKey(tag)) {
+            return value.equals(tagValue(tag));
         }
 
         return false;
@@ -139,30 +184,30 @@ public class OSMWithTags {
         if (tags == null) {
             return null;
         }
-        if (tags.containsKey("name")) {
+        if (containsKey("name")) {
             return TranslatedString.getI18NString(TemplateLibrary.generateI18N("{name}", this));
         }
-        if (tags.containsKey("otp:route_name")) {
-            return new NonLocalizedString(tags.get("otp:route_name"));
+        if (containsKey("otp:route_name")) {
+            return new NonLocalizedString(tagValue("otp:route_name"));
         }
         if (this.creativeName != null) {
             return this.creativeName;
         }
-        if (tags.containsKey("otp:route_ref")) {
-            return new NonLocalizedString(tags.get("otp:route_ref"));
+        if (containsKey("otp:route_ref")) {
+            return new NonLocalizedString(tagValue("otp:route_ref"));
         }
-        if (tags.containsKey("ref")) {
-            return new NonLocalizedString(tags.get("ref"));
+        if (containsKey("ref")) {
+            return new NonLocalizedString(tagValue("ref"));
         }
         return null;
     }
 
     public Map<String, String> getTagsByPrefix(String prefix) {
         Map<String, String> out = new HashMap<String, String>();
-        for (Map.Entry<String, String> entry : tags.entrySet()) {
-            String k = entry.getKey();
+        for (int i = 0; i < tags.length; i += 2) {
+            String k = tags[i];
             if (k.equals(prefix) || k.startsWith(prefix + ":")) {
-                out.put(k, entry.getValue());
+                out.put(k, tags[i + 1]);
             }
         }
         if (out.isEmpty()) { return null; }
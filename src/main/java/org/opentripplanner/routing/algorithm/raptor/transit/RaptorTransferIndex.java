@@ -34,6 +34,20 @@ public class RaptorTransferIndex {
     public static RaptorTransferIndex create(
             List<List<Transfer>> transfersByStopIndex,
             RoutingRequest routingRequest
+    ) {
+        return create(transfersByStopIndex, routingRequest, -1);
+    }
+
+    /**
+     * @param transferRequestIndex the index of the graph build transfer request with the same
+     *                             options as the routing request, or -1 if there is none. The
+     *                             durations and costs pre-calculated for that request are used
+     *                             instead of traversing the edges of the transfers again.
+     */
+    public static RaptorTransferIndex create(
+            List<List<Transfer>> transfersByStopIndex,
+            RoutingRequest routingRequest,
+            int transferRequestIndex
     ) {
         var forwardTransfers = new ArrayList<List<RaptorTransfer>>(transfersByStopIndex.size());
         var reversedTransfers = new ArrayList<List<RaptorTransfer>>(transfersByStopIndex.size());
@@ -48,7 +62,7 @@ public class RaptorTransferIndex {
             // for a stop pair.
             var transfers = transfersByStopIndex.get(fromStop)
                     .stream()
-                    .flatMap(s -> s.asRaptorTransfer(routingRequest).stream())
+                    .flatMap(s -> s.asRaptorTransfer(routingRequest, transferRequestIndex).stream())
                     .collect(toMap(
                             RaptorTransfer::stop,
                             Function.identity(),
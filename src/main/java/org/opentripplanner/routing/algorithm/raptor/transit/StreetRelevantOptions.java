@@ -0,0 +1,67 @@
+package org.opentripplanner.routing.algorithm.raptor.transit;
+
+import java.io.Serializable;
+import lombok.EqualsAndHashCode;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.core.BicycleOptimizeType;
+
+/**
+ * This contains an extract of the parameters which may influence transfers. The possible values
+ * are somewhat limited by rounding in {@link Transfer#prepareTransferRoutingRequest(RoutingRequest)}.
+ * <p>
+ * The options of the transfer requests used at graph build are stored in the graph, so the
+ * durations and costs computed for them can be reused by the requests with the same options.
+ *
+ * TODO: the bikeWalking options are not used.
+ */
+@EqualsAndHashCode
+public class StreetRelevantOptions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final StreetMode transferMode;
+    private final BicycleOptimizeType optimize;
+    private final double bikeTriangleSafetyFactor;
+    private final double bikeTriangleSlopeFactor;
+    private final double bikeTriangleTimeFactor;
+    private final boolean wheelchairAccessible;
+    private final double maxWheelchairSlope;
+    private final double walkSpeed;
+    private final double bikeSpeed;
+    private final double walkReluctance;
+    private final double stairsReluctance;
+    private final double turnReluctance;
+    private final int elevatorBoardCost;
+    private final int elevatorBoardTime;
+    private final int elevatorHopCost;
+    private final int elevatorHopTime;
+    private final int bikeSwitchCost;
+    private final int bikeSwitchTime;
+
+    public StreetRelevantOptions(RoutingRequest routingRequest) {
+        this.transferMode = routingRequest.modes.transferMode;
+
+        this.optimize = routingRequest.bicycleOptimizeType;
+        this.bikeTriangleSafetyFactor = routingRequest.bikeTriangleSafetyFactor;
+        this.bikeTriangleSlopeFactor = routingRequest.bikeTriangleSlopeFactor;
+        this.bikeTriangleTimeFactor = routingRequest.bikeTriangleTimeFactor;
+        this.bikeSwitchCost = routingRequest.bikeSwitchCost;
+        this.bikeSwitchTime = routingRequest.bikeSwitchTime;
+
+        this.wheelchairAccessible = routingRequest.wheelchairAccessible;
+        this.maxWheelchairSlope = routingRequest.maxWheelchairSlope;
+
+        this.walkSpeed = routingRequest.walkSpeed;
+        this.bikeSpeed = routingRequest.bikeSpeed;
+
+        this.walkReluctance = routingRequest.walkReluctance;
+        this.stairsReluctance = routingRequest.stairsReluctance;
+        this.turnReluctance = routingRequest.turnReluctance;
+
+        this.elevatorBoardCost = routingRequest.elevatorBoardCost;
+        this.elevatorBoardTime = routingRequest.elevatorBoardTime;
+        this.elevatorHopCost = routingRequest.elevatorHopCost;
+        this.elevatorHopTime = routingRequest.elevatorHopTime;
+    }
+}
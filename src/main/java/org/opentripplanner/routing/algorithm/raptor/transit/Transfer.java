@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.model.PathTransfer;
 import org.opentripplanner.routing.algorithm.raptor.transit.cost.RaptorCostConverter;
 import org.opentripplanner.routing.algorithm.raptor.transit.request.TransferWithDuration;
 import org.opentripplanner.routing.api.request.RoutingRequest;
@@ -18,22 +19,27 @@ public class Transfer {
 
     private final int distanceMeters;
 
-    private final List<Edge> edges;
+    /** The transfer with the street path, which is decoded only when it is needed */
+    private final PathTransfer pathTransfer;
 
-    public Transfer(int toStop, List<Edge> edges) {
+    public Transfer(int toStop, PathTransfer pathTransfer) {
         this.toStop = toStop;
-        this.edges = edges;
-        this.distanceMeters = (int) edges.stream().mapToDouble(Edge::getDistanceMeters).sum();
+        this.pathTransfer = pathTransfer;
+        this.distanceMeters = (int) pathTransfer.getEdges()
+                .stream()
+                .mapToDouble(Edge::getDistanceMeters)
+                .sum();
     }
 
     public Transfer(int toStopIndex, int distanceMeters) {
         this.toStop = toStopIndex;
         this.distanceMeters = distanceMeters;
-        this.edges = null;
+        this.pathTransfer = null;
     }
 
     public List<Coordinate> getCoordinates() {
         List<Coordinate> coordinates = new ArrayList<>();
+        List<Edge> edges = getEdges();
         if (edges == null) { return coordinates; }
         for (Edge edge : edges) {
             if (edge.getGeometry() != null) {
@@ -50,10 +56,33 @@ public class Transfer {
     }
 
     public List<Edge> getEdges() {
-        return edges;
+        return pathTransfer == null ? null : pathTransfer.getEdges();
     }
 
     public Optional<RaptorTransfer> asRaptorTransfer(RoutingRequest routingRequest) {
+        return asRaptorTransfer(routingRequest, -1);
+    }
+
+    /**
+     * Use the duration and cost pre-calculated for the graph build transfer request with the
+     * given index if there is one, otherwise traverse the edges with the routing request.
+     */
+    public Optional<RaptorTransfer> asRaptorTransfer(
+            RoutingRequest routingRequest,
+            int transferRequestIndex
+    ) {
+        if (pathTransfer != null && transferRequestIndex >= 0) {
+            int durationSeconds = pathTransfer.getDurationSeconds(transferRequestIndex);
+            if (durationSeconds >= 0) {
+                return Optional.of(new TransferWithDuration(
+                        this,
+                        durationSeconds,
+                        pathTransfer.getGeneralizedCost(transferRequestIndex)
+                ));
+            }
+        }
+
+        List<Edge> edges = getEdges();
         if (edges == null || edges.isEmpty()) {
             double durationSeconds = distanceMeters / routingRequest.walkSpeed;
             return Optional.of(new TransferWithDuration(
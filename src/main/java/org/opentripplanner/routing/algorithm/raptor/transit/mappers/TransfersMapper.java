@@ -31,10 +31,7 @@ class TransfersMapper {
                     int toStopIndex = stopIndex.indexByStop.get(pathTransfer.to);
                     Transfer newTransfer;
                     if (pathTransfer.getEdges() != null) {
-                        newTransfer = new Transfer(
-                            toStopIndex,
-                            pathTransfer.getEdges()
-                        );
+                        newTransfer = new Transfer(toStopIndex, pathTransfer);
                     }
                     else {
                         newTransfer = new Transfer(
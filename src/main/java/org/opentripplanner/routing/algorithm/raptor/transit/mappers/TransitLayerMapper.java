@@ -82,7 +82,10 @@ public class TransitLayerMapper {
             );
         }
 
-        var transferCache = new RaptorRequestTransferCache(tuningParameters.transferCacheMaxSize());
+        var transferCache = new RaptorRequestTransferCache(
+                tuningParameters.transferCacheMaxSize(),
+                List.copyOf(graph.transferRequestOptions)
+        );
 
         LOG.info("Mapping complete.");
 
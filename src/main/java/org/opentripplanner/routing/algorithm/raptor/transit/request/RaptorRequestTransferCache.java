@@ -4,20 +4,31 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import java.util.List;
-import lombok.EqualsAndHashCode;
 import lombok.SneakyThrows;
 import org.opentripplanner.routing.algorithm.raptor.transit.RaptorTransferIndex;
+import org.opentripplanner.routing.algorithm.raptor.transit.StreetRelevantOptions;
 import org.opentripplanner.routing.algorithm.raptor.transit.Transfer;
-import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.api.request.RoutingRequest;
-import org.opentripplanner.routing.api.request.StreetMode;
-import org.opentripplanner.routing.core.BicycleOptimizeType;
 
 public class RaptorRequestTransferCache {
 
     private final LoadingCache<CacheKey, RaptorTransferIndex> transferCache;
 
+    /**
+     * The options of the transfer requests used at graph build, the transfers have a pre-calculated
+     * duration and cost for each of them.
+     */
+    private final List<StreetRelevantOptions> transferRequestOptions;
+
     public RaptorRequestTransferCache(int maximumSize) {
+        this(maximumSize, List.of());
+    }
+
+    public RaptorRequestTransferCache(
+            int maximumSize,
+            List<StreetRelevantOptions> transferRequestOptions
+    ) {
+        this.transferRequestOptions = transferRequestOptions;
         transferCache = CacheBuilder.newBuilder()
             .maximumSize(maximumSize)
             .build(cacheLoader());
@@ -44,7 +55,8 @@ public class RaptorRequestTransferCache {
             public RaptorTransferIndex load(@javax.annotation.Nonnull CacheKey cacheKey) {
                 return RaptorTransferIndex.create(
                         cacheKey.transfersByStopIndex,
-                        cacheKey.routingRequest
+                        cacheKey.routingRequest,
+                        transferRequestOptions.indexOf(cacheKey.options)
                 );
             }
         };
@@ -83,59 +95,4 @@ public class RaptorRequestTransferCache {
             return options.hashCode();
         }
     }
-
-    /**
-     * This contains an extract of the parameters which may influence transfers. The possible values
-     * are somewhat limited by rounding in {@link Transfer#prepareTransferRoutingRequest(RoutingRequest)}.
-     *
-     * TODO: the bikeWalking options are not used.
-     */
-    @EqualsAndHashCode
-    private static class StreetRelevantOptions {
-
-        private final StreetMode transferMode;
-        private final BicycleOptimizeType optimize;
-        private final double bikeTriangleSafetyFactor;
-        private final double bikeTriangleSlopeFactor;
-        private final double bikeTriangleTimeFactor;
-        private final boolean wheelchairAccessible;
-        private final double maxWheelchairSlope;
-        private final double walkSpeed;
-        private final double bikeSpeed;
-        private final double walkReluctance;
-        private final double stairsReluctance;
-        private final double turnReluctance;
-        private final int elevatorBoardCost;
-        private final int elevatorBoardTime;
-        private final int elevatorHopCost;
-        private final int elevatorHopTime;
-        private final int bikeSwitchCost;
-        private final int bikeSwitchTime;
-
-        public StreetRelevantOptions(RoutingRequest routingRequest) {
-            this.transferMode = routingRequest.modes.transferMode;
-
-            this.optimize = routingRequest.bicycleOptimizeType;
-            this.bikeTriangleSafetyFactor = routingRequest.bikeTriangleSafetyFactor;
-            this.bikeTriangleSlopeFactor = routingRequest.bikeTriangleSlopeFactor;
-            this.bikeTriangleTimeFactor = routingRequest.bikeTriangleTimeFactor;
-            this.bikeSwitchCost = routingRequest.bikeSwitchCost;
-            this.bikeSwitchTime = routingRequest.bikeSwitchTime;
-
-            this.wheelchairAccessible = routingRequest.wheelchairAccessible;
-            this.maxWheelchairSlope = routingRequest.maxWheelchairSlope;
-
-            this.walkSpeed = routingRequest.walkSpeed;
-            this.bikeSpeed = routingRequest.bikeSpeed;
-
-            this.walkReluctance = routingRequest.walkReluctance;
-            this.stairsReluctance = routingRequest.stairsReluctance;
-            this.turnReluctance = routingRequest.turnReluctance;
-
-            this.elevatorBoardCost = routingRequest.elevatorBoardCost;
-            this.elevatorBoardTime = routingRequest.elevatorBoardTime;
-            this.elevatorHopCost = routingRequest.elevatorHopCost;
-            this.elevatorHopTime = routingRequest.elevatorHopTime;
-        }
-    }
 }
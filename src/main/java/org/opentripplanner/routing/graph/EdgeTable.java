@@ -0,0 +1,116 @@
+package org.opentripplanner.routing.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores sequences of edges, like the street paths of the pre-calculated transfers, as compact byte
+ * arrays. Each distinct edge gets an index in the table the first time it is encoded, and a
+ * sequence is stored as the variable-length encoded differences between the indexes of consecutive
+ * edges. The edges along a path are mostly encoded together, so the differences are small and an
+ * edge usually takes one or two bytes, instead of a reference in a list.
+ * <p>
+ * Encoding is synchronized, so a table can be shared by the parallel graph builder threads.
+ * Decoding is not, a sequence can be decoded by any thread which has seen the encoded bytes. The
+ * indexes depend on the order in which the sequences are encoded, so a graph builder which needs
+ * the same table for the same input should encode in a deterministic order.
+ */
+public class EdgeTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile Edge[] edges = new Edge[16];
+
+    private int size = 0;
+
+    /** Rebuilt from the edges if needed after deserialization. */
+    private transient Map<Edge, Integer> indexByEdge;
+
+    /** Encode the given edges, adding the edges not already in the table. */
+    public synchronized byte[] encode(List<Edge> sequence) {
+        // Room for the size and the differences, which take at most five bytes each
+        byte[] buffer = new byte[5 * (sequence.size() + 1)];
+        int pos = writeVarInt(buffer, 0, sequence.size());
+        int previous = 0;
+        for (Edge edge : sequence) {
+            int index = indexOf(edge);
+            int delta = index - previous;
+            // Zigzag encode the difference, so small negative differences also take few bytes
+            pos = writeVarInt(buffer, pos, (delta << 1) ^ (delta >> 31));
+            previous = index;
+        }
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    /** Decode a sequence encoded by this table. */
+    public List<Edge> decode(byte[] encoded) {
+        Edge[] table = edges;
+        Reader reader = new Reader(encoded);
+        Edge[] sequence = new Edge[reader.readVarInt()];
+        int index = 0;
+        for (int i = 0; i < sequence.length; ++i) {
+            int zigzag = reader.readVarInt();
+            index += (zigzag >>> 1) ^ -(zigzag & 1);
+            sequence[i] = table[index];
+        }
+        return Arrays.asList(sequence);
+    }
+
+    /** The number of distinct edges in the table. */
+    public synchronized int size() {
+        return size;
+    }
+
+    private int indexOf(Edge edge) {
+        if (indexByEdge == null) {
+            indexByEdge = new IdentityHashMap<>();
+            for (int i = 0; i < size; ++i) {
+                indexByEdge.put(edges[i], i);
+            }
+        }
+        Integer index = indexByEdge.get(edge);
+        if (index != null) {
+            return index;
+        }
+        if (size == edges.length) {
+            edges = Arrays.copyOf(edges, size * 2);
+        }
+        edges[size] = edge;
+        indexByEdge.put(edge, size);
+        return size++;
+    }
+
+    private static int writeVarInt(byte[] buffer, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static class Reader {
+
+        private final byte[] bytes;
+        private int pos = 0;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -27,9 +27,11 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.prefs.Preferences;
@@ -44,6 +46,7 @@ import org.opentripplanner.common.geometry.CompactElevationProfile;
 import org.opentripplanner.common.geometry.GraphUtils;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.T2;
+import org.opentripplanner.ext.flex.flexpathcalculator.FlexPathMatrix;
 import org.opentripplanner.ext.flex.trip.FlexTrip;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.graph_builder.issues.NoFutureDates;
@@ -76,6 +79,7 @@ import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.model.calendar.impl.CalendarServiceImpl;
 import org.opentripplanner.model.projectinfo.OtpProjectInfo;
 import org.opentripplanner.model.transfer.TransferService;
+import org.opentripplanner.routing.algorithm.raptor.transit.StreetRelevantOptions;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerUpdater;
 import org.opentripplanner.routing.core.intersection_model.IntersectionTraversalCostModel;
@@ -202,6 +206,12 @@ public class Graph implements Serializable {
     /** True if OSM data was loaded into this Graph. */
     public boolean hasStreets = false;
 
+    /**
+     * A fingerprint of the OSM and DEM data and the build config used to build the streets of this
+     * graph. Used by the incremental build to check if a saved street graph can be reused.
+     */
+    public String streetInputFingerprint = null;
+
     /** True if GTFS data was loaded into this Graph. */
     public boolean hasTransit = false;
 
@@ -257,12 +267,24 @@ public class Graph implements Serializable {
     /** Pre-generated transfers between all stops. */
     public final Multimap<StopLocation, PathTransfer> transfersByStop = HashMultimap.create();
 
+    /** The street paths of the pre-generated transfers, shared by all the transfers. */
+    public final EdgeTable transferEdgeTable = new EdgeTable();
+
+    /**
+     * The options of the transfer requests used to pre-generate the transfers. The transfers store
+     * a duration and cost for each of them, in the same order.
+     */
+    public final List<StreetRelevantOptions> transferRequestOptions = new ArrayList<>();
+
     public Map<FeedScopedId, FlexStopLocation> locationsById = new HashMap<>();
 
     public Map<FeedScopedId, FlexLocationGroup> locationGroupsById = new HashMap<>();
 
     public Map<FeedScopedId, FlexTrip> flexTripsById = new HashMap<>();
 
+    /** Precomputed driving paths between flex stops and zones, or null if not computed. */
+    public FlexPathMatrix flexPathMatrix;
+
     /** The distance between elevation samples used in CompactElevationProfile. */
     private double distanceBetweenElevationSamples;
 
@@ -634,15 +656,31 @@ public class Graph implements Serializable {
      */
     public void index () {
         LOG.info("Index graph...");
-        streetIndex = new StreetVertexIndex(this);
+        long start = System.currentTimeMillis();
+        // The street index only depend on the street graph, build it in parallel with the
+        // transit indices.
+        CompletableFuture<Long> streetIndexTime = CompletableFuture.supplyAsync(() -> {
+            long t0 = System.currentTimeMillis();
+            streetIndex = new StreetVertexIndex(this);
+            return System.currentTimeMillis() - t0;
+        });
         LOG.debug("Rebuilding edge and vertex indices.");
-        for (TripPattern tp : tripPatternForId.values()) {
+        tripPatternForId.values()
+            .parallelStream()
             // Skip frequency-based patterns which have no timetable (null)
-            if (tp != null) tp.getScheduledTimetable().finish();
-        }
+            .filter(Objects::nonNull)
+            .forEach(tp -> tp.getScheduledTimetable().finish());
         // TODO: Move this ^ stuff into the graph index
+        long t0 = System.currentTimeMillis();
         this.index = new GraphIndex(this);
-        LOG.info("Index graph complete.");
+        long transitIndexTime = System.currentTimeMillis() - t0;
+        long streetTime = streetIndexTime.join();
+        LOG.info(
+            "Index graph complete in {} ms [street index: {} ms, transit index: {} ms].",
+            System.currentTimeMillis() - start,
+            streetTime,
+            transitIndexTime
+        );
     }
     
     public CalendarService getCalendarService() {
@@ -53,6 +53,7 @@ public class GraphIndex {
     private final Map<Station, MultiModalStation> multiModalStationForStations = Maps.newHashMap();
     private final HashGridSpatialIndex<TransitStopVertex> stopSpatialIndex = new HashGridSpatialIndex<>();
     private final Map<ServiceDate, TIntSet> serviceCodesRunningForDate = new HashMap<>();
+    private final TripStartTimeIndex tripStartTimeIndex;
     private FlexIndex flexIndex = null;
 
     public GraphIndex(Graph graph) {
@@ -103,6 +104,8 @@ public class GraphIndex {
 
         initalizeServiceCodesForDate(graph);
 
+        tripStartTimeIndex = new TripStartTimeIndex(patternsForRoute, serviceCodesRunningForDate);
+
         if (OTPFeature.FlexRouting.isOn()) {
             flexIndex = new FlexIndex(graph);
             for (Route route : flexIndex.routeById.values()) {
@@ -254,6 +257,10 @@ public class GraphIndex {
         return serviceCodesRunningForDate;
     }
 
+    public TripStartTimeIndex getTripStartTimeIndex() {
+        return tripStartTimeIndex;
+    }
+
     public FlexIndex getFlexIndex() {
         return flexIndex;
     }
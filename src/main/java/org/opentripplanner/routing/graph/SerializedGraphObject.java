@@ -20,19 +20,22 @@ import gnu.trove.impl.hash.TPrimitiveHash;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntIntHashMap;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.objenesis.strategy.SerializingInstantiatorStrategy;
 import org.opentripplanner.datastore.DataSource;
+import org.opentripplanner.datastore.FileType;
+import org.opentripplanner.datastore.file.FileDataSource;
 import org.opentripplanner.kryo.BuildConfigSerializer;
 import org.opentripplanner.kryo.HashBiMapSerializer;
 import org.opentripplanner.kryo.RouterConfigSerializer;
@@ -59,6 +62,12 @@ import org.slf4j.LoggerFactory;
 public class SerializedGraphObject implements Serializable {
     private static final Logger LOG = LoggerFactory.getLogger(SerializedGraphObject.class);
 
+    /**
+     * The default Kryo buffer of 4 KB results in a very large number of small reads for a graph
+     * of several GB.
+     */
+    private static final int INPUT_BUFFER_SIZE = 1024 * 1024;
+
     public final Graph graph;
 
     private final Collection<Edge> edges;
@@ -71,11 +80,24 @@ public class SerializedGraphObject implements Serializable {
 
     public SerializedGraphObject(Graph graph, BuildConfig buildConfig, RouterConfig routerConfig) {
         this.graph = graph;
-        this.edges = graph.getEdges();
+        this.edges = edgesInOrder(graph);
         this.buildConfig = buildConfig;
         this.routerConfig = routerConfig;
     }
 
+    /**
+     * List the edges vertex by vertex, each vertex in the order of its outgoing edge list. Unlike
+     * {@link Graph#getEdges()}, which is a hash set of edges with identity hashed vertices, the
+     * order is the same every time the saved graph is loaded.
+     */
+    private static List<Edge> edgesInOrder(Graph graph) {
+        List<Edge> edges = new ArrayList<>();
+        for (Vertex v : graph.getVertices()) {
+            edges.addAll(v.getOutgoing());
+        }
+        return edges;
+    }
+
     public static void verifyTheOutputGraphIsWritableIfDataSourceExist(DataSource graphOutput) {
         if (graphOutput != null) {
             // Abort building a graph if the file can not be saved
@@ -94,16 +116,12 @@ public class SerializedGraphObject implements Serializable {
     }
 
     public static Graph load(File file) {
-        try {
-            SerializedGraphObject serObj = load(
-                    new FileInputStream(file),
-                    file.getAbsolutePath()
-            );
-            return serObj == null ? null : serObj.graph;
-        } catch (FileNotFoundException e) {
-            LOG.error("Graph file not found: " + file, e);
-            throw new OtpAppException(e.getMessage());
+        if (!file.exists()) {
+            LOG.error("Graph file not found: " + file);
+            throw new OtpAppException("Graph file not found: " + file);
         }
+        SerializedGraphObject serObj = load(new FileDataSource(file, FileType.GRAPH));
+        return serObj == null ? null : serObj.graph;
     }
 
     /**
@@ -112,15 +130,21 @@ public class SerializedGraphObject implements Serializable {
      * serializing. This method will reconstruct all those edge lists after deserialization.
      */
     public void reconstructEdgeLists() {
-        for (Vertex v : graph.getVertices()) {
-            v.initEdgeLists();
-        }
-        for (Edge e : edges) {
-            Vertex fromVertex = e.getFromVertex();
-            Vertex toVertex = e.getToVertex();
-            fromVertex.addOutgoing(e);
-            toVertex.addIncoming(e);
-        }
+        graph.getVertices().parallelStream().forEach(Vertex::initEdgeLists);
+        // The edges are grouped by vertex in parallel. The grouping keeps the order of the
+        // serialized edges, so each vertex gets its edges in the same order as when they are added
+        // one at the time. The order of the edge lists is visible in routing, e.g. in the order of
+        // equal cost paths, so it must not depend on the thread scheduling.
+        Map<Vertex, List<Edge>> outgoing = edges.parallelStream()
+                .collect(Collectors.groupingBy(Edge::getFromVertex));
+        Map<Vertex, List<Edge>> incoming = edges.parallelStream()
+                .collect(Collectors.groupingBy(Edge::getToVertex));
+        outgoing.entrySet().parallelStream().forEach(
+                it -> it.getValue().forEach(it.getKey()::addOutgoing)
+        );
+        incoming.entrySet().parallelStream().forEach(
+                it -> it.getValue().forEach(it.getKey()::addIncoming)
+        );
     }
 
     /**
@@ -214,19 +238,28 @@ public class SerializedGraphObject implements Serializable {
         // TODO store version information, halt load if versions mismatch
         try(inputStream) {
             LOG.info("Reading graph from '{}'", sourceDescription);
-            Input input = new Input(inputStream);
+            Input input = new Input(inputStream, INPUT_BUFFER_SIZE);
 
             validateGraphSerializationId(
                 input.readBytes(GraphFileHeader.headerLength()),
                 sourceDescription
             );
 
+            long start = System.currentTimeMillis();
             Kryo kryo = makeKryo();
             SerializedGraphObject serObj = (SerializedGraphObject) kryo.readClassAndObject(input);
             Graph graph = serObj.graph;
-            LOG.debug("Graph read.");
+            long deserialized = System.currentTimeMillis();
             serObj.reconstructEdgeLists();
-            LOG.info("Graph read. |V|={} |E|={}", graph.countVertices(), graph.countEdges());
+            long end = System.currentTimeMillis();
+            LOG.info(
+                "Graph read in {} ms [deserialize: {} ms, edge lists: {} ms]. |V|={} |E|={}",
+                end - start,
+                deserialized - start,
+                end - deserialized,
+                graph.countVertices(),
+                graph.countEdges()
+            );
             return serObj;
         }
         catch (IOException e) {
@@ -0,0 +1,94 @@
+package org.opentripplanner.routing.graph;
+
+import com.google.common.collect.Multimap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TIntSet;
+import org.opentripplanner.model.Route;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of scheduled trips by route, GTFS direction code and scheduled departure time from the
+ * first stop. It is used to look up trips from GTFS-RT TripDescriptors without a trip_id, see
+ * {@link org.opentripplanner.updater.GtfsRealtimeFuzzyTripMatcher}.
+ * <p>
+ * The index is built once, together with the {@link GraphIndex}, and is never modified after
+ * that. Lookups are therefore lock-free. The service date is not part of the key; instead the
+ * (usually very few) candidate trips are filtered using the precomputed set of service codes
+ * running on the date.
+ */
+public class TripStartTimeIndex {
+
+    private static final TripTimes[] EMPTY = new TripTimes[0];
+
+    private final Map<Route, TLongObjectMap<TripTimes[]>> tripTimesByRoute = new HashMap<>();
+
+    private final Map<ServiceDate, TIntSet> serviceCodesRunningForDate;
+
+    TripStartTimeIndex(
+            Multimap<Route, TripPattern> patternsForRoute,
+            Map<ServiceDate, TIntSet> serviceCodesRunningForDate
+    ) {
+        this.serviceCodesRunningForDate = serviceCodesRunningForDate;
+
+        for (Map.Entry<Route, Collection<TripPattern>> it : patternsForRoute.asMap().entrySet()) {
+            // Keep the pattern and timetable order, the first matching trip wins
+            TLongObjectMap<List<TripTimes>> candidates = new TLongObjectHashMap<>();
+            for (TripPattern pattern : it.getValue()) {
+                int direction = pattern.getDirection().gtfsCode;
+                for (TripTimes times : pattern.getScheduledTimetable().getTripTimes()) {
+                    long key = key(direction, times.getScheduledDepartureTime(0));
+                    List<TripTimes> list = candidates.get(key);
+                    if (list == null) {
+                        list = new ArrayList<>(1);
+                        candidates.put(key, list);
+                    }
+                    list.add(times);
+                }
+            }
+            TLongObjectMap<TripTimes[]> tripTimes = new TLongObjectHashMap<>(candidates.size());
+            candidates.forEachEntry((key, list) -> {
+                tripTimes.put(key, list.toArray(EMPTY));
+                return true;
+            });
+            tripTimesByRoute.put(it.getKey(), tripTimes);
+        }
+    }
+
+    /**
+     * Find the first scheduled trip on the given route and direction (GTFS direction code) which
+     * departs from its first stop at the given time on the given service date.
+     *
+     * @return the matching trip, or {@code null} if no trip match.
+     */
+    public Trip getTrip(Route route, int direction, int startTime, ServiceDate date) {
+        TLongObjectMap<TripTimes[]> tripTimes = tripTimesByRoute.get(route);
+        if (tripTimes == null) { return null; }
+
+        TripTimes[] candidates = tripTimes.get(key(direction, startTime));
+        if (candidates == null) { return null; }
+
+        TIntSet servicesRunning = serviceCodesRunningForDate.get(date);
+        if (servicesRunning == null) { return null; }
+
+        for (TripTimes times : candidates) {
+            if (servicesRunning.contains(times.getServiceCode())) {
+                return times.getTrip();
+            }
+        }
+        return null;
+    }
+
+    private static long key(int direction, int startTime) {
+        return ((long) direction << 32) | (startTime & 0xFFFFFFFFL);
+    }
+}
@@ -131,6 +131,10 @@ public class OTPMain {
                     app.graphOutputDataSource()
             );
 
+            if (params.doBuildIncremental()) {
+                graph = app.loadOrBuildStreetGraph();
+            }
+
             GraphBuilder graphBuilder = app.createGraphBuilder(graph);
             if (graphBuilder != null) {
                 graphBuilder.run();
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -206,6 +207,27 @@ public class BuildConfig {
      */
     public final double maxTransferDurationSeconds;
 
+    /**
+     * Remove the pre-calculated transfers which can never be used to reach a new trip pattern:
+     * transfers from stops where no pattern alights, and transfers to stops where all patterns
+     * which can be boarded are also boarded at the origin or at the target of a shorter transfer.
+     * This makes the transfer tables smaller, but trips added in real-time on new patterns may not
+     * get the transfers they need.
+     */
+    public final boolean pruneDominatedTransfers;
+
+    /**
+     * Precompute the driving time and distance between the stops and the flexible zones served by
+     * the same flex trips, and store them in the graph. Only used with the FlexRouting feature.
+     */
+    public final boolean flexPathMatrix;
+
+    /**
+     * The maximum number of paths in the flex path matrix. If more paths are needed, the matrix is
+     * not built and the flex paths are searched when needed.
+     */
+    public final long flexPathMatrixMaxSize;
+
     /**
      * This will add extra edges when linking a stop to a platform, to prevent detours along the platform edge.
      */
@@ -342,6 +364,9 @@ public class BuildConfig {
         osmWayPropertySet = WayPropertySetSource.fromConfig(c.asText("osmWayPropertySet", "default"));
         parentStopLinking = c.asBoolean("parentStopLinking", false);
         platformEntriesLinking = c.asBoolean("platformEntriesLinking", false);
+        pruneDominatedTransfers = c.asBoolean("pruneDominatedTransfers", false);
+        flexPathMatrix = c.asBoolean("flexPathMatrix", false);
+        flexPathMatrixMaxSize = c.asLong("flexPathMatrixMaxSize", 20_000_000);
         readCachedElevations = c.asBoolean("readCachedElevations", true);
         staticBikeParkAndRide = c.asBoolean("staticBikeParkAndRide", false);
         staticParkAndRide = c.asBoolean("staticParkAndRide", true);
@@ -388,6 +413,18 @@ public class BuildConfig {
         return rawJson.isMissingNode() ? "" : rawJson.toString();
     }
 
+    /**
+     * The JSON of the given parameters only, parameters not set are included as missing. This is
+     * used to detect changes in the part of the config used by a subset of the build.
+     */
+    public String toJson(Collection<String> parameterNames) {
+        StringBuilder buf = new StringBuilder();
+        for (String name : parameterNames) {
+            buf.append(name).append('=').append(rawJson.path(name).toString()).append(';');
+        }
+        return buf.toString();
+    }
+
     public ServiceDateInterval getTransitServicePeriod() {
         return new ServiceDateInterval(
                 new ServiceDate(transitServiceStart),
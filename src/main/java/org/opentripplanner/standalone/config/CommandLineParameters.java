@@ -76,6 +76,15 @@ public class CommandLineParameters implements Cloneable {
     )
     public boolean loadStreet = false;
 
+    @Parameter(
+            names = {"--incremental"},
+            description = "Used with '--build'. Load 'streetGraph.obj' and build transit data on top "
+                    + "of it if the OSM and DEM data and the street related build config are "
+                    + "unchanged since it was built. If not, build and save a new 'streetGraph.obj' "
+                    + "first."
+    )
+    public boolean incremental = false;
+
 
     @Parameter(
             names = {"--save"}, description = "Save the 'graph.obj' to local disk or data source "
@@ -179,6 +188,14 @@ public class CommandLineParameters implements Cloneable {
         return buildStreet;
     }
 
+    /**
+     * Build the street graph and the transit data in two steps, reusing the saved street graph if
+     * its input is unchanged.
+     */
+    public boolean doBuildIncremental() {
+        return build && incremental;
+    }
+
     public boolean doServe() {
         return load || (serve && doBuildTransit());
     }
@@ -292,6 +309,9 @@ public class CommandLineParameters implements Cloneable {
         if (buildStreet) {
             validateParamNotSet("--buildStreet", serve, "--serve");
         }
+        if (incremental && !build) {
+            throw new ParameterException("--incremental can only be used with --build" + TIP);
+        }
     }
 
     private void validateParamNotSet(String mainParam, boolean noneCompliantParam, String name) {
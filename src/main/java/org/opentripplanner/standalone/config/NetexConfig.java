@@ -20,6 +20,8 @@ public class NetexConfig {
 
     private static final Set<String> FERRY_IDS_NOT_ALLOWED_FOR_BICYCLE = Collections.emptySet();
 
+    private static final int PARSE_AHEAD_DOCUMENTS = 1;
+
     /**
      * This field is used to identify the specific NeTEx feed. It is used instead of the feed_id
      * field in GTFS file feed_info.txt.
@@ -95,6 +97,15 @@ public class NetexConfig {
      */
     public final Set<String> ferryIdsNotAllowedForBicycle;
 
+    /**
+     * The number of XML files parsed on other threads, while the current file is added to the
+     * index and mapped. The parsed document of each file is kept in memory until it is used, and
+     * can be many times larger than the file. Use {@code 0} to parse each file when it is used.
+     * <p>
+     * Default value is <code>1</code>
+     */
+    public final int parseAheadDocuments;
+
     NetexConfig(NodeAdapter config) {
         ignoreFilePattern = config.asPattern("ignoreFilePattern", IGNORE_FILE_PATTERN);
         sharedFilePattern = config.asPattern("sharedFilePattern", SHARED_FILE_PATTERN);
@@ -105,5 +116,6 @@ public class NetexConfig {
                 "ferryIdsNotAllowedForBicycle",
                 FERRY_IDS_NOT_ALLOWED_FOR_BICYCLE
         );
+        parseAheadDocuments = config.asInt("parseAheadDocuments", PARSE_AHEAD_DOCUMENTS);
     }
 }
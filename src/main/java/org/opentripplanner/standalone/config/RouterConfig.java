@@ -115,6 +115,10 @@ public class RouterConfig implements Serializable {
         return flexConfig.toFlexParameters(request);
     }
 
+    public FlexConfig flexConfig() {
+        return flexConfig;
+    }
+
     /**
      * If {@code true} the config is loaded from file, in not the DEFAULT config is used.
      */
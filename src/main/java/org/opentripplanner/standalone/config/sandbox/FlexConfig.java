@@ -1,15 +1,22 @@
 package org.opentripplanner.standalone.config.sandbox;
 
 import org.opentripplanner.ext.flex.FlexParameters;
+import org.opentripplanner.ext.flex.flexpathcalculator.FlexPathCache;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.standalone.config.NodeAdapter;
 
 public class FlexConfig {
   public static final int DEFAULT_MAX_TRANSFER_SECONDS = 60 * 5; // 5 minutes
   public final int maxTransferSeconds;
+  public final boolean precomputeStreetPaths;
+  public final long streetPathCacheMaxEntries;
 
   public FlexConfig(NodeAdapter json) {
     maxTransferSeconds = json.asInt("maxTransferDurationSeconds", DEFAULT_MAX_TRANSFER_SECONDS);
+    precomputeStreetPaths = json.asBoolean("precomputeStreetPaths", false);
+    streetPathCacheMaxEntries = json.asLong(
+        "streetPathCacheMaxEntries", FlexPathCache.DEFAULT_MAX_CACHED_ENTRIES
+    );
   }
 
   public FlexParameters toFlexParameters(RoutingRequest request) {
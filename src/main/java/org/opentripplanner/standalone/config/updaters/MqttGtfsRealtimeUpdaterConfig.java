@@ -11,7 +11,8 @@ public class MqttGtfsRealtimeUpdaterConfig {
         c.asText("url"),
         c.asText("topic"),
         c.asInt("qos", 0),
-        c.asBoolean("fuzzyTripMatching", false)
+        c.asBoolean("fuzzyTripMatching", false),
+        TripUpdateBatchConfig.create(c)
     );
   }
 }
@@ -0,0 +1,19 @@
+package org.opentripplanner.standalone.config.updaters;
+
+import org.opentripplanner.standalone.config.NodeAdapter;
+import org.opentripplanner.updater.stoptime.TripUpdateBatchParameters;
+import org.opentripplanner.updater.stoptime.TripUpdateBatchParameters.OverflowPolicy;
+
+/**
+ * Micro-batching config shared by the streaming GTFS-RT updaters (MQTT and websocket).
+ */
+public class TripUpdateBatchConfig {
+  public static TripUpdateBatchParameters create(NodeAdapter c) {
+    return new TripUpdateBatchParameters(
+        c.asInt("batchWindowMs", 200),
+        c.asInt("maxBatchSize", 10_000),
+        c.asInt("maxPendingUpdates", 100_000),
+        c.asEnum("overflowPolicy", OverflowPolicy.DROP_OLDEST)
+    );
+  }
+}
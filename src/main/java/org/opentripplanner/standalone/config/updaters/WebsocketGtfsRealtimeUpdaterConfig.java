@@ -9,7 +9,8 @@ public class WebsocketGtfsRealtimeUpdaterConfig {
         configRef,
         c.asText("feedId", null),
         c.asText("url", null),
-        c.asInt("reconnectPeriodSec", 60)
+        c.asInt("reconnectPeriodSec", 60),
+        TripUpdateBatchConfig.create(c)
     );
   }
 }
\ No newline at end of file
@@ -6,18 +6,24 @@ import org.opentripplanner.datastore.configure.DataStoreFactory;
 import org.opentripplanner.graph_builder.GraphBuilder;
 import org.opentripplanner.graph_builder.GraphBuilderDataSources;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SerializedGraphObject;
 import org.opentripplanner.standalone.config.CommandLineParameters;
 import org.opentripplanner.standalone.server.GrizzlyServer;
 import org.opentripplanner.standalone.server.OTPApplication;
 import org.opentripplanner.standalone.server.OTPServer;
 import org.opentripplanner.standalone.server.Router;
 import org.opentripplanner.util.OTPFeature;
+import org.opentripplanner.util.OtpAppException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.ws.rs.core.Application;
 
+import static org.opentripplanner.datastore.FileType.DEM;
+import static org.opentripplanner.datastore.FileType.GTFS;
+import static org.opentripplanner.datastore.FileType.NETEX;
+import static org.opentripplanner.datastore.FileType.OSM;
 import static org.opentripplanner.model.projectinfo.OtpProjectInfo.projectInfo;
 
 /**
@@ -82,11 +88,59 @@ public class OTPAppConstruction {
      */
     public GraphBuilder createGraphBuilder(Graph baseGraph) {
         LOG.info("Wiring up and configuring graph builder task.");
-        return GraphBuilder.create(
+        // In an incremental build the street graph is built in a separate step, see
+        // loadOrBuildStreetGraph()
+        GraphBuilderDataSources dataSources = config.getCli().doBuildIncremental()
+                ? graphBuilderDataSources().select(GTFS, NETEX)
+                : graphBuilderDataSources();
+        return GraphBuilder.create(config.buildConfig(), dataSources, baseGraph);
+    }
+
+    /**
+     * Used by the incremental build to get the street graph to build the transit data on top of.
+     * The saved street graph is loaded if the OSM and DEM data and the street related build config
+     * are unchanged since it was built. Otherwise a new street graph is built and saved, before
+     * it is returned.
+     *
+     * @return the street graph, or {@code null} if there is no OSM data.
+     */
+    @Nullable
+    public Graph loadOrBuildStreetGraph() {
+        GraphBuilderDataSources streetDataSources = graphBuilderDataSources().select(OSM, DEM);
+        if (!streetDataSources.has(OSM)) {
+            return null;
+        }
+        String fingerprint = GraphBuilder.streetInputFingerprint(
+                config.buildConfig(),
+                streetDataSources
+        );
+        DataSource streetGraph = store().getStreetGraph();
+
+        if (fingerprint != null && streetGraph.exists()) {
+            try {
+                SerializedGraphObject obj = SerializedGraphObject.load(streetGraph);
+                if (obj != null && fingerprint.equals(obj.graph.streetInputFingerprint)) {
+                    LOG.info("Street graph input is unchanged, reusing: {}", streetGraph.path());
+                    return obj.graph;
+                }
+                LOG.info("Street graph input has changed, building a new street graph.");
+            }
+            catch (OtpAppException e) {
+                LOG.info("Unable to reuse street graph, building a new one: {}", e.getMessage());
+            }
+        }
+
+        GraphBuilder streetGraphBuilder = GraphBuilder.create(
                 config.buildConfig(),
-                graphBuilderDataSources(),
-                baseGraph
+                streetDataSources,
+                null
         );
+        streetGraphBuilder.run();
+        Graph graph = streetGraphBuilder.getGraph();
+        graph.streetInputFingerprint = fingerprint;
+        new SerializedGraphObject(graph, config.buildConfig(), config.routerConfig())
+                .save(streetGraph);
+        return graph;
     }
 
     /**
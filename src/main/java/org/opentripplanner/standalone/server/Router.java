@@ -94,6 +94,20 @@ public class Router {
             LOG.warn("Cannot create Raptor data, that requires the graph to have transit data and be indexed.");
         }
 
+        if (
+            OTPFeature.FlexRouting.isOn()
+            && graph.index != null
+            && graph.index.getFlexIndex() != null
+        ) {
+            graph.index.getFlexIndex().flexPathCache.setMaxCachedEntries(
+                routerConfig.flexConfig().streetPathCacheMaxEntries
+            );
+            if (routerConfig.flexConfig().precomputeStreetPaths) {
+                LOG.info("Precomputing flex street paths.");
+                graph.index.getFlexIndex().precomputeFlexPaths(graph);
+            }
+        }
+
         /* Create Graph updater modules from JSON config. */
         GraphUpdaterConfigurator.setupGraph(
             this.graph,
@@ -49,6 +49,15 @@ public interface GraphUpdater {
         return true;
     }
 
+    /**
+     * The priority lane used for the GraphWriterRunnables submitted by this updater. Updaters
+     * applying realtime trip updates should override this and return
+     * {@link GraphWriterPriority#HIGH}.
+     */
+    default GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.NORMAL;
+    }
+
     /**
      * This is the updater "type" used in the configuration file. It should ONLY be used
      * to provide human friendly messages while logging and debugging.
@@ -53,6 +53,12 @@ public class GraphUpdaterManager {
      */
     private ScheduledExecutorService scheduler;
 
+    /**
+     * All graph writer tasks go through this queue, which decides in which order they are passed
+     * on to the single writer thread (the scheduler).
+     */
+    private GraphWriterQueue writerQueue;
+
     /**
      * A pool of threads on which the updaters will run.
      * This creates a pool that will auto-scale up to any size (maximum pool size is MAX_INT).
@@ -83,6 +89,7 @@ public class GraphUpdaterManager {
         
         threadFactory = new ThreadFactoryBuilder().setNameFormat("GraphUpdater-" + routerId + "-%d").build();
         scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        writerQueue = new GraphWriterQueue(graph, scheduler);
         updaterPool = Executors.newCachedThreadPool(threadFactory);
     }
 
@@ -142,17 +149,26 @@ public class GraphUpdaterManager {
      * scheduled after each other, guaranteeing that only one of these runnables will be active at
      * any time. If a particular GraphUpdater calls this method on more than one GraphWriterRunnable, they should be
      * executed in the same order that GraphUpdater made the calls.
-     * 
+     * <p>
+     * Runnables are queued in the {@link GraphUpdater#getWriterPriority()} lane of the updater, and
+     * consecutive runnables from the same updater are executed together in one batch.
+     *
+     * @param updater is the updater submitting the runnable
+     * @param runnable is a graph writer runnable
+     */
+    public void execute(GraphUpdater updater, GraphWriterRunnable runnable) {
+        writerQueue.submit(updater, updater.getWriterPriority(), runnable);
+    }
+
+    /**
+     * Same as {@link #execute(GraphUpdater, GraphWriterRunnable)}, but for runnables not submitted
+     * by an updater. These are queued with {@link GraphWriterPriority#NORMAL} priority and are
+     * never batched.
+     *
      * @param runnable is a graph writer runnable
      */
     public void execute(GraphWriterRunnable runnable) {
-        scheduler.submit(() -> {
-            try {
-                runnable.run(graph);
-            } catch (Exception e) {
-                LOG.error("Error while running graph writer {}:", runnable.getClass().getName(), e);
-            }
-        });
+        writerQueue.submit(null, GraphWriterPriority.NORMAL, runnable);
     }
 
     public int size() {
@@ -219,4 +235,8 @@ public class GraphUpdaterManager {
     public ScheduledExecutorService getScheduler() {
         return scheduler;
     }
+
+    public GraphWriterQueue getWriterQueue() {
+        return writerQueue;
+    }
 }
@@ -0,0 +1,17 @@
+package org.opentripplanner.updater;
+
+/**
+ * The priority lane a {@link GraphWriterRunnable} is queued in. When the graph writer thread is
+ * free it always picks the next task from the highest priority lane that is not empty. The order
+ * of the tasks within a lane is preserved.
+ *
+ * @see GraphWriterQueue
+ */
+public enum GraphWriterPriority {
+    /** Realtime trip updates - these affect the routing results the most. */
+    HIGH,
+    /** The default, used for alerts and vehicle rental updates. */
+    NORMAL,
+    /** Slowly changing data, like vehicle parking and street notes. */
+    LOW
+}
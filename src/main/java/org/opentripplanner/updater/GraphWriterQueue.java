@@ -0,0 +1,230 @@
+package org.opentripplanner.updater;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Queue in front of the single graph writer thread. Instead of submitting each
+ * {@link GraphWriterRunnable} directly to the writer executor, tasks are put in one of the
+ * {@link GraphWriterPriority} lanes. Each time the writer thread is free it takes the next task
+ * from the highest priority lane, together with all directly following tasks in the same lane
+ * submitted by the same updater. Consecutive tasks in a batch are merged when they support it, see
+ * {@link GraphWriterRunnable#mergeWith(GraphWriterRunnable)}, so a burst of small updates is
+ * applied and published as one graph update. The remaining tasks of the batch are executed
+ * back-to-back, so they do not interleave with the tasks of other updaters.
+ * <p>
+ * A task which has waited longer than the maximum wait time is taken before the tasks of higher
+ * priority lanes, so a steady stream of high priority tasks can not starve the lower lanes.
+ * <p>
+ * The order of the tasks submitted by one updater is preserved, as an updater always uses the
+ * same lane.
+ * <p>
+ * The queue size per lane and the queue and run time per updater are reported through
+ * Micrometer, see {@link #bindTo(MeterRegistry)}.
+ */
+public class GraphWriterQueue implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GraphWriterQueue.class);
+
+    /** Limit the number of tasks in one batch, to let higher priority tasks in between. */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /** Tasks waiting longer than this are taken before the tasks of higher priority lanes. */
+    private static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(10);
+
+    private static final String UNKNOWN_SOURCE = "unknown";
+
+    private final Graph graph;
+
+    private final Executor writerExecutor;
+
+    private final long maxWaitNanos;
+
+    private final LongSupplier nanoClock;
+
+    /** All lanes are guarded by the monitor of this queue. */
+    private final Map<GraphWriterPriority, Deque<Task>> lanes = new EnumMap<>(GraphWriterPriority.class);
+
+    /**
+     * Meters are registered here, and published to the registries this queue is bound to. Until the
+     * queue is bound the meters are no-op.
+     */
+    private final CompositeMeterRegistry meterRegistry = new CompositeMeterRegistry();
+
+    private final Map<String, Timer> queueTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> runTimers = new ConcurrentHashMap<>();
+
+    public GraphWriterQueue(Graph graph, Executor writerExecutor) {
+        this(graph, writerExecutor, DEFAULT_MAX_WAIT, System::nanoTime);
+    }
+
+    GraphWriterQueue(
+            Graph graph,
+            Executor writerExecutor,
+            Duration maxWait,
+            LongSupplier nanoClock
+    ) {
+        this.graph = graph;
+        this.writerExecutor = writerExecutor;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.nanoClock = nanoClock;
+        for (GraphWriterPriority priority : GraphWriterPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            Gauge.builder("graph.writer.queue.size", this, q -> q.size(priority))
+                    .description("The number of graph writer tasks waiting to be executed")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Queue a graph writer task.
+     *
+     * @param source   The updater submitting the task, used for batching consecutive tasks and for
+     *                 reporting. May be {@code null}, in which case the task is never batched.
+     * @param priority The lane to put the task in.
+     * @param runnable The task.
+     */
+    public void submit(GraphUpdater source, GraphWriterPriority priority, GraphWriterRunnable runnable) {
+        Task task = new Task(source, runnable, nanoClock.getAsLong());
+        synchronized (this) {
+            lanes.get(priority).addLast(task);
+        }
+        // One drain job is scheduled for each task. A job may execute several tasks, the jobs
+        // finding an empty queue simply return.
+        writerExecutor.execute(this::runNextBatch);
+    }
+
+    /** The number of tasks waiting in the given lane. */
+    public synchronized int size(GraphWriterPriority priority) {
+        return lanes.get(priority).size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry.add(registry);
+    }
+
+    private void runNextBatch() {
+        List<Task> batch = pollNextBatch();
+        int i = 0;
+        while (i < batch.size()) {
+            long startTime = nanoClock.getAsLong();
+            GraphWriterRunnable runnable = batch.get(i).runnable;
+            int first = i;
+            for (++i; i < batch.size(); ++i) {
+                GraphWriterRunnable merged = runnable.mergeWith(batch.get(i).runnable);
+                if (merged == null) { break; }
+                runnable = merged;
+            }
+            for (int j = first; j < i; ++j) {
+                Task task = batch.get(j);
+                queueTimer(task.sourceName).record(startTime - task.queuedTime, TimeUnit.NANOSECONDS);
+            }
+            try {
+                runnable.run(graph);
+            }
+            catch (Exception e) {
+                LOG.error("Error while running graph writer {}:", runnable.getClass().getName(), e);
+            }
+            runTimer(batch.get(first).sourceName)
+                    .record(nanoClock.getAsLong() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized List<Task> pollNextBatch() {
+        Deque<Task> lane = nextLane();
+        if (lane == null) {
+            return List.of();
+        }
+        Task first = lane.pollFirst();
+        List<Task> batch = new ArrayList<>();
+        batch.add(first);
+        while (
+            first.source != null
+            && batch.size() < MAX_BATCH_SIZE
+            && !lane.isEmpty()
+            && lane.peekFirst().source == first.source
+        ) {
+            batch.add(lane.pollFirst());
+        }
+        return batch;
+    }
+
+    /**
+     * The lane with the task that has waited the longest, if it has waited longer than the maximum
+     * wait time, otherwise the highest priority lane with tasks.
+     */
+    private Deque<Task> nextLane() {
+        long now = nanoClock.getAsLong();
+        Deque<Task> overdue = null;
+        Deque<Task> highest = null;
+        for (Deque<Task> lane : lanes.values()) {
+            Task head = lane.peekFirst();
+            if (head == null) { continue; }
+            if (highest == null) {
+                highest = lane;
+            }
+            if (
+                now - head.queuedTime > maxWaitNanos
+                && (overdue == null || head.queuedTime < overdue.peekFirst().queuedTime)
+            ) {
+                overdue = lane;
+            }
+        }
+        return overdue != null ? overdue : highest;
+    }
+
+    private Timer queueTimer(String sourceName) {
+        return queueTimers.computeIfAbsent(sourceName, name ->
+                Timer.builder("graph.writer.queue.time")
+                        .description("Time a graph writer task waits before it is executed")
+                        .tag("updater", name)
+                        .register(meterRegistry)
+        );
+    }
+
+    private Timer runTimer(String sourceName) {
+        return runTimers.computeIfAbsent(sourceName, name ->
+                Timer.builder("graph.writer.run.time")
+                        .description("Time spent executing a graph writer task")
+                        .tag("updater", name)
+                        .register(meterRegistry)
+        );
+    }
+
+    private static class Task {
+        private final GraphUpdater source;
+        private final String sourceName;
+        private final GraphWriterRunnable runnable;
+        private final long queuedTime;
+
+        private Task(GraphUpdater source, GraphWriterRunnable runnable, long queuedTime) {
+            this.source = source;
+            this.sourceName = source == null || source.getConfigRef() == null
+                    ? UNKNOWN_SOURCE
+                    : source.getConfigRef();
+            this.runnable = runnable;
+            this.queuedTime = queuedTime;
+        }
+    }
+}
@@ -19,4 +19,15 @@ public interface GraphWriterRunnable {
      * This function is executed to modify the graph.
      */
     public void run(Graph graph);
+
+    /**
+     * Merge this runnable with the given runnable, submitted directly after it by the same updater,
+     * so both are applied to the graph as one update. The merged runnable must have the same effect
+     * as running this runnable and then the given one.
+     *
+     * @return the merged runnable, or {@code null} if the runnables can not be merged.
+     */
+    default GraphWriterRunnable mergeWith(GraphWriterRunnable next) {
+        return null;
+    }
 }
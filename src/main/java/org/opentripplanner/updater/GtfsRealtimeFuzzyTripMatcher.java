@@ -4,14 +4,12 @@ import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
 import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.Route;
 import org.opentripplanner.model.Trip;
-import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.routing.RoutingService;
-import org.opentripplanner.routing.trippattern.TripTimes;
+import org.opentripplanner.routing.graph.TripStartTimeIndex;
 import org.opentripplanner.util.time.TimeUtils;
 
 import java.text.ParseException;
-import java.util.BitSet;
 
 /**
  * This class is used for matching TripDescriptors without trip_ids to scheduled GTFS data and to
@@ -19,12 +17,13 @@ import java.util.BitSet;
  *
  * The class should only be used if we know that the feed producer is unable to produce trip_ids
  * in the GTFS-RT feed.
+ *
+ * The matching is a lookup in the {@link TripStartTimeIndex} built together with the graph index,
+ * so this class holds no mutable state and may be shared between updater threads.
  */
 public class GtfsRealtimeFuzzyTripMatcher {
 
-    private RoutingService routingService;
-    private BitSet servicesRunningForDate;
-    private ServiceDate date;
+    private final RoutingService routingService;
 
     public GtfsRealtimeFuzzyTripMatcher(RoutingService routingService) {
         this.routingService = routingService;
@@ -73,21 +72,7 @@ public class GtfsRealtimeFuzzyTripMatcher {
         return trip.toBuilder().setTripId(matchedTrip.getId().getId()).build();
     }
 
-    public synchronized Trip getTrip (Route route, int direction, int startTime, ServiceDate date) {
-        if (!date.equals(this.date)) {
-            this.date = date;
-            // TODO: This is slow, we should either precalculate or cache these for all dates in graph
-            this.servicesRunningForDate = routingService.getServicesRunningForDate(date);
-        }
-        for (TripPattern pattern : routingService.getPatternsForRoute().get(route)) {
-            if (pattern.getDirection().gtfsCode != direction) continue;
-            for (TripTimes times : pattern.getScheduledTimetable().getTripTimes()) {
-                if (times.getScheduledDepartureTime(0) == startTime &&
-                        servicesRunningForDate.get(times.getServiceCode())) {
-                    return times.getTrip();
-                }
-            }
-        }
-        return null;
+    public Trip getTrip (Route route, int direction, int startTime, ServiceDate date) {
+        return routingService.getTripStartTimeIndex().getTrip(route, direction, startTime, date);
     }
 }
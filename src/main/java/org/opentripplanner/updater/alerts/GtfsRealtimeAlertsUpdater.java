@@ -101,7 +101,7 @@ public class GtfsRealtimeAlertsUpdater extends PollingGraphUpdater {
             }
 
             // Handle update in graph writer runnable
-            updaterManager.execute(graph -> updateHandler.update(feed));
+            updaterManager.execute(this, graph -> updateHandler.update(feed));
 
             lastTimestamp = feedTimestamp;
         } catch (Exception e) {
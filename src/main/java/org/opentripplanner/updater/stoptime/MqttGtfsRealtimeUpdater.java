@@ -13,6 +13,7 @@ import org.opentripplanner.routing.RoutingService;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.updater.GtfsRealtimeFuzzyTripMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,7 +25,8 @@ import java.util.List;
 /**
  * This class starts an Paho MQTT client which opens a connection to a GTFS-RT data source.
  * A callback is registered which handles incoming GTFS-RT messages as they stream in by placing a
- * GTFS-RT decoder Runnable task in the single-threaded executor for handling.
+ * GTFS-RT decoder Runnable task in the single-threaded executor for handling. Messages arriving
+ * within a short time window are merged and applied as one batch, see {@link TripUpdateBatcher}.
  *
  * Usage example in the file 'router-config.json', inside the 'updaters' array:
  *
@@ -35,7 +37,8 @@ import java.util.List;
  *   "url": "tcp://mqtt.cinfra.fi",
  *   "topic": "gtfsrt/v2/fi/hsl/tu",
  *   "feedId": "HSL",
- *   "fuzzyTripMatching": true
+ *   "fuzzyTripMatching": true,
+ *   "batchWindowMs": 200
  * }
  * </pre>
  *
@@ -55,6 +58,11 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
 
     private final boolean fuzzyTripMatching;
 
+    private final TripUpdateBatchParameters batchParameters;
+
+    /** Merges incoming messages into batches before they are applied to the graph. */
+    private TripUpdateBatcher batcher;
+
     private final String clientId = "OpenTripPlanner-" + MqttClient.generateClientId();
 
     private final String configRef;
@@ -70,6 +78,7 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
         this.feedId = parameters.getFeedId();
         this.qos = parameters.getQos();
         this.fuzzyTripMatching = parameters.getFuzzyTripMatching();
+        this.batchParameters = parameters.getBatchParameters();
     }
 
     @Override
@@ -91,6 +100,12 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
 
     @Override
     public void run() throws Exception {
+        batcher = new TripUpdateBatcher(
+            feedId,
+            batchParameters,
+            runnable -> updaterManager.execute(this, runnable),
+            updaterManager.getScheduler()
+        );
         client = new MqttClient(url, clientId, persistence);
         MqttConnectOptions connOpts = new MqttConnectOptions();
         connOpts.setCleanSession(true);
@@ -109,6 +124,9 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
 
     @Override
     public void teardown() {
+        if (batcher != null) {
+            batcher.close();
+        }
         try {
             client.disconnect();
         } catch (MqttException e) {
@@ -121,6 +139,11 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
         return configRef;
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.HIGH;
+    }
+
     private class Callback implements MqttCallbackExtended {
         @Override
         public void connectComplete(boolean reconnect, String serverURI) {
@@ -166,12 +189,8 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
             }
 
             if (updates != null) {
-                // Handle trip updates via graph writer runnable
-                updaterManager.execute(new TripUpdateGraphWriterRunnable(
-                    fullDataset,
-                    updates,
-                    feedId
-                ));
+                // Handle trip updates via graph writer runnable, batched with other messages
+                batcher.add(fullDataset, updates);
             }
         }
 
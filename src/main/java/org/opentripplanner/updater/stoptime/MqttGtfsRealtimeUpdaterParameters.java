@@ -7,10 +7,12 @@ public class MqttGtfsRealtimeUpdaterParameters {
   private final String topic;
   private final int qos;
   private final boolean fuzzyTripMatching;
+  private final TripUpdateBatchParameters batchParameters;
 
 
   public MqttGtfsRealtimeUpdaterParameters(
-      String configRef, String feedId, String url, String topic, int qos, boolean fuzzyTripMatching
+      String configRef, String feedId, String url, String topic, int qos, boolean fuzzyTripMatching,
+      TripUpdateBatchParameters batchParameters
   ) {
     this.configRef = configRef;
     this.feedId = feedId;
@@ -18,6 +20,7 @@ public class MqttGtfsRealtimeUpdaterParameters {
     this.topic = topic;
     this.qos = qos;
     this.fuzzyTripMatching = fuzzyTripMatching;
+    this.batchParameters = batchParameters;
   }
 
   String getUrl() {
@@ -40,6 +43,10 @@ public class MqttGtfsRealtimeUpdaterParameters {
     return fuzzyTripMatching;
   }
 
+  TripUpdateBatchParameters getBatchParameters() {
+    return batchParameters;
+  }
+
   /** The config name/type for the updater. Used to reference the configuration element. */
   String getConfigRef() {
     return configRef;
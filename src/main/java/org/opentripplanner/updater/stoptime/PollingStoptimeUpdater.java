@@ -4,6 +4,7 @@ import com.google.transit.realtime.GtfsRealtime.TripUpdate;
 import org.opentripplanner.routing.RoutingService;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.updater.GtfsRealtimeFuzzyTripMatcher;
 import org.opentripplanner.updater.PollingGraphUpdater;
 import org.slf4j.Logger;
@@ -130,7 +131,7 @@ public class PollingStoptimeUpdater extends PollingGraphUpdater {
             // Handle trip updates via graph writer runnable
             TripUpdateGraphWriterRunnable runnable =
                     new TripUpdateGraphWriterRunnable(fullDataset, updates, feedId);
-            updaterManager.execute(runnable);
+            updaterManager.execute(this, runnable);
         }
     }
 
@@ -138,6 +139,11 @@ public class PollingStoptimeUpdater extends PollingGraphUpdater {
     public void teardown() {
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.HIGH;
+    }
+
     public String toString() {
         String s = (updateSource == null) ? "NONE" : updateSource.toString();
         return "Streaming stoptime updater with update source = " + s;
@@ -0,0 +1,72 @@
+package org.opentripplanner.updater.stoptime;
+
+/**
+ * Parameters for the micro-batching of streamed trip updates, see {@link TripUpdateBatcher}.
+ */
+public class TripUpdateBatchParameters {
+
+  /**
+   * Hand over each message to the graph writer right away. Used by tests, the updater
+   * configuration defaults to a 200 ms batch window, see {@code TripUpdateBatchConfig}.
+   */
+  public static final TripUpdateBatchParameters DISABLED = new TripUpdateBatchParameters(
+      0, 1, Integer.MAX_VALUE, OverflowPolicy.DROP_OLDEST
+  );
+
+  /**
+   * What to do with new trip updates when the number of buffered updates reaches
+   * {@link #getMaxPendingUpdates()}, because the graph writer is falling behind.
+   */
+  public enum OverflowPolicy {
+    /** Drop the oldest buffered updates to make room for the new ones. */
+    DROP_OLDEST,
+    /** Drop the incoming updates, keep the ones already buffered. */
+    DROP_NEWEST
+  }
+
+  private final int batchWindowMs;
+  private final int maxBatchSize;
+  private final int maxPendingUpdates;
+  private final OverflowPolicy overflowPolicy;
+
+  public TripUpdateBatchParameters(
+      int batchWindowMs,
+      int maxBatchSize,
+      int maxPendingUpdates,
+      OverflowPolicy overflowPolicy
+  ) {
+    this.batchWindowMs = batchWindowMs;
+    this.maxBatchSize = maxBatchSize;
+    this.maxPendingUpdates = maxPendingUpdates;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * How long to buffer incoming messages before they are applied to the graph as one batch.
+   * Zero or a negative value disables batching, each message is then applied on its own.
+   */
+  int getBatchWindowMs() {
+    return batchWindowMs;
+  }
+
+  /** Apply the buffered updates as soon as this number of distinct trips are buffered. */
+  int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * The maximum number of distinct trip updates buffered while waiting for the graph writer to
+   * apply the previous batch.
+   */
+  int getMaxPendingUpdates() {
+    return maxPendingUpdates;
+  }
+
+  OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  boolean isBatchingEnabled() {
+    return batchWindowMs > 0;
+  }
+}
@@ -0,0 +1,179 @@
+package org.opentripplanner.updater.stoptime;
+
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import org.opentripplanner.updater.GraphWriterRunnable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Micro-batching stage between the streaming GTFS-RT updaters (MQTT and websocket) and the graph
+ * writer. Instead of submitting one {@link TripUpdateGraphWriterRunnable} per received message,
+ * the trip updates are buffered for a short time window, or until the buffer reaches a given size,
+ * and then applied to the graph as one batch.
+ * <p>
+ * While buffering, updates for the same trip are merged - the last received update wins. A full
+ * dataset message replaces everything buffered before it.
+ * <p>
+ * Only one batch is handed over to the graph writer at the time. While the writer is busy
+ * applying it, new updates keep being merged into the buffer. If the buffer grows beyond the
+ * configured maximum, updates are dropped according to the
+ * {@link TripUpdateBatchParameters.OverflowPolicy}.
+ * <p>
+ * This class is thread-safe, messages may be added from any thread.
+ */
+class TripUpdateBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TripUpdateBatcher.class);
+
+    private final String feedId;
+
+    private final TripUpdateBatchParameters parameters;
+
+    /** Hand over a graph writer runnable to the graph writer, normally the updater manager. */
+    private final Consumer<GraphWriterRunnable> graphWriter;
+
+    private final ScheduledExecutorService timer;
+
+    /** Buffered updates by trip, in the order they are received. Guarded by this. */
+    private final Map<TripDescriptor, TripUpdate> pendingUpdates = new LinkedHashMap<>();
+
+    private boolean pendingFullDataset = false;
+
+    /** True when a batch is handed over to the graph writer, but not applied yet. */
+    private boolean batchInProgress = false;
+
+    private ScheduledFuture<?> scheduledFlush = null;
+
+    private int droppedUpdates = 0;
+
+    /** Set on teardown of the updater, no batches are handed over after that. */
+    private boolean closed = false;
+
+    TripUpdateBatcher(
+            String feedId,
+            TripUpdateBatchParameters parameters,
+            Consumer<GraphWriterRunnable> graphWriter,
+            ScheduledExecutorService timer
+    ) {
+        this.feedId = feedId;
+        this.parameters = parameters;
+        this.graphWriter = graphWriter;
+        this.timer = timer;
+    }
+
+    /**
+     * Add the trip updates of one received message.
+     */
+    synchronized void add(boolean fullDataset, List<TripUpdate> updates) {
+        if (closed) {
+            return;
+        }
+        if (!parameters.isBatchingEnabled()) {
+            graphWriter.accept(new TripUpdateGraphWriterRunnable(fullDataset, updates, feedId));
+            return;
+        }
+
+        if (fullDataset) {
+            pendingUpdates.clear();
+            pendingFullDataset = true;
+        }
+
+        for (TripUpdate update : updates) {
+            // Remove first, to move the trip to the end of the insertion order
+            boolean replacesPendingUpdate = pendingUpdates.remove(update.getTrip()) != null;
+
+            if (!replacesPendingUpdate && pendingUpdates.size() >= parameters.getMaxPendingUpdates()) {
+                if (parameters.getOverflowPolicy() == TripUpdateBatchParameters.OverflowPolicy.DROP_NEWEST) {
+                    ++droppedUpdates;
+                    continue;
+                }
+                Iterator<TripUpdate> oldest = pendingUpdates.values().iterator();
+                oldest.next();
+                oldest.remove();
+                ++droppedUpdates;
+            }
+            pendingUpdates.put(update.getTrip(), update);
+        }
+
+        if (pendingUpdates.size() >= parameters.getMaxBatchSize()) {
+            flush();
+        }
+        else if (scheduledFlush == null) {
+            scheduledFlush = timer.schedule(
+                    this::flush, parameters.getBatchWindowMs(), TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    /**
+     * Hand over the buffered updates to the graph writer, unless the previous batch is still being
+     * applied. In that case the buffered updates are handed over as soon as it is done.
+     */
+    synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (closed || batchInProgress || (pendingUpdates.isEmpty() && !pendingFullDataset)) {
+            return;
+        }
+
+        if (droppedUpdates > 0) {
+            LOG.warn(
+                    "The graph writer is falling behind, {} trip updates for feed {} were dropped.",
+                    droppedUpdates,
+                    feedId
+            );
+            droppedUpdates = 0;
+        }
+
+        List<TripUpdate> batch = new ArrayList<>(pendingUpdates.values());
+        boolean fullDataset = pendingFullDataset;
+        pendingUpdates.clear();
+        pendingFullDataset = false;
+        batchInProgress = true;
+
+        graphWriter.accept(
+                new TripUpdateGraphWriterRunnable(fullDataset, batch, feedId, this::onBatchApplied)
+        );
+    }
+
+    /**
+     * Cancel the scheduled flush and discard the buffered updates. Called when the updater is
+     * torn down, any updates received after this are ignored.
+     */
+    synchronized void close() {
+        closed = true;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        pendingUpdates.clear();
+        pendingFullDataset = false;
+    }
+
+    /** The number of distinct trip updates waiting to be handed over to the graph writer. */
+    synchronized int size() {
+        return pendingUpdates.size();
+    }
+
+    /** Called by the graph writer thread when the last handed over batch is applied. */
+    synchronized void onBatchApplied() {
+        batchInProgress = false;
+        // If the time window expired while waiting for the graph writer, flush right away
+        if (scheduledFlush == null) {
+            flush();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.opentripplanner.updater.GraphWriterRunnable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 class TripUpdateGraphWriterRunnable implements GraphWriterRunnable {
@@ -25,19 +26,79 @@ class TripUpdateGraphWriterRunnable implements GraphWriterRunnable {
 
     private final String feedId;
 
+    /**
+     * Called after the updates are applied, also if applying them fails.
+     */
+    private final Runnable afterApply;
+
     TripUpdateGraphWriterRunnable(final boolean fullDataset, final List<TripUpdate> updates, final String feedId) {
+        this(fullDataset, updates, feedId, () -> {});
+    }
+
+    TripUpdateGraphWriterRunnable(
+            final boolean fullDataset,
+            final List<TripUpdate> updates,
+            final String feedId,
+            final Runnable afterApply
+    ) {
         // Preconditions
         Preconditions.checkNotNull(updates);
         Preconditions.checkNotNull(feedId);
-        
+        Preconditions.checkNotNull(afterApply);
+
         // Set fields
         this.fullDataset = fullDataset;
         this.updates = updates;
         this.feedId = feedId;
+        this.afterApply = afterApply;
     }
 
     @Override
     public void run(Graph graph) {
+        try {
+            applyUpdates(graph);
+        }
+        finally {
+            afterApply.run();
+        }
+    }
+
+    /**
+     * Updates for the same feed are merged into one list, applied with one snapshot commit. A full
+     * dataset replaces all previous updates, so the updates before it are dropped.
+     */
+    @Override
+    public GraphWriterRunnable mergeWith(GraphWriterRunnable next) {
+        if (!(next instanceof TripUpdateGraphWriterRunnable)) { return null; }
+        TripUpdateGraphWriterRunnable other = (TripUpdateGraphWriterRunnable) next;
+        if (!feedId.equals(other.feedId)) { return null; }
+
+        Runnable bothAfterApply = () -> {
+            try {
+                afterApply.run();
+            }
+            finally {
+                other.afterApply.run();
+            }
+        };
+        if (other.fullDataset) {
+            return new TripUpdateGraphWriterRunnable(true, other.updates, feedId, bothAfterApply);
+        }
+        List<TripUpdate> mergedUpdates = new ArrayList<>(updates.size() + other.updates.size());
+        mergedUpdates.addAll(updates);
+        mergedUpdates.addAll(other.updates);
+        return new TripUpdateGraphWriterRunnable(fullDataset, mergedUpdates, feedId, bothAfterApply);
+    }
+
+    boolean isFullDataset() {
+        return fullDataset;
+    }
+
+    List<TripUpdate> getUpdates() {
+        return updates;
+    }
+
+    private void applyUpdates(Graph graph) {
         // Apply updates to graph using realtime snapshot source. The source is retrieved from the graph using the
         // setup method witch return the instance, we do not need to provide any creator because the
         // TimetableSnapshotSource should already be set up
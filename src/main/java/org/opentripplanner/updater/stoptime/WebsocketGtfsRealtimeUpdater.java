@@ -13,6 +13,7 @@ import com.ning.http.client.websocket.WebSocketUpgradeHandler;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,12 +24,14 @@ import java.util.concurrent.ExecutionException;
 /**
  * This class starts an HTTP client which opens a websocket connection to a GTFS-RT data source. A
  * callback is registered which handles incoming GTFS-RT messages as they stream in by placing a
- * GTFS-RT decoder Runnable task in the single-threaded executor for handling.
+ * GTFS-RT decoder Runnable task in the single-threaded executor for handling. Messages arriving
+ * within a short time window are merged and applied as one batch, see {@link TripUpdateBatcher}.
  *
  * <pre>
  * websocket.type = websocket-gtfs-rt-updater
  * websocket.defaultAgencyId = agency
  * websocket.url = ws://localhost:8088/tripUpdates
+ * websocket.batchWindowMs = 200
  * </pre>
  *
  */
@@ -62,11 +65,19 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
 
     private final String configRef;
 
+    private final TripUpdateBatchParameters batchParameters;
+
+    /**
+     * Merges incoming messages into batches before they are applied to the graph
+     */
+    private TripUpdateBatcher batcher;
+
     public WebsocketGtfsRealtimeUpdater(WebsocketGtfsRealtimeUpdaterParameters parameters) {
         this.configRef = parameters.getConfigRef();
         this.url = parameters.getUrl();
         this.feedId = parameters.getFeedId();
         this.reconnectPeriodSec = parameters.getReconnectPeriodSec();
+        this.batchParameters = parameters.getBatchParameters();
     }
 
     @Override
@@ -91,6 +102,13 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
         // config);
         // Using Netty by default:
 
+        batcher = new TripUpdateBatcher(
+                feedId,
+                batchParameters,
+                runnable -> updaterManager.execute(this, runnable),
+                updaterManager.getScheduler()
+        );
+
         while (true) {
             AsyncHttpClient client = new AsyncHttpClient();
             WebSocketListener listener = new Listener();
@@ -133,6 +151,9 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
 
     @Override
     public void teardown() {
+        if (batcher != null) {
+            batcher.close();
+        }
     }
 
     /**
@@ -170,11 +191,8 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
             }
 
             if (updates != null) {
-                // Handle trip updates via graph writer runnable
-                TripUpdateGraphWriterRunnable runnable = new TripUpdateGraphWriterRunnable(
-                        fullDataset, updates, feedId
-                );
-                updaterManager.execute(runnable);
+                // Handle trip updates via graph writer runnable, batched with other messages
+                batcher.add(fullDataset, updates);
             }
         }
     }
@@ -184,4 +202,9 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
         return configRef;
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.HIGH;
+    }
+
 }
@@ -5,14 +5,17 @@ public class WebsocketGtfsRealtimeUpdaterParameters {
   private final String feedId;
   private final String url;
   private final int reconnectPeriodSec;
+  private final TripUpdateBatchParameters batchParameters;
 
   public WebsocketGtfsRealtimeUpdaterParameters(
-      String configRef, String feedId, String url, int reconnectPeriodSec
+      String configRef, String feedId, String url, int reconnectPeriodSec,
+      TripUpdateBatchParameters batchParameters
   ) {
     this.configRef = configRef;
     this.feedId = feedId;
     this.url = url;
     this.reconnectPeriodSec = reconnectPeriodSec;
+    this.batchParameters = batchParameters;
   }
 
   String getUrl() {
@@ -27,6 +30,10 @@ public class WebsocketGtfsRealtimeUpdaterParameters {
     return reconnectPeriodSec;
   }
 
+  TripUpdateBatchParameters getBatchParameters() {
+    return batchParameters;
+  }
+
   /** The config name/type for the updater. Used to reference the configuration element. */
   String getConfigRef() {
     return configRef;
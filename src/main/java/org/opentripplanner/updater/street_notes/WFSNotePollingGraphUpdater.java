@@ -23,6 +23,7 @@ import org.opentripplanner.routing.services.notes.MatcherAndStreetNote;
 import org.opentripplanner.routing.services.notes.NoteMatcher;
 import org.opentripplanner.routing.services.notes.StreetNotesService;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.updater.GraphWriterRunnable;
 import org.opentripplanner.updater.PollingGraphUpdater;
 import org.slf4j.Logger;
@@ -121,6 +122,11 @@ public abstract class WFSNotePollingGraphUpdater extends PollingGraphUpdater {
         LOG.info("Teardown WFS polling updater");
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.LOW;
+    }
+
     /**
      * The function is run periodically by the update manager.
      * The extending class should provide the getNote method. It is not implemented here
@@ -151,7 +157,7 @@ public abstract class WFSNotePollingGraphUpdater extends PollingGraphUpdater {
                 }
             }
         }
-        updaterManager.execute(new WFSGraphWriter());
+        updaterManager.execute(this, new WFSGraphWriter());
     }
 
     /**
@@ -24,6 +24,7 @@ import org.opentripplanner.routing.vehicle_parking.VehicleParkingService;
 import org.opentripplanner.routing.vertextype.VehicleParkingEntranceVertex;
 import org.opentripplanner.updater.DataSource;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.GraphWriterPriority;
 import org.opentripplanner.updater.GraphWriterRunnable;
 import org.opentripplanner.updater.PollingGraphUpdater;
 import org.slf4j.Logger;
@@ -82,13 +83,18 @@ public class VehicleParkingUpdater extends PollingGraphUpdater {
 
         // Create graph writer runnable to apply these stations to the graph
         VehicleParkingGraphWriterRunnable graphWriterRunnable = new VehicleParkingGraphWriterRunnable(vehicleParkings);
-        updaterManager.execute(graphWriterRunnable);
+        updaterManager.execute(this, graphWriterRunnable);
     }
 
     @Override
     public void teardown() {
     }
 
+    @Override
+    public GraphWriterPriority getWriterPriority() {
+        return GraphWriterPriority.LOW;
+    }
+
     private class VehicleParkingGraphWriterRunnable implements GraphWriterRunnable {
 
         private final Map<FeedScopedId, VehicleParking> oldVehicleParkingsById;
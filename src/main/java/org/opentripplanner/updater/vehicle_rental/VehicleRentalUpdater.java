@@ -6,16 +6,19 @@ import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.base.ToStringBuilder;
 import org.opentripplanner.routing.vehicle_rental.VehicleRentalPlace;
 import org.opentripplanner.routing.vehicle_rental.VehicleRentalStationService;
+import org.opentripplanner.routing.vehicle_rental.VehicleRentalStationUris;
 import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.core.TraverseModeSet;
 import org.opentripplanner.routing.edgetype.VehicleRentalEdge;
 import org.opentripplanner.routing.edgetype.StreetVehicleRentalLink;
 import org.opentripplanner.graph_builder.linking.DisposableEdgeCollection;
+import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.vertextype.VehicleRentalStationVertex;
 import org.opentripplanner.updater.GraphUpdaterManager;
 import org.opentripplanner.updater.GraphWriterRunnable;
 import org.opentripplanner.updater.PollingGraphUpdater;
+import org.opentripplanner.updater.PollingGraphUpdaterParameters;
 import org.opentripplanner.updater.vehicle_rental.datasources.VehicleRentalDataSourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +29,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -48,12 +52,14 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
     private VehicleRentalStationService service;
 
     public VehicleRentalUpdater(VehicleRentalUpdaterParameters parameters) throws IllegalArgumentException {
+        this(parameters, VehicleRentalDataSourceFactory.create(parameters.sourceParameters()));
+    }
+
+    VehicleRentalUpdater(PollingGraphUpdaterParameters parameters, VehicleRentalDataSource source) {
         super(parameters);
         // Configure updater
         LOG.info("Setting up vehicle rental updater.");
 
-        VehicleRentalDataSource source = VehicleRentalDataSourceFactory.create(parameters.sourceParameters());
-
         this.source = source;
         if (pollingPeriodSeconds <= 0) {
             LOG.info("Creating vehicle-rental updater running once only (non-polling): {}", source);
@@ -88,51 +94,72 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
 
         // Create graph writer runnable to apply these stations to the graph
         VehicleRentalGraphWriterRunnable graphWriterRunnable = new VehicleRentalGraphWriterRunnable(stations);
-        updaterManager.execute(graphWriterRunnable);
+        updaterManager.execute(this, graphWriterRunnable);
     }
 
     @Override
     public void teardown() {
     }
 
-    private class VehicleRentalGraphWriterRunnable implements GraphWriterRunnable {
+    class VehicleRentalGraphWriterRunnable implements GraphWriterRunnable {
 
         private final List<VehicleRentalPlace> stations;
 
-        public VehicleRentalGraphWriterRunnable(List<VehicleRentalPlace> stations) {
+        VehicleRentalGraphWriterRunnable(List<VehicleRentalPlace> stations) {
             this.stations = stations;
         }
 
-		@Override
+        /**
+         * Each update contains all the stations of the source, so a later update of the same
+         * updater replaces an earlier one which has not been applied yet.
+         */
+        @Override
+        public GraphWriterRunnable mergeWith(GraphWriterRunnable next) {
+            if (
+                next instanceof VehicleRentalGraphWriterRunnable
+                    && ((VehicleRentalGraphWriterRunnable) next).updater() == updater()
+            ) {
+                return next;
+            }
+            return null;
+        }
+
+        private VehicleRentalUpdater updater() {
+            return VehicleRentalUpdater.this;
+        }
+
+        @Override
         public void run(Graph graph) {
             // Apply stations to graph
             Set<FeedScopedId> stationSet = new HashSet<>();
+            int unchanged = 0, relinked = 0;
 
             /* add any new stations and update vehicle counts for existing stations */
             for (VehicleRentalPlace station : stations) {
-                service.addVehicleRentalStation(station);
                 stationSet.add(station.getId());
                 VehicleRentalStationVertex vehicleRentalVertex = verticesByStation.get(station.getId());
                 if (vehicleRentalVertex == null) {
-                    vehicleRentalVertex = new VehicleRentalStationVertex(graph, station);
-                    DisposableEdgeCollection tempEdges = linker.linkVertexForRealTime(
-                        vehicleRentalVertex,
-                        new TraverseModeSet(TraverseMode.WALK),
-                        LinkingDirection.BOTH_WAYS,
-                        (vertex, streetVertex) -> List.of(
-                            new StreetVehicleRentalLink((VehicleRentalStationVertex) vertex, streetVertex),
-                            new StreetVehicleRentalLink(streetVertex, (VehicleRentalStationVertex) vertex)
-                        )
-                    );
-                    if (vehicleRentalVertex.getOutgoing().isEmpty()) {
-                        // the toString includes the text "Bike rental station"
-                        LOG.info("VehicleRentalPlace {} is unlinked", vehicleRentalVertex);
-                    }
-                    tempEdges.addEdge(new VehicleRentalEdge(vehicleRentalVertex));
-                    verticesByStation.put(station.getId(), vehicleRentalVertex);
-                    tempEdgesByStation.put(station.getId(), tempEdges);
-                } else {
+                    service.addVehicleRentalStation(station);
+                    linkStation(graph, station);
+                    continue;
+                }
+
+                VehicleRentalPlace existing = vehicleRentalVertex.getStation();
+                if (hasSameStatus(existing, station)) {
+                    // Nothing to do, keep the existing station and vertex untouched
+                    ++unchanged;
+                    continue;
+                }
+
+                service.addVehicleRentalStation(station);
+                if (hasSameLocation(existing, station) && Objects.equals(existing.getName(), station.getName())) {
                     vehicleRentalVertex.setStation(station);
+                } else {
+                    // The station (or free floating vehicle) moved, or the name of the vertex
+                    // changed. Replace the vertex and link it again at the new location.
+                    removeStation(graph, station.getId());
+                    linkStation(graph, station);
+                    ++relinked;
                 }
             }
             /* remove existing stations that were not present in the update */
@@ -146,11 +173,91 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
             }
             for (FeedScopedId station : toRemove) {
                 // post-iteration removal to avoid concurrent modification
-                verticesByStation.remove(station);
-                tempEdgesByStation.get(station).disposeEdges();
-                tempEdgesByStation.remove(station);
+                removeStation(graph, station);
+            }
+            LOG.debug(
+                "Applied {} vehicle rental places: {} unchanged, {} relinked, {} removed.",
+                stations.size(), unchanged, relinked, toRemove.size()
+            );
+        }
+
+        /**
+         * Remove the vertex of the station and all its edges from the graph. The vertex is
+         * normally removed together with the temporary edges, but any edge left is removed too,
+         * so that nothing is leaked when the vertex is replaced by a new one with the same label.
+         */
+        private void removeStation(Graph graph, FeedScopedId stationId) {
+            VehicleRentalStationVertex vertex = verticesByStation.remove(stationId);
+            tempEdgesByStation.remove(stationId).disposeEdges();
+
+            List<Edge> remainingEdges = new ArrayList<>(vertex.getIncoming());
+            remainingEdges.addAll(vertex.getOutgoing());
+            for (Edge edge : remainingEdges) {
+                graph.removeEdge(edge);
+            }
+            if (graph.getVertex(vertex.getLabel()) == vertex) {
+                graph.remove(vertex);
+            }
+        }
+
+        private void linkStation(Graph graph, VehicleRentalPlace station) {
+            VehicleRentalStationVertex vehicleRentalVertex = new VehicleRentalStationVertex(graph, station);
+            DisposableEdgeCollection tempEdges = linker.linkVertexForRealTime(
+                vehicleRentalVertex,
+                new TraverseModeSet(TraverseMode.WALK),
+                LinkingDirection.BOTH_WAYS,
+                (vertex, streetVertex) -> List.of(
+                    new StreetVehicleRentalLink((VehicleRentalStationVertex) vertex, streetVertex),
+                    new StreetVehicleRentalLink(streetVertex, (VehicleRentalStationVertex) vertex)
+                )
+            );
+            if (vehicleRentalVertex.getOutgoing().isEmpty()) {
+                // the toString includes the text "Bike rental station"
+                LOG.info("VehicleRentalPlace {} is unlinked", vehicleRentalVertex);
             }
+            tempEdges.addEdge(new VehicleRentalEdge(vehicleRentalVertex));
+            verticesByStation.put(station.getId(), vehicleRentalVertex);
+            tempEdgesByStation.put(station.getId(), tempEdges);
+        }
+    }
+
+    private static boolean hasSameLocation(VehicleRentalPlace a, VehicleRentalPlace b) {
+        return a.getLatitude() == b.getLatitude() && a.getLongitude() == b.getLongitude();
+    }
+
+    /**
+     * Compare all the properties exposed by {@link VehicleRentalPlace}. If these are the same there
+     * is no need to update the graph with the new instance.
+     */
+    static boolean hasSameStatus(VehicleRentalPlace a, VehicleRentalPlace b) {
+        return a.getClass() == b.getClass()
+            && Objects.equals(a.getId(), b.getId())
+            && Objects.equals(a.getStationId(), b.getStationId())
+            && Objects.equals(a.getNetwork(), b.getNetwork())
+            && Objects.equals(a.getName(), b.getName())
+            && hasSameLocation(a, b)
+            && a.getVehiclesAvailable() == b.getVehiclesAvailable()
+            && a.getSpacesAvailable() == b.getSpacesAvailable()
+            && Objects.equals(a.getCapacity(), b.getCapacity())
+            && a.isAllowPickup() == b.isAllowPickup()
+            && a.isAllowDropoff() == b.isAllowDropoff()
+            && a.allowPickupNow() == b.allowPickupNow()
+            && a.allowDropoffNow() == b.allowDropoffNow()
+            && a.isAllowOverloading() == b.isAllowOverloading()
+            && a.isFloatingBike() == b.isFloatingBike()
+            && a.isCarStation() == b.isCarStation()
+            && a.isKeepingVehicleRentalAtDestinationAllowed() == b.isKeepingVehicleRentalAtDestinationAllowed()
+            && a.isRealTimeData() == b.isRealTimeData()
+            && hasSameRentalUris(a.getRentalUris(), b.getRentalUris());
+    }
+
+    private static boolean hasSameRentalUris(VehicleRentalStationUris a, VehicleRentalStationUris b) {
+        if (a == null || b == null) {
+            return a == b;
         }
+        return Objects.equals(a.android, b.android)
+            && Objects.equals(a.ios, b.ios)
+            && Objects.equals(a.web, b.web);
     }
 
 
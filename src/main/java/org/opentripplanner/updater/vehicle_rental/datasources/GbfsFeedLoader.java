@@ -7,6 +7,11 @@ import org.entur.gbfs.v2_2.gbfs.GBFS;
 import org.entur.gbfs.v2_2.gbfs.GBFSFeed;
 import org.entur.gbfs.v2_2.gbfs.GBFSFeedName;
 import org.entur.gbfs.v2_2.gbfs.GBFSFeeds;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.util.EntityUtils;
 import org.opentripplanner.util.HttpUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,10 +23,15 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Class for managing the state and loading of complete GBFS datasets, and updating them according to individual feed's
  * TTL rules.
+ * <p>
+ * Feeds served over HTTP are fetched with conditional requests, using the ETag and Last-Modified
+ * validators of the previous response. A feed is only reported as changed if the server returned
+ * new content with a new {@code last_updated} value.
  */
 public class GbfsFeedLoader {
     private static final Logger LOG = LoggerFactory.getLogger(GbfsFeedLoader.class);
@@ -81,7 +91,8 @@ public class GbfsFeedLoader {
     }
 
     /**
-     * Checks if any of the feeds should be updated base on the TTL and fetches. Returns true, if any feeds were updated.
+     * Checks if any of the feeds should be updated base on the TTL and fetches. Returns true, if any feeds were
+     * updated with new content.
      */
     public boolean update() {
         boolean didUpdate = false;
@@ -92,7 +103,7 @@ public class GbfsFeedLoader {
                 if (!success) {
                     return false;
                 }
-                didUpdate = true;
+                didUpdate |= updater.isChanged();
             }
         }
 
@@ -121,6 +132,16 @@ public class GbfsFeedLoader {
                 // Local file probably, try standard java
                 is = uri.toURL().openStream();
             }
+            return parseFeed(is, uri, clazz);
+        } catch (IOException e) {
+            LOG.warn("Error reading vehicle rental feed from (connection error)" + uri);
+            LOG.warn(e.getMessage());
+            return null;
+        }
+    }
+
+    private static <T> T parseFeed(InputStream is, URI uri, Class<T> clazz) {
+        try {
             if (is == null) {
                 LOG.warn("Failed to get data from url {}", uri);
                 return null;
@@ -142,6 +163,11 @@ public class GbfsFeedLoader {
         }
     }
 
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
     /* private static classes */
 
     private class GBFSFeedUpdater<T> {
@@ -155,6 +181,17 @@ public class GbfsFeedLoader {
         private int nextUpdate;
         private T data;
 
+        /** The last_updated and ttl values of the current data, null if unknown */
+        private Integer lastUpdated;
+        private Integer ttl;
+
+        /** HTTP validators from the response of the current data, used for conditional requests */
+        private String etag;
+        private String lastModified;
+
+        /** True if the last fetch returned new content */
+        private boolean changed = false;
+
         private GBFSFeedUpdater(GBFSFeed feed) {
             url = feed.getUrl();
             implementingClass = (Class<T>) feed.getName().implementingClass();
@@ -164,20 +201,43 @@ public class GbfsFeedLoader {
             return data;
         }
 
+        private boolean isChanged() {
+            return changed;
+        }
+
         private boolean fetchData() {
-            T newData = GbfsFeedLoader.fetchFeed(url, httpHeaders, implementingClass);
+            changed = false;
+            String proto = url.getScheme();
+            T newData;
+            if (proto.equals("http") || proto.equals("https")) {
+                Optional<T> result = fetchIfModified();
+                if (result == null) {
+                    newData = null;
+                } else if (result.isEmpty()) {
+                    // Not modified, check again when the ttl expires
+                    nextUpdate = getCurrentTimeSeconds() + (ttl == null ? 0 : ttl);
+                    return true;
+                } else {
+                    newData = result.get();
+                }
+            } else {
+                newData = GbfsFeedLoader.fetchFeed(url, httpHeaders, implementingClass);
+            }
+
             if (newData == null) {
                 LOG.error("Invalid data for {}", url);
                 nextUpdate = getCurrentTimeSeconds();
                 return false;
             }
+
+            Integer previousLastUpdated = lastUpdated;
             data = newData;
 
             try {
                 // Fetch lastUpdated and ttl from the resulting class. Due to type erasure we don't know the actual
                 // class, and have to use introspection to get the method references, as they do not share a supertype.
-                Integer lastUpdated = (Integer) implementingClass.getMethod("getLastUpdated").invoke(newData);
-                Integer ttl = (Integer) implementingClass.getMethod("getTtl").invoke(newData);
+                lastUpdated = (Integer) implementingClass.getMethod("getLastUpdated").invoke(newData);
+                ttl = (Integer) implementingClass.getMethod("getTtl").invoke(newData);
                 if (lastUpdated == null || ttl == null) {
                     nextUpdate = getCurrentTimeSeconds();
                 } else {
@@ -185,11 +245,55 @@ public class GbfsFeedLoader {
                 }
             } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | ClassCastException e) {
                 LOG.error("Invalid lastUpdated or ttl for {}", url);
+                lastUpdated = null;
+                ttl = null;
                 nextUpdate = getCurrentTimeSeconds();
             }
+            // Without a last_updated value we can not tell if the content changed, assume it did
+            changed = lastUpdated == null || !lastUpdated.equals(previousLastUpdated);
             return true;
         }
 
+        /**
+         * Fetch the feed using a conditional request.
+         *
+         * @return an empty optional if the feed is not modified, null if the fetch failed.
+         */
+        private Optional<T> fetchIfModified() {
+            Map<String, String> headers = new HashMap<>();
+            if (httpHeaders != null) {
+                headers.putAll(httpHeaders);
+            }
+            if (etag != null) {
+                headers.put(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                headers.put(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+            try {
+                HttpResponse response = HttpUtils.getResponse(url, headers);
+                int status = response.getStatusLine().getStatusCode();
+                if (status == HttpStatus.SC_NOT_MODIFIED) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    return Optional.empty();
+                }
+                if (status != HttpStatus.SC_OK || response.getEntity() == null) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    return null;
+                }
+                T newData = parseFeed(response.getEntity().getContent(), url, implementingClass);
+                if (newData != null) {
+                    etag = headerValue(response, HttpHeaders.ETAG);
+                    lastModified = headerValue(response, HttpHeaders.LAST_MODIFIED);
+                }
+                return newData == null ? null : Optional.of(newData);
+            } catch (IOException e) {
+                LOG.warn("Error reading vehicle rental feed from (connection error)" + url);
+                LOG.warn(e.getMessage());
+                return null;
+            }
+        }
+
         private boolean shouldUpdate() {
             return getCurrentTimeSeconds() >= nextUpdate;
         }
@@ -59,6 +59,25 @@ public class HttpUtils {
         return getData(uri, TIMEOUT_CONNECTION, requestHeaderValues);
     }
 
+    /**
+     * Execute a GET request and return the response, whatever the status code. Use this instead
+     * of {@link #getData(URI, Map)} when the response headers or status are needed, for example
+     * for conditional requests using the {@code If-None-Match} and {@code If-Modified-Since}
+     * headers. The caller is responsible for consuming the response entity.
+     */
+    public static HttpResponse getResponse(
+        URI uri, Map<String, String> requestHeaderValues
+    ) throws IOException {
+        HttpGet httpget = new HttpGet(uri);
+        if (requestHeaderValues != null) {
+            for (Map.Entry<String, String> entry : requestHeaderValues.entrySet()) {
+                httpget.addHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        HttpClient httpclient = getClient(TIMEOUT_CONNECTION, TIMEOUT_CONNECTION);
+        return httpclient.execute(httpget);
+    }
+
     public static void testUrl(String url) throws IOException {
         HttpHead head = new HttpHead(url);
         HttpClient httpclient = getClient();
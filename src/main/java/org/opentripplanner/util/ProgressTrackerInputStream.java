@@ -71,7 +71,9 @@ class ProgressTrackerInputStream extends InputStream {
 
     @Override
     public long skip(long n) throws IOException {
-        return delegate.skip(n);
+        long skipped = delegate.skip(n);
+        progress.steps((int) skipped, logger);
+        return skipped;
     }
 
     @Override
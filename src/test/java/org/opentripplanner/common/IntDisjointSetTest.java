@@ -0,0 +1,53 @@
+package org.opentripplanner.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class IntDisjointSetTest {
+
+    @Test
+    public void unionAndFind() {
+        IntDisjointSet set = new IntDisjointSet(5);
+        set.union(0, 1);
+        assertEquals(2, set.size(0));
+        assertEquals(set.find(0), set.find(1));
+        assertNotEquals(set.find(0), set.find(2));
+        assertEquals(1, set.size(2));
+
+        set.union(2, 3);
+        assertNotEquals(set.find(1), set.find(3));
+
+        int root = set.union(3, 1);
+        assertEquals(root, set.find(0));
+        assertEquals(root, set.find(2));
+        assertEquals(4, set.size(3));
+        assertEquals(1, set.size(4));
+    }
+
+    @Test
+    public void sameSetsAsDisjointSet() {
+        IntDisjointSet subject = new IntDisjointSet(700);
+        DisjointSet<Integer> expected = new DisjointSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 500; ++i) {
+            int a = random.nextInt(700);
+            int b = random.nextInt(700);
+            subject.union(a, b);
+            expected.union(a, b);
+        }
+
+        for (int a = 0; a < 700; ++a) {
+            assertEquals(expected.size(expected.find(a)), subject.size(a));
+            for (int b = a + 1; b < 700; b += 7) {
+                assertEquals(
+                        expected.find(a) == expected.find(b),
+                        subject.find(a) == subject.find(b)
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.opentripplanner.graph_builder.linking;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTransitStopLink;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class LinkVerticesInBatchTest {
+
+    private static final BiFunction<Vertex, StreetVertex, List<Edge>> STOP_LINKS =
+        (vertex, streetVertex) -> List.of(
+            new StreetTransitStopLink((TransitStopVertex) vertex, streetVertex),
+            new StreetTransitStopLink(streetVertex, (TransitStopVertex) vertex)
+        );
+
+    @Test
+    public void linkVerticesInBatch() {
+        TestGraph g = new TestGraph();
+        g.graph.getLinker().linkVerticesPermanently(
+            List.of(g.s1, g.s2, g.s3, g.s4),
+            v -> new TraverseModeSet(TraverseMode.WALK),
+            LinkingDirection.BOTH_WAYS,
+            STOP_LINKS
+        );
+
+        // Both directions of the street are split at two points
+        assertEquals(6, g.graph.getStreetEdges().size());
+        assertFalse(g.a.getOutgoing().contains(g.ab));
+        assertFalse(g.a.getIncoming().contains(g.ba));
+
+        assertEquals(2, linkedVertices(g.s1).size());
+        assertEquals(linkedVertices(g.s2), linkedVertices(g.s3));
+        assertEquals(Set.of(g.a), linkedVertices(g.s4));
+    }
+
+    @Test
+    public void sameLinksAsOneAtATime() {
+        TestGraph batch = new TestGraph();
+        batch.graph.getLinker().linkVerticesPermanently(
+            List.of(batch.s1, batch.s2, batch.s3, batch.s4),
+            v -> new TraverseModeSet(TraverseMode.WALK),
+            LinkingDirection.BOTH_WAYS,
+            STOP_LINKS
+        );
+
+        TestGraph single = new TestGraph();
+        for (TransitStopVertex stop : List.of(single.s1, single.s2, single.s3, single.s4)) {
+            single.graph.getLinker().linkVertexPermanently(
+                stop,
+                new TraverseModeSet(TraverseMode.WALK),
+                LinkingDirection.BOTH_WAYS,
+                STOP_LINKS
+            );
+        }
+
+        assertEquals(single.graph.getStreetEdges().size(), batch.graph.getStreetEdges().size());
+        assertArrayEquals(longitudes(single.s1), longitudes(batch.s1), 1e-9);
+        assertArrayEquals(longitudes(single.s2), longitudes(batch.s2), 1e-9);
+        assertArrayEquals(longitudes(single.s3), longitudes(batch.s3), 1e-9);
+        assertArrayEquals(longitudes(single.s4), longitudes(batch.s4), 1e-9);
+    }
+
+    private static Set<Vertex> linkedVertices(TransitStopVertex stop) {
+        return stop.getOutgoing().stream().map(Edge::getToVertex).collect(Collectors.toSet());
+    }
+
+    /** The longitudes of the linked vertices, which are all on the same street */
+    private static double[] longitudes(TransitStopVertex stop) {
+        return linkedVertices(stop).stream().mapToDouble(Vertex::getLon).sorted().toArray();
+    }
+
+    /** A two way street with four stops along it, two of them at the same place. */
+    private static class TestGraph {
+        final Graph graph = new Graph();
+        final IntersectionVertex a = new IntersectionVertex(graph, "A", 10.0, 59.0);
+        final IntersectionVertex b = new IntersectionVertex(graph, "B", 10.01, 59.0);
+        final StreetEdge ab = street(a, b, false);
+        final StreetEdge ba = street(b, a, true);
+        final TransitStopVertex s1 = stop("S1", 10.002);
+        final TransitStopVertex s2 = stop("S2", 10.005);
+        final TransitStopVertex s3 = stop("S3", 10.005);
+        final TransitStopVertex s4 = stop("S4", 10.0);
+
+        private StreetEdge street(IntersectionVertex from, IntersectionVertex to, boolean back) {
+            LineString geometry = GeometryUtils.makeLineString(
+                from.getLon(), from.getLat(), to.getLon(), to.getLat()
+            );
+            return new StreetEdge(
+                from, to, geometry, "street", geometry.getLength(),
+                StreetTraversalPermission.ALL, back
+            );
+        }
+
+        private TransitStopVertex stop(String id, double lon) {
+            return new TransitStopVertex(graph, Stop.stopForTest(id, 59.0001, lon), null);
+        }
+    }
+}
@@ -23,12 +23,15 @@ import org.opentripplanner.model.TransitMode;
 import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.model.base.ToStringBuilder;
 import org.opentripplanner.routing.algorithm.GraphRoutingTest;
+import org.opentripplanner.routing.algorithm.raptor.transit.StreetRelevantOptions;
+import org.opentripplanner.routing.algorithm.raptor.transit.Transfer;
 import org.opentripplanner.routing.api.request.RequestModes;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.api.request.StreetMode;
 import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.vertextype.StreetVertex;
 import org.opentripplanner.routing.vertextype.TransitStopVertex;
 
@@ -43,6 +46,10 @@ class DirectTransferGeneratorTest extends GraphRoutingTest {
     private StreetVertex V0, V11, V12, V21, V22;
 
     private Graph graph(boolean addPatterns) {
+        return graph(addPatterns, false);
+    }
+
+    private Graph graph(boolean addPatterns, boolean addReversePatterns) {
         return graphOf(new Builder() {
             @Override
             public void build() {
@@ -89,6 +96,22 @@ class DirectTransferGeneratorTest extends GraphRoutingTest {
                             new StopPattern(List.of(st(S21), st(S22)))
                     ));
                 }
+
+                if (addReversePatterns) {
+                    var agency = agency("Agency");
+
+                    tripPattern(new TripPattern(
+                            new FeedScopedId("Test", "TP3"),
+                            route("R3", TransitMode.BUS, agency),
+                            new StopPattern(List.of(st(S12), st(S11)))
+                    ));
+
+                    tripPattern(new TripPattern(
+                            new FeedScopedId("Test", "TP4"),
+                            route("R4", TransitMode.BUS, agency),
+                            new StopPattern(List.of(st(S22), st(S21)))
+                    ));
+                }
             }
         });
     }
@@ -142,6 +165,55 @@ class DirectTransferGeneratorTest extends GraphRoutingTest {
         );
     }
 
+    @Test
+    public void testPruneDominatedTransfers() {
+        var generator = new DirectTransferGenerator(
+                MAX_TRANSFER_DURATION,
+                List.of(
+                        new RoutingRequest(
+                                new RequestModes(null, StreetMode.WALK, null, null, null)
+                        )
+                ),
+                true
+        );
+
+        var graph = graph(true);
+        graph.hasStreets = false;
+
+        generator.buildGraph(graph, null);
+
+        // No pattern alights at S0, S11 and S21, and no pattern can be boarded at S12 and S22
+        assertTransfers(
+                graph.transfersByStop
+        );
+    }
+
+    @Test
+    public void testPruneDominatedTransfersWithReversePatterns() {
+        var generator = new DirectTransferGenerator(
+                MAX_TRANSFER_DURATION,
+                List.of(
+                        new RoutingRequest(
+                                new RequestModes(null, StreetMode.WALK, null, null, null)
+                        )
+                ),
+                true
+        );
+
+        var graph = graph(true, true);
+        graph.hasStreets = false;
+
+        generator.buildGraph(graph, null);
+
+        assertTransfers(
+                graph.transfersByStop,
+                tr(S11, 751, S21),
+                tr(S12, 751, S22),
+                tr(S21, 751, S11),
+                tr(S22, 751, S12)
+        );
+    }
+
     @Test
     public void testSingleRequestWithoutPatterns() {
         var generator = new DirectTransferGenerator(
@@ -239,6 +311,80 @@ class DirectTransferGeneratorTest extends GraphRoutingTest {
         );
     }
 
+    @Test
+    public void testPrecalculatedDurations() {
+        var requests = List.of(
+                new RoutingRequest(
+                        new RequestModes(null, StreetMode.WALK, null, null, null)
+                ),
+                new RoutingRequest(
+                        new RequestModes(null, StreetMode.BIKE, null, null, null)
+                )
+        );
+        var generator = new DirectTransferGenerator(MAX_TRANSFER_DURATION, requests);
+
+        var graph = graph(true);
+        graph.hasStreets = true;
+
+        generator.buildGraph(graph, null);
+
+        assertEquals(2, graph.transferRequestOptions.size());
+
+        for (PathTransfer pathTransfer : graph.transfersByStop.values()) {
+            assertTrue(
+                    pathTransfer.getDurationSeconds(0) >= 0
+                            || pathTransfer.getDurationSeconds(1) >= 0,
+                    "Precalculated duration for " + pathTransfer
+            );
+        }
+
+        for (int i = 0; i < requests.size(); ++i) {
+            try (var request = Transfer.prepareTransferRoutingRequest(requests.get(i))) {
+                request.setRoutingContext(graph, (Vertex) null, null);
+                assertEquals(
+                        graph.transferRequestOptions.get(i),
+                        new StreetRelevantOptions(request)
+                );
+
+                for (PathTransfer pathTransfer : graph.transfersByStop.values()) {
+                    if (pathTransfer.getDurationSeconds(i) < 0) { continue; }
+                    var transfer = new Transfer(0, pathTransfer);
+                    var precalculated = transfer.asRaptorTransfer(request, i).orElseThrow();
+                    var traversed = transfer.asRaptorTransfer(request).orElseThrow();
+
+                    assertEquals(traversed.durationInSeconds(), precalculated.durationInSeconds());
+                    assertEquals(traversed.generalizedCost(), precalculated.generalizedCost());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeIndexesAreDeterministic() {
+        var requests = List.of(
+                new RoutingRequest(
+                        new RequestModes(null, StreetMode.WALK, null, null, null)
+                ),
+                new RoutingRequest(
+                        new RequestModes(null, StreetMode.BIKE, null, null, null)
+                )
+        );
+
+        List<String> encodings = Stream.of(graph(true), graph(true)).map(graph -> {
+            graph.hasStreets = true;
+            new DirectTransferGenerator(MAX_TRANSFER_DURATION, requests).buildGraph(graph, null);
+            // Encoding the edges again does not add them, it gives the indexes in the table
+            return graph.transfersByStop.values().stream()
+                    .map(t -> t.from.getId() + "-" + t.to.getId() + ": " + Arrays.toString(
+                            graph.transferEdgeTable.encode(t.getEdges())
+                    ))
+                    .sorted()
+                    .collect(Collectors.joining("\n"));
+        }).collect(Collectors.toList());
+
+        assertEquals(encodings.get(0), encodings.get(1));
+    }
+
     private void assertTransfers(
             Multimap<StopLocation, PathTransfer> transfersByStop,
             TransferDescriptor... transfers
@@ -0,0 +1,63 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.common.geometry.PackedCoordinateSequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ElevationCacheTest {
+
+    @Test
+    public void writeAndReadProfiles() throws IOException {
+        File file = Files.createTempFile("ElevationCacheTest-", ".bin").toFile();
+        file.deleteOnExit();
+
+        ElevationCache.Writer writer = new ElevationCache.Writer();
+        for (int i = 0; i < 2000; ++i) {
+            writer.add(line(i), profile(i));
+        }
+        // The same geometry again, the first profile is kept
+        writer.add(line(7), profile(42));
+        writer.write(file);
+
+        ElevationCache subject = ElevationCache.open(file);
+        assertEquals(2000, subject.size());
+
+        PackedCoordinateSequence profile = subject.get(line(7));
+        assertEquals(2, profile.size());
+        assertEquals(0.0, profile.getX(0));
+        assertEquals(7.0, profile.getY(0));
+        assertEquals(10.0, profile.getX(1));
+        assertEquals(8.0, profile.getY(1));
+
+        assertEquals(1999.0, subject.get(line(1999)).getY(0));
+        assertNull(subject.get(line(2000)));
+        // The reverse direction is a different edge
+        assertNull(subject.get(line(7).reverse()));
+    }
+
+    @Test
+    public void openFileInOtherFormat() throws IOException {
+        File file = Files.createTempFile("ElevationCacheTest-", ".obj").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[] { (byte) 0xac, (byte) 0xed, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0 });
+
+        assertThrows(IOException.class, () -> ElevationCache.open(file));
+    }
+
+    private static LineString line(int i) {
+        return GeometryUtils.makeLineString(10.0 + i * 1e-4, 59.0, 10.0 + i * 1e-4, 59.0001);
+    }
+
+    private static PackedCoordinateSequence profile(int i) {
+        return new PackedCoordinateSequence.Double(new double[] { 0, i, 10, i + 1 }, 2);
+    }
+}
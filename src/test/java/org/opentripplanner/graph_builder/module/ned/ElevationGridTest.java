@@ -0,0 +1,106 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.opentripplanner.common.geometry.GeometryUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ElevationGridTest {
+
+    /**
+     * A 3x2 grid with the first cell centered at (10, 60), rows going south:
+     * <pre>
+     *    0  10  20
+     *   30  40  --
+     * </pre>
+     */
+    private final ElevationGrid subject = new ElevationGrid(
+            new float[] { 0, 10, 20, 30, 40, Float.NaN }, 3, 2, 10.0, 60.0, 1.0, -1.0
+    );
+
+    @Test
+    public void sampleCellCenters() {
+        assertEquals(0.0, subject.sample(10, 60));
+        assertEquals(20.0, subject.sample(12, 60));
+        assertEquals(40.0, subject.sample(11, 59));
+    }
+
+    @Test
+    public void sampleBetweenCellCenters() {
+        assertEquals(5.0, subject.sample(10.5, 60), 1e-9);
+        assertEquals(20.0, subject.sample(10.5, 59.5), 1e-9);
+        assertEquals(10.0, subject.sample(10.25, 59.75), 1e-9);
+    }
+
+    @Test
+    public void sampleOuterHalfOfBorderCells() {
+        assertEquals(0.0, subject.sample(9.6, 60.4));
+        assertEquals(10.0, subject.sample(11, 60.4));
+    }
+
+    @Test
+    public void sampleOutsideOrMissing() {
+        assertTrue(Double.isNaN(subject.sample(9.4, 60)));
+        assertTrue(Double.isNaN(subject.sample(10, 58.4)));
+        assertTrue(Double.isNaN(subject.sample(11.5, 59.5)));
+    }
+
+    @Test
+    public void decodeOnlyTheWindowOfTheCoverage() {
+        GridCoverage2D coverage = coverage();
+        ElevationGrid full = ElevationGrid.fromCoverage(
+                coverage, new Envelope(10.0, 11.0, 59.0, 60.0), ElevationGrid.MAX_CELLS
+        );
+        ElevationGrid clipped = ElevationGrid.fromCoverage(
+                coverage, new Envelope(10.4, 10.5, 59.4, 59.5), ElevationGrid.MAX_CELLS
+        );
+        assertNotNull(full);
+        assertNotNull(clipped);
+
+        assertEquals(100, full.width());
+        assertEquals(100, full.height());
+        // 10 cells covering the window, one cell for the rounding and two cells of margin each way
+        assertTrue(clipped.width() <= 16, "width: " + clipped.width());
+        assertTrue(clipped.height() <= 16, "height: " + clipped.height());
+
+        for (double x : new double[] { 10.4, 10.4321, 10.5 }) {
+            for (double y : new double[] { 59.4, 59.4567, 59.5 }) {
+                assertEquals(full.sample(x, y), clipped.sample(x, y), 1e-6);
+            }
+        }
+        assertTrue(Double.isNaN(clipped.sample(10.9, 59.9)));
+    }
+
+    @Test
+    public void noGridOutsideTheCoverageOrAboveTheSizeLimit() {
+        GridCoverage2D coverage = coverage();
+        assertNull(ElevationGrid.fromCoverage(
+                coverage, new Envelope(20.0, 21.0, 59.0, 60.0), ElevationGrid.MAX_CELLS
+        ));
+        assertNull(ElevationGrid.fromCoverage(coverage, new Envelope(), ElevationGrid.MAX_CELLS));
+        assertNull(ElevationGrid.fromCoverage(coverage, new Envelope(10.0, 11.0, 59.0, 60.0), 9_999));
+        assertNotNull(ElevationGrid.fromCoverage(coverage, new Envelope(10.0, 11.0, 59.0, 60.0), 10_000));
+    }
+
+    /** A 100x100 cells coverage of (10, 59) - (11, 60), where the value is {@code row * 100 + col}. */
+    private static GridCoverage2D coverage() {
+        float[][] matrix = new float[100][100];
+        for (int row = 0; row < 100; ++row) {
+            for (int col = 0; col < 100; ++col) {
+                matrix[row][col] = row * 100 + col;
+            }
+        }
+        return new GridCoverageFactory().create(
+                "dem",
+                matrix,
+                new ReferencedEnvelope(10.0, 11.0, 59.0, 60.0, GeometryUtils.WGS84_XY)
+        );
+    }
+}
@@ -0,0 +1,43 @@
+package org.opentripplanner.graph_builder.module.osm;
+
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactOsmNodeStoreTest {
+
+    @Test
+    public void getNodesAddedOutOfOrder() {
+        CompactOsmNodeStore subject = new CompactOsmNodeStore();
+
+        // More than the initial capacity, in descending order
+        for (long id = 3000; id > 0; --id) {
+            subject.add(id, id / 100.0, -id / 100.0);
+        }
+        // Duplicates, as when reading more than one file
+        subject.add(7, 0.07, -0.07);
+        subject.add(2999, 29.99, -29.99);
+
+        assertEquals(3000, subject.size());
+        assertTrue(subject.contains(1));
+        assertFalse(subject.contains(3001));
+        assertNull(subject.get(0));
+
+        OSMNode node = subject.get(1234);
+        assertEquals(1234, node.getId());
+        assertEquals(12.34, node.lat);
+        assertEquals(-12.34, node.lon);
+
+        // Add more nodes after the first lookup
+        subject.add(5000, 50.0, -50.0);
+        subject.add(4000, 40.0, -40.0);
+
+        assertEquals(3002, subject.size());
+        assertEquals(40.0, subject.get(4000).lat);
+        assertEquals(50.0, subject.get(5000).lat);
+    }
+}
@@ -5,12 +5,40 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.opentripplanner.openstreetmap.model.OSMWithTags;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
 
 public class TestWayPropertySet {
 
     WayPropertySet wps = new WayPropertySet();
     float epsilon = 0.01f;
 
+    @Test
+    public void testDataForWayIsMemoizedOnRelevantTags() {
+        DefaultWayPropertySetSource source = new DefaultWayPropertySetSource();
+        source.populateProperties(wps);
+
+        OSMWithTags footway = new OSMWithTags();
+        footway.addTag("highway", "footway");
+        footway.addTag("name", "A");
+
+        WayProperties first = wps.getDataForWay(footway);
+        // Mutating the returned value must not affect later results
+        first.setPermission(StreetTraversalPermission.ALL);
+
+        OSMWithTags otherFootway = new OSMWithTags();
+        otherFootway.addTag("highway", "footway");
+        otherFootway.addTag("name", "B");
+        assertEquals(
+            StreetTraversalPermission.PEDESTRIAN_AND_BICYCLE,
+            wps.getDataForWay(otherFootway).getPermission()
+        );
+
+        OSMWithTags motorway = new OSMWithTags();
+        motorway.addTag("highway", "motorway");
+        motorway.addTag("name", "A");
+        assertEquals(StreetTraversalPermission.CAR, wps.getDataForWay(motorway).getPermission());
+    }
+
     /**
      * Test that car speeds are calculated accurately
      */
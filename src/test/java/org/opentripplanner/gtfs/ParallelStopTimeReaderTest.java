@@ -0,0 +1,113 @@
+package org.opentripplanner.gtfs;
+
+import org.junit.jupiter.api.Test;
+import org.onebusaway.gtfs.impl.GtfsRelationalDaoImpl;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.gtfs.model.Stop;
+import org.onebusaway.gtfs.model.StopTime;
+import org.onebusaway.gtfs.model.Trip;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelStopTimeReaderTest {
+
+    private final Trip trip = trip("T1");
+    private final Stop stopA = stop("A");
+    private final Stop stopB = stop("B");
+
+    @Test
+    public void readStopTimes() throws IOException {
+        GtfsRelationalDaoImpl store = new GtfsRelationalDaoImpl();
+        boolean read = read(
+                store,
+                "\uFEFFtrip_id,arrival_time,departure_time,stop_id,stop_sequence,stop_headsign,pickup_type,shape_dist_traveled",
+                "T1,08:00:00,08:01:00,A,1,\"Downtown, \"\"Central\"\"\",0,0.0",
+                "T1, , ,B,2,,,",
+                "T1,25:10:05,25:10:05,A,3,Downtown,1,1200.5"
+        );
+        assertTrue(read);
+
+        List<StopTime> stopTimes = new ArrayList<>(store.getAllStopTimes());
+        assertEquals(3, stopTimes.size());
+
+        StopTime first = stopTimes.get(0);
+        assertSame(trip, first.getTrip());
+        assertSame(stopA, first.getStop());
+        assertEquals(8 * 3600, first.getArrivalTime());
+        assertEquals(8 * 3600 + 60, first.getDepartureTime());
+        assertEquals(1, first.getStopSequence());
+        assertEquals("Downtown, \"Central\"", first.getStopHeadsign());
+
+        StopTime second = stopTimes.get(1);
+        assertSame(stopB, second.getStop());
+        assertFalse(second.isArrivalTimeSet());
+        assertFalse(second.isDepartureTimeSet());
+        assertFalse(second.isShapeDistTraveledSet());
+
+        StopTime third = stopTimes.get(2);
+        assertEquals(25 * 3600 + 10 * 60 + 5, third.getArrivalTime());
+        assertEquals(1, third.getPickupType());
+        assertEquals(1200.5, third.getShapeDistTraveled());
+    }
+
+    @Test
+    public void readManyStopTimesInFileOrder() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("trip_id,stop_id,stop_sequence");
+        for (int i = 0; i < 100_000; ++i) {
+            lines.add("T1," + (i % 2 == 0 ? "A" : "B") + "," + i);
+        }
+        GtfsRelationalDaoImpl store = new GtfsRelationalDaoImpl();
+        assertTrue(read(store, lines.toArray(new String[0])));
+
+        int i = 0;
+        for (StopTime stopTime : store.getAllStopTimes()) {
+            assertEquals(i++, stopTime.getStopSequence());
+        }
+        assertEquals(100_000, i);
+    }
+
+    @Test
+    public void unsupportedFilesAreNotRead() throws IOException {
+        GtfsRelationalDaoImpl store = new GtfsRelationalDaoImpl();
+
+        // Unsupported column
+        assertFalse(read(store, "trip_id,stop_id,stop_sequence,continuous_pickup", "T1,A,1,1"));
+        // Unknown stop, for example a flex location
+        assertFalse(read(store, "trip_id,stop_id,stop_sequence", "T1,A,1", "T1,X,2"));
+        // Invalid time
+        assertFalse(read(store, "trip_id,arrival_time,stop_id,stop_sequence", "T1,8.00,A,1"));
+
+        assertTrue(store.getAllStopTimes().isEmpty());
+    }
+
+    private boolean read(GtfsRelationalDaoImpl store, String ... lines) throws IOException {
+        ParallelStopTimeReader subject = new ParallelStopTimeReader(
+                List.of(trip),
+                List.of(stopA, stopB)
+        );
+        byte[] file = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return subject.read(new ByteArrayInputStream(file), store);
+    }
+
+    private static Trip trip(String id) {
+        Trip trip = new Trip();
+        trip.setId(new AgencyAndId("F", id));
+        return trip;
+    }
+
+    private static Stop stop(String id) {
+        Stop stop = new Stop();
+        stop.setId(new AgencyAndId("F", id));
+        return stop;
+    }
+}
@@ -0,0 +1,155 @@
+package org.opentripplanner.netex.loader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.datastore.DataSource;
+import org.opentripplanner.datastore.FileType;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelNetexXmlParserTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void documentsAreReturnedInOrder() throws Exception {
+        List<TestEntry> entries = entries(5);
+        ParallelNetexXmlParser subject = new ParallelNetexXmlParser(executor, 2, entries);
+
+        for (DataSource entry : entries) {
+            assertEquals(entry.name(), subject.parse(entry).getParticipantRef());
+        }
+    }
+
+    @Test
+    public void documentsAreParsedByTheCallerWithoutParseAhead() throws Exception {
+        List<TestEntry> entries = entries(3);
+        ParallelNetexXmlParser subject = new ParallelNetexXmlParser(null, 0, entries);
+
+        for (DataSource entry : entries) {
+            assertEquals(entry.name(), subject.parse(entry).getParticipantRef());
+        }
+    }
+
+    @Test
+    public void parseAheadIsLimited() throws Exception {
+        List<TestEntry> entries = entries(6);
+        ParallelNetexXmlParser subject = new ParallelNetexXmlParser(executor, 2, entries);
+
+        subject.parse(entries.get(0));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // The first entry, and the two entries after it
+        assertEquals(3, TestEntry.nOpened(entries));
+    }
+
+    @Test
+    public void entriesReadOutOfOrderAreRejected() throws Exception {
+        List<TestEntry> entries = entries(3);
+
+        ParallelNetexXmlParser subject = new ParallelNetexXmlParser(executor, 1, entries);
+        assertThrows(IllegalStateException.class, () -> subject.parse(entries.get(1)));
+
+        ParallelNetexXmlParser other = new ParallelNetexXmlParser(executor, 1, entries);
+        other.parse(entries.get(0));
+        assertThrows(IllegalStateException.class, () -> other.parse(entries.get(2)));
+    }
+
+    @Test
+    public void cancelStopsTheParsingAhead() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<TestEntry> entries = entries(4);
+        entries.set(1, new TestEntry("E1") {
+            @Override
+            public InputStream asInputStream() {
+                super.asInputStream();
+                blocked.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Interrupted");
+            }
+        });
+        ParallelNetexXmlParser subject = new ParallelNetexXmlParser(executor, 1, entries);
+
+        subject.parse(entries.get(0));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        subject.cancel();
+
+        // The blocked parsing is interrupted, and the remaining entries are not parsed
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2, TestEntry.nOpened(entries));
+    }
+
+    private static List<TestEntry> entries(int n) {
+        List<TestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            entries.add(new TestEntry("E" + i));
+        }
+        return entries;
+    }
+
+    /** A minimal NeTEx document, with the entry name as participant. */
+    private static class TestEntry implements DataSource {
+
+        private final String name;
+
+        private final AtomicInteger nOpened = new AtomicInteger();
+
+        private TestEntry(String name) {
+            this.name = name;
+        }
+
+        private static int nOpened(List<TestEntry> entries) {
+            return entries.stream().mapToInt(it -> it.nOpened.get()).sum();
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String path() {
+            return name;
+        }
+
+        @Override
+        public FileType type() {
+            return FileType.NETEX;
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            nOpened.incrementAndGet();
+            String xml = "<PublicationDelivery xmlns=\"http://www.netex.org.uk/netex\" version=\"1.0\">"
+                    + "<PublicationTimestamp>2021-01-01T00:00:00</PublicationTimestamp>"
+                    + "<ParticipantRef>" + name + "</ParticipantRef>"
+                    + "</PublicationDelivery>";
+            return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
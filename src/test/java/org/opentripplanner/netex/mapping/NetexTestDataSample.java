@@ -143,6 +143,56 @@ class NetexTestDataSample {
         }
     }
 
+    /**
+     * Add a journey pattern on the same route and stops, without any destination display, and a
+     * service journey with the same times.
+     */
+    JourneyPattern addJourneyPatternWithoutDestinationDisplay(String id, String serviceJourneyId) {
+        JourneyPattern first = journeyPattern;
+        List<PointInLinkSequence_VersionedChildStructure> pointsInLink = new ArrayList<>();
+        List<TimetabledPassingTime> passingTimes = new ArrayList<>();
+
+        List<PointInLinkSequence_VersionedChildStructure> firstPoints = first.getPointsInSequence()
+                .getPointInJourneyPatternOrStopPointInJourneyPatternOrTimingPointInJourneyPattern();
+        for (int i = 0; i < firstPoints.size(); i++) {
+            String stopPointId = id + ":StopPointInJourneyPattern:" + (i + 1);
+            pointsInLink.add(new StopPointInJourneyPattern()
+                    .withId(stopPointId)
+                    .withOrder(BigInteger.valueOf(i + 1))
+                    .withScheduledStopPointRef(createScheduledStopPointRef(stopPointId)));
+            quayIdByStopPointRef.add(
+                    stopPointId,
+                    quayIdByStopPointRef.lookup(firstPoints.get(i).getId())
+            );
+
+            TimetabledPassingTime time = timetabledPassingTimes.get(i);
+            passingTimes.add(new TimetabledPassingTime()
+                    .withId(id + ":TTPT-" + (i + 1))
+                    .withDepartureTime(time.getDepartureTime())
+                    .withPointInJourneyPatternRef(createStopPointRef(stopPointId)));
+        }
+
+        JourneyPattern pattern = new JourneyPattern()
+                .withId(id)
+                .withRouteRef(first.getRouteRef())
+                .withPointsInSequence(
+                        new PointsInJourneyPattern_RelStructure()
+                                .withPointInJourneyPatternOrStopPointInJourneyPatternOrTimingPointInJourneyPattern(pointsInLink)
+                );
+        journeyPatternById.add(pattern);
+
+        ServiceJourney firstServiceJourney = serviceJourneyById.lookup(SERVICE_JOURNEY_ID);
+        serviceJourneyById.add(new ServiceJourney()
+                .withId(serviceJourneyId)
+                .withLineRef(firstServiceJourney.getLineRef())
+                .withDayTypes(createEveryDayRefs())
+                .withJourneyPatternRef(createJourneyPatternRef(id))
+                .withPassingTimes(
+                        new TimetabledPassingTimes_RelStructure().withTimetabledPassingTime(passingTimes)
+                ));
+        return pattern;
+    }
+
     static DayTypeRefs_RelStructure createEveryDayRefs() {
         return new DayTypeRefs_RelStructure().withDayTypeRef(Collections.singleton(createEveryDayRef()));
     }
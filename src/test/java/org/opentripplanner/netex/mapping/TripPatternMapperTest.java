@@ -2,13 +2,18 @@ package org.opentripplanner.netex.mapping;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.Test;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopTime;
 import org.opentripplanner.model.Trip;
 import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.model.impl.EntityById;
@@ -16,6 +21,7 @@ import org.opentripplanner.netex.index.hierarchy.HierarchicalMap;
 import org.opentripplanner.netex.index.hierarchy.HierarchicalMapById;
 import org.opentripplanner.routing.trippattern.Deduplicator;
 import org.opentripplanner.routing.trippattern.TripTimes;
+import org.rutebanken.netex.model.JourneyPattern;
 
 /**
  * @author Thomas Gran (Capra) - tgr@capraconsulting.no (29.11.2017)
@@ -77,4 +83,87 @@ public class TripPatternMapperTest {
         assertEquals(18600, tripTimes.getDepartureTime(2));
         assertEquals(18900, tripTimes.getDepartureTime(3));
     }
-}
\ No newline at end of file
+
+    /**
+     * The journey patterns are mapped in parallel, with the same result as in sequence. A headsign
+     * is not carried over from the previous journey pattern.
+     */
+    @Test
+    public void testMapTripPatternsInParallel() {
+        NetexTestDataSample sample = new NetexTestDataSample();
+        List<JourneyPattern> journeyPatterns = new ArrayList<>();
+        Map<String, FeedScopedId> serviceIds = new HashMap<>();
+        journeyPatterns.add(sample.getJourneyPattern());
+        serviceIds.put(NetexTestDataSample.SERVICE_JOURNEY_ID, SERVICE_ID);
+        for (int i = 2; i <= 20; ++i) {
+            String serviceJourneyId = "RUT:ServiceJourney:" + i;
+            journeyPatterns.add(sample.addJourneyPatternWithoutDestinationDisplay(
+                    "RUT:JourneyPattern:" + i,
+                    serviceJourneyId
+            ));
+            serviceIds.put(serviceJourneyId, SERVICE_ID);
+        }
+
+        Map<String, List<String>> sequential = new HashMap<>();
+        TripPatternMapper sequentialMapper = tripPatternMapper(sample, serviceIds);
+        for (JourneyPattern journeyPattern : journeyPatterns) {
+            addHeadsigns(sequential, sequentialMapper.mapTripPattern(journeyPattern));
+        }
+
+        Map<String, List<String>> parallel = new HashMap<>();
+        List<TripPatternMapperResult> results = tripPatternMapper(sample, serviceIds)
+                .mapTripPatterns(journeyPatterns);
+        assertEquals(journeyPatterns.size(), results.size());
+        for (TripPatternMapperResult result : results) {
+            assertEquals(1, result.tripPatterns.size());
+            addHeadsigns(parallel, result);
+        }
+
+        assertEquals(sequential, parallel);
+        assertEquals(
+                Arrays.asList("Bergen", "Bergen", "Stavanger", "Stavanger"),
+                parallel.get(NetexTestDataSample.SERVICE_JOURNEY_ID)
+        );
+        assertEquals(
+                Arrays.asList(null, null, null, null),
+                parallel.get("RUT:ServiceJourney:2")
+        );
+    }
+
+    private static TripPatternMapper tripPatternMapper(
+            NetexTestDataSample sample,
+            Map<String, FeedScopedId> serviceIds
+    ) {
+        return new TripPatternMapper(
+                new DataImportIssueStore(false),
+                MappingSupport.ID_FACTORY,
+                new EntityById<>(),
+                sample.getStopsById(),
+                new EntityById<>(),
+                new EntityById<>(),
+                sample.getOtpRouteByid(),
+                Collections.emptySet(),
+                sample.getRouteById(),
+                sample.getJourneyPatternById(),
+                sample.getQuayIdByStopPointRef(),
+                new HierarchicalMap<>(),
+                sample.getDestinationDisplayById(),
+                sample.getServiceJourneyById(),
+                new HierarchicalMapById<>(),
+                serviceIds,
+                new Deduplicator()
+        );
+    }
+
+    private static void addHeadsigns(
+            Map<String, List<String>> headsignsByTripId,
+            TripPatternMapperResult result
+    ) {
+        for (Map.Entry<Trip, List<StopTime>> it : result.tripStopTimes.entrySet()) {
+            headsignsByTripId.put(
+                    it.getKey().getId().getId(),
+                    it.getValue().stream().map(StopTime::getStopHeadsign).collect(Collectors.toList())
+            );
+        }
+    }
+}
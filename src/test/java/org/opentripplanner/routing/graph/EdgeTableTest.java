@@ -0,0 +1,48 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.routing.edgetype.FreeEdge;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EdgeTableTest {
+
+    @Test
+    public void encodeAndDecode() {
+        Graph graph = new Graph();
+        List<Edge> edges = new ArrayList<>();
+        IntersectionVertex from = new IntersectionVertex(graph, "V0", 10.0, 59.0);
+        for (int i = 1; i <= 300; ++i) {
+            IntersectionVertex to = new IntersectionVertex(graph, "V" + i, 10.0 + i * 0.001, 59.0);
+            edges.add(new FreeEdge(from, to));
+            from = to;
+        }
+
+        EdgeTable table = new EdgeTable();
+        List<Edge> forward = edges.subList(10, 250);
+        List<Edge> backward = new ArrayList<>(edges);
+        Collections.reverse(backward);
+
+        byte[] encodedForward = table.encode(forward);
+        byte[] encodedBackward = table.encode(backward);
+        byte[] encodedEmpty = table.encode(List.of());
+
+        assertEquals(forward, table.decode(encodedForward));
+        assertEquals(backward, table.decode(encodedBackward));
+        assertEquals(List.of(), table.decode(encodedEmpty));
+        assertEquals(300, table.size());
+
+        // The edges are at consecutive indexes, so each takes one byte
+        assertTrue(encodedForward.length <= forward.size() + 2);
+
+        // The same edge is decoded, not a copy
+        assertSame(edges.get(42), table.decode(encodedBackward).get(257));
+    }
+}
@@ -11,7 +11,9 @@ import org.opentripplanner.ConstantsForTests;
 import org.opentripplanner.common.geometry.HashGridSpatialIndex;
 import org.opentripplanner.datastore.FileType;
 import org.opentripplanner.datastore.file.FileDataSource;
+import org.opentripplanner.routing.edgetype.FreeEdge;
 import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
 import org.opentripplanner.standalone.config.BuildConfig;
 import org.opentripplanner.standalone.config.RouterConfig;
 
@@ -19,9 +21,11 @@ import java.io.File;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
 import java.util.BitSet;
+import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.jar.JarFile;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
 
@@ -111,6 +115,37 @@ public class GraphSerializationTest {
         assertNoDifferences(graph1, graph2);
     }
 
+    /**
+     * The edge lists are rebuilt in parallel, but the order of the edges must be the same every
+     * time, and the outgoing edges must keep the order they had when the graph was saved.
+     */
+    @Test
+    public void reconstructedEdgeListsHaveStableOrder() {
+        Graph graph = new Graph();
+        IntersectionVertex hub = new IntersectionVertex(graph, "hub", 10.0, 59.0);
+        for (int i = 0; i < 500; ++i) {
+            IntersectionVertex spoke = new IntersectionVertex(graph, "V" + i, 10.0 + i * 0.001, 59.0);
+            new FreeEdge(hub, spoke);
+            new FreeEdge(spoke, hub);
+        }
+        List<Edge> outgoing = List.copyOf(hub.getOutgoing());
+        SerializedGraphObject serializedObj = new SerializedGraphObject(
+                graph,
+                BuildConfig.DEFAULT,
+                RouterConfig.DEFAULT
+        );
+
+        serializedObj.reconstructEdgeLists();
+        List<Edge> incoming = List.copyOf(hub.getIncoming());
+        assertEquals(outgoing, List.copyOf(hub.getOutgoing()));
+
+        for (int i = 0; i < 5; ++i) {
+            serializedObj.reconstructEdgeLists();
+            assertEquals(outgoing, List.copyOf(hub.getOutgoing()));
+            assertEquals(incoming, List.copyOf(hub.getIncoming()));
+        }
+    }
+
     /**
      * Tests that saving a Graph to disk and reloading it results in a separate but semantically identical Graph.
      */
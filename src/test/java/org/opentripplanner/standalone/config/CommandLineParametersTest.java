@@ -113,6 +113,22 @@ public class CommandLineParametersTest {
         subject.inferAndValidate();
     }
 
+    @Test
+    public void buildIncremental() {
+        subject.build = true;
+        subject.save = true;
+        assertFalse(subject.doBuildIncremental());
+
+        subject.incremental = true;
+        assertTrue(subject.doBuildIncremental());
+        assertTrue(subject.doBuildStreet());
+        assertTrue(subject.doBuildTransit());
+        assertTrue(subject.doSaveGraph());
+        assertFalse(subject.doSaveStreetGraph());
+        // Is valid
+        subject.inferAndValidate();
+    }
+
     @Test
     public void validateLoad() {
         subject.load = true;
@@ -159,6 +175,13 @@ public class CommandLineParametersTest {
         validateWith().build().expectNotValid();
     }
 
+    @Test
+    public void incrementalRequiresBuild() {
+        // --incremental can only be used with --build
+        validateWith().loadStreet().save().incremental().expectNotValid();
+        validateWith().buildStreet().incremental().expectNotValid();
+    }
+
     @Test
     public void loadStreetRequiresSaveOrServeOrBoth() {
         // --loadStreet requires --save and/or --serve
@@ -189,6 +212,10 @@ public class CommandLineParametersTest {
             subject.loadStreet = true;
             return this;
         }
+        TestValidation incremental() {
+            subject.incremental = true;
+            return this;
+        }
         TestValidation save() {
             subject.save = true;
             return this;
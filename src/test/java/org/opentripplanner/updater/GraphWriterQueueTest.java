@@ -0,0 +1,179 @@
+package org.opentripplanner.updater;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GraphWriterQueueTest {
+
+  private final List<String> events = new ArrayList<>();
+
+  /** Collect the drain jobs, so we can decide when the writer thread is "free". */
+  private final List<Runnable> jobs = new ArrayList<>();
+
+  /** The time of the queue in nanoseconds, controlled by the tests. */
+  private long now = 0;
+
+  private final GraphWriterQueue subject = new GraphWriterQueue(
+      new Graph(),
+      jobs::add,
+      Duration.ofSeconds(10),
+      () -> now
+  );
+
+  @Test
+  public void highPriorityTasksAreExecutedFirst() {
+    subject.submit(updater("parking"), GraphWriterPriority.LOW, task("parking-1"));
+    subject.submit(updater("alerts"), GraphWriterPriority.NORMAL, task("alerts-1"));
+    subject.submit(updater("trips"), GraphWriterPriority.HIGH, task("trips-1"));
+
+    assertEquals(1, subject.size(GraphWriterPriority.HIGH));
+    runJobs();
+
+    assertEquals(List.of("trips-1", "alerts-1", "parking-1"), events);
+    assertEquals(0, subject.size(GraphWriterPriority.LOW));
+  }
+
+  @Test
+  public void consecutiveTasksFromSameUpdaterAreBatchedInOrder() {
+    GraphUpdater rental = updater("rental");
+    GraphUpdater other = updater("other");
+
+    subject.submit(rental, GraphWriterPriority.NORMAL, task("rental-1"));
+    subject.submit(rental, GraphWriterPriority.NORMAL, task("rental-2"));
+    subject.submit(other, GraphWriterPriority.NORMAL, task("other-1"));
+    subject.submit(rental, GraphWriterPriority.NORMAL, task("rental-3"));
+
+    // The first job should execute both of the first two rental tasks
+    jobs.remove(0).run();
+    assertEquals(List.of("rental-1", "rental-2"), events);
+
+    runJobs();
+    assertEquals(List.of("rental-1", "rental-2", "other-1", "rental-3"), events);
+  }
+
+  @Test
+  public void mergeableTasksAreRunAsOneUpdate() {
+    GraphUpdater trips = updater("trips");
+
+    subject.submit(trips, GraphWriterPriority.HIGH, new MergeableTask("a"));
+    subject.submit(trips, GraphWriterPriority.HIGH, new MergeableTask("b"));
+    subject.submit(trips, GraphWriterPriority.HIGH, task("c"));
+    subject.submit(trips, GraphWriterPriority.HIGH, new MergeableTask("d"));
+    subject.submit(trips, GraphWriterPriority.HIGH, new MergeableTask("e"));
+
+    jobs.remove(0).run();
+    // The task in between can not be merged, so there are three graph updates
+    assertEquals(List.of("a+b", "c", "d+e"), events);
+  }
+
+  @Test
+  public void lowPriorityTasksAreNotStarved() {
+    subject.submit(updater("parking"), GraphWriterPriority.LOW, task("parking-1"));
+
+    // A steady stream of high priority tasks
+    GraphUpdater trips = updater("trips");
+    for (int i = 1; i <= 3; ++i) {
+      now += Duration.ofSeconds(6).toNanos();
+      subject.submit(trips, GraphWriterPriority.HIGH, task("trips-" + i));
+      jobs.remove(0).run();
+    }
+
+    // The parking task is taken once it has waited more than 10 seconds
+    assertEquals(List.of("trips-1", "parking-1", "trips-2"), events);
+  }
+
+  @Test
+  public void tasksWithoutUpdaterAreNotBatched() {
+    subject.submit(null, GraphWriterPriority.NORMAL, task("a"));
+    subject.submit(null, GraphWriterPriority.NORMAL, task("b"));
+
+    jobs.remove(0).run();
+    assertEquals(List.of("a"), events);
+  }
+
+  @Test
+  public void failingTaskDoesNotStopTheQueue() {
+    subject.submit(null, GraphWriterPriority.NORMAL, graph -> { throw new IllegalStateException(); });
+    subject.submit(null, GraphWriterPriority.NORMAL, task("a"));
+
+    runJobs();
+    assertEquals(List.of("a"), events);
+  }
+
+  @Test
+  public void reportLatencyPerUpdater() {
+    var registry = new SimpleMeterRegistry();
+    subject.bindTo(registry);
+
+    subject.submit(updater("trips"), GraphWriterPriority.HIGH, task("trips-1"));
+    subject.submit(updater("trips"), GraphWriterPriority.HIGH, task("trips-2"));
+    runJobs();
+
+    assertEquals(
+        2,
+        registry.get("graph.writer.run.time").tag("updater", "trips").timer().count()
+    );
+    assertEquals(
+        0.0,
+        registry.get("graph.writer.queue.size").tag("priority", "HIGH").gauge().value()
+    );
+  }
+
+  private void runJobs() {
+    while (!jobs.isEmpty()) {
+      jobs.remove(0).run();
+    }
+  }
+
+  private GraphWriterRunnable task(String name) {
+    return graph -> events.add(name);
+  }
+
+  private class MergeableTask implements GraphWriterRunnable {
+
+    private final String name;
+
+    private MergeableTask(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void run(Graph graph) {
+      events.add(name);
+    }
+
+    @Override
+    public GraphWriterRunnable mergeWith(GraphWriterRunnable next) {
+      if (!(next instanceof MergeableTask)) { return null; }
+      return new MergeableTask(name + "+" + ((MergeableTask) next).name);
+    }
+  }
+
+  private static GraphUpdater updater(String configRef) {
+    return new GraphUpdater() {
+      @Override
+      public void setGraphUpdaterManager(GraphUpdaterManager updaterManager) { }
+
+      @Override
+      public void setup(Graph graph) { }
+
+      @Override
+      public void run() { }
+
+      @Override
+      public void teardown() { }
+
+      @Override
+      public String getConfigRef() {
+        return configRef;
+      }
+    };
+  }
+}
@@ -0,0 +1,177 @@
+package org.opentripplanner.updater.stoptime;
+
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.updater.GraphWriterRunnable;
+import org.opentripplanner.updater.stoptime.TripUpdateBatchParameters.OverflowPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TripUpdateBatcherTest {
+
+  private static final String FEED_ID = "F";
+
+  /** Long enough for the timer never to fire during a test, flush is called explicitly. */
+  private static final int WINDOW_MS = 60_000;
+
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+  private final List<GraphWriterRunnable> submitted = new ArrayList<>();
+
+  @AfterEach
+  public void tearDown() {
+    timer.shutdownNow();
+  }
+
+  @Test
+  public void mergeUpdatesForSameTripLastWins() {
+    var subject = batcher(100, 1000, OverflowPolicy.DROP_OLDEST);
+
+    subject.add(false, List.of(update("A", 1), update("B", 1)));
+    subject.add(false, List.of(update("A", 2)));
+    assertTrue(submitted.isEmpty());
+
+    subject.flush();
+
+    assertEquals(1, submitted.size());
+    var batch = batch(0);
+    assertFalse(batch.isFullDataset());
+    assertEquals(List.of("B:1", "A:2"), toStrings(batch));
+  }
+
+  @Test
+  public void fullDatasetReplacesBufferedUpdates() {
+    var subject = batcher(100, 1000, OverflowPolicy.DROP_OLDEST);
+
+    subject.add(false, List.of(update("A", 1)));
+    subject.add(true, List.of(update("B", 1)));
+    subject.add(false, List.of(update("C", 1)));
+    subject.flush();
+
+    var batch = batch(0);
+    assertTrue(batch.isFullDataset());
+    assertEquals(List.of("B:1", "C:1"), toStrings(batch));
+  }
+
+  @Test
+  public void flushWhenMaxBatchSizeIsReached() {
+    var subject = batcher(2, 1000, OverflowPolicy.DROP_OLDEST);
+
+    subject.add(false, List.of(update("A", 1)));
+    assertTrue(submitted.isEmpty());
+    subject.add(false, List.of(update("B", 1)));
+    assertEquals(1, submitted.size());
+  }
+
+  @Test
+  public void onlyOneBatchInProgress() {
+    var subject = batcher(100, 1000, OverflowPolicy.DROP_OLDEST);
+
+    subject.add(false, List.of(update("A", 1)));
+    subject.flush();
+    subject.add(false, List.of(update("B", 1)));
+    subject.flush();
+
+    // The second batch is held back until the first one is applied
+    assertEquals(1, submitted.size());
+    assertEquals(1, subject.size());
+
+    subject.onBatchApplied();
+    assertEquals(2, submitted.size());
+    assertEquals(List.of("B:1"), toStrings(batch(1)));
+  }
+
+  @Test
+  public void dropOldestWhenBufferIsFull() {
+    var subject = batcher(100, 2, OverflowPolicy.DROP_OLDEST);
+
+    subject.add(false, List.of(update("A", 1), update("B", 1), update("C", 1)));
+    // Replacing a buffered trip is not an overflow
+    subject.add(false, List.of(update("C", 2)));
+    subject.flush();
+
+    assertEquals(List.of("B:1", "C:2"), toStrings(batch(0)));
+  }
+
+  @Test
+  public void dropNewestWhenBufferIsFull() {
+    var subject = batcher(100, 2, OverflowPolicy.DROP_NEWEST);
+
+    subject.add(false, List.of(update("A", 1), update("B", 1), update("C", 1)));
+    subject.add(false, List.of(update("A", 2)));
+    subject.flush();
+
+    assertEquals(List.of("B:1", "A:2"), toStrings(batch(0)));
+  }
+
+  @Test
+  public void closeCancelsScheduledFlush() throws InterruptedException {
+    var subject = new TripUpdateBatcher(
+        FEED_ID,
+        new TripUpdateBatchParameters(10, 100, 1000, OverflowPolicy.DROP_OLDEST),
+        submitted::add,
+        timer
+    );
+
+    subject.add(false, List.of(update("A", 1)));
+    subject.close();
+    subject.add(false, List.of(update("B", 1)));
+
+    // Wait well past the batch window, the flush scheduled before close must not run
+    Thread.sleep(200);
+    subject.flush();
+
+    assertTrue(submitted.isEmpty());
+    assertEquals(0, subject.size());
+  }
+
+  @Test
+  public void batchingDisabled() {
+    var subject = new TripUpdateBatcher(
+        FEED_ID, TripUpdateBatchParameters.DISABLED, submitted::add, timer
+    );
+
+    subject.add(false, List.of(update("A", 1)));
+    subject.add(false, List.of(update("A", 2)));
+
+    assertEquals(2, submitted.size());
+  }
+
+  private TripUpdateBatcher batcher(int maxBatchSize, int maxPending, OverflowPolicy policy) {
+    return new TripUpdateBatcher(
+        FEED_ID,
+        new TripUpdateBatchParameters(WINDOW_MS, maxBatchSize, maxPending, policy),
+        submitted::add,
+        timer
+    );
+  }
+
+  private TripUpdateGraphWriterRunnable batch(int index) {
+    return (TripUpdateGraphWriterRunnable) submitted.get(index);
+  }
+
+  /** Encode each update as "tripId:timestamp" */
+  private static List<String> toStrings(TripUpdateGraphWriterRunnable batch) {
+    return batch.getUpdates()
+        .stream()
+        .map(it -> it.getTrip().getTripId() + ":" + it.getTimestamp())
+        .collect(Collectors.toList());
+  }
+
+  private static TripUpdate update(String tripId, long version) {
+    return TripUpdate.newBuilder()
+        .setTrip(TripDescriptor.newBuilder().setTripId(tripId).build())
+        .setTimestamp(version)
+        .build();
+  }
+}
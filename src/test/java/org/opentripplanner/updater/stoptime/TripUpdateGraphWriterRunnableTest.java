@@ -0,0 +1,72 @@
+package org.opentripplanner.updater.stoptime;
+
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TripUpdateGraphWriterRunnableTest {
+
+  private final List<String> applied = new ArrayList<>();
+
+  @Test
+  public void mergeIncrementalUpdates() {
+    var first = runnable(false, "F", "A");
+    var second = runnable(false, "F", "B");
+
+    var merged = (TripUpdateGraphWriterRunnable) first.mergeWith(second);
+
+    assertFalse(merged.isFullDataset());
+    assertEquals(List.of(update("A"), update("B")), merged.getUpdates());
+  }
+
+  @Test
+  public void fullDatasetReplacesEarlierUpdates() {
+    var first = runnable(false, "F", "A");
+    var second = runnable(true, "F", "B");
+
+    var merged = (TripUpdateGraphWriterRunnable) first.mergeWith(second);
+
+    assertTrue(merged.isFullDataset());
+    assertEquals(List.of(update("B")), merged.getUpdates());
+  }
+
+  @Test
+  public void doNotMergeOtherFeeds() {
+    assertNull(runnable(false, "F", "A").mergeWith(runnable(false, "G", "B")));
+  }
+
+  @Test
+  public void runCallbacksOfAllMergedUpdatesAlsoIfApplyingFails() {
+    var merged = runnable(false, "F", "A").mergeWith(runnable(true, "F", "B"));
+
+    // There is no snapshot source in the graph, so applying fails
+    assertThrows(RuntimeException.class, () -> merged.run(new Graph()));
+
+    assertEquals(List.of("A", "B"), applied);
+  }
+
+  private TripUpdateGraphWriterRunnable runnable(boolean fullDataset, String feedId, String tripId) {
+    return new TripUpdateGraphWriterRunnable(
+        fullDataset,
+        List.of(update(tripId)),
+        feedId,
+        () -> applied.add(tripId)
+    );
+  }
+
+  private static TripUpdate update(String tripId) {
+    return TripUpdate.newBuilder()
+        .setTrip(TripDescriptor.newBuilder().setTripId(tripId).build())
+        .build();
+  }
+}
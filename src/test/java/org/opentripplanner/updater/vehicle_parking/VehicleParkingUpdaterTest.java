@@ -93,7 +93,7 @@ class VehicleParkingUpdaterTest extends VehicleParkingTestBase {
       }
 
       @Override
-      public void execute(GraphWriterRunnable runnable) {
+      public void execute(GraphUpdater updater, GraphWriterRunnable runnable) {
         runnable.run(graph);
       }
     }
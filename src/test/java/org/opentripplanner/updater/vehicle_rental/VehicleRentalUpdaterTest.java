@@ -0,0 +1,187 @@
+package org.opentripplanner.updater.vehicle_rental;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vehicle_rental.VehicleRentalPlace;
+import org.opentripplanner.routing.vehicle_rental.VehicleRentalStation;
+import org.opentripplanner.routing.vehicle_rental.VehicleRentalStationUris;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.VehicleRentalStationVertex;
+import org.opentripplanner.updater.PollingGraphUpdaterParameters;
+import org.opentripplanner.util.NonLocalizedString;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VehicleRentalUpdaterTest {
+
+    private static final FeedScopedId STATION_ID = new FeedScopedId("Network", "S1");
+
+    private Graph graph;
+
+    private VehicleRentalUpdater updater;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new Graph();
+        IntersectionVertex a = new IntersectionVertex(graph, "A", 10.0, 59.0);
+        IntersectionVertex b = new IntersectionVertex(graph, "B", 10.01, 59.0);
+        street(a, b, false);
+        street(b, a, true);
+
+        updater = new VehicleRentalUpdater(
+            new PollingGraphUpdaterParameters() {
+                @Override
+                public int getFrequencySec() {
+                    return -1;
+                }
+
+                @Override
+                public String getConfigRef() {
+                    return "test";
+                }
+            },
+            new VehicleRentalDataSource() {
+                @Override
+                public boolean update() {
+                    return false;
+                }
+
+                @Override
+                public List<VehicleRentalPlace> getStations() {
+                    return List.of();
+                }
+            }
+        );
+        updater.setup(graph);
+    }
+
+    @Test
+    public void unchangedStationIsNotTouched() {
+        VehicleRentalStation first = station(10.002, 5);
+        apply(first);
+        VehicleRentalStationVertex vertex = vertex();
+        Set<Edge> edges = new HashSet<>(graph.getEdges());
+
+        apply(station(10.002, 5));
+
+        assertSame(vertex, vertex());
+        assertSame(first, vertex.getStation());
+        assertEquals(edges, new HashSet<>(graph.getEdges()));
+    }
+
+    @Test
+    public void changedStatusIsUpdatedInPlace() {
+        apply(station(10.002, 5));
+        VehicleRentalStationVertex vertex = vertex();
+        Set<Edge> edges = new HashSet<>(graph.getEdges());
+
+        VehicleRentalStation changed = station(10.002, 4);
+        apply(changed);
+
+        assertSame(vertex, vertex());
+        assertSame(changed, vertex.getStation());
+        assertEquals(edges, new HashSet<>(graph.getEdges()));
+    }
+
+    @Test
+    public void movedStationReplacesVertexAndEdges() {
+        apply(station(10.002, 5));
+        VehicleRentalStationVertex oldVertex = vertex();
+        int nEdges = graph.getEdges().size();
+        int nVertices = graph.getVertices().size();
+
+        apply(station(10.008, 5));
+        VehicleRentalStationVertex newVertex = vertex();
+
+        assertNotSame(oldVertex, newVertex);
+        assertSame(newVertex, graph.getVertex(newVertex.getLabel()));
+        assertEquals(10.008, newVertex.getLon(), 1e-9);
+        assertEquals(1, graph.getVerticesOfType(VehicleRentalStationVertex.class).size());
+
+        // The old vertex and its edges are gone, nothing is leaked
+        assertTrue(oldVertex.getIncoming().isEmpty());
+        assertTrue(oldVertex.getOutgoing().isEmpty());
+        assertEquals(nEdges, graph.getEdges().size());
+        assertEquals(nVertices, graph.getVertices().size());
+    }
+
+    @Test
+    public void removedStationIsRemovedFromGraph() {
+        int nEdges = graph.getEdges().size();
+        int nVertices = graph.getVertices().size();
+        apply(station(10.002, 5));
+
+        apply();
+
+        assertTrue(updater.verticesByStation.isEmpty());
+        assertEquals(nEdges, graph.getEdges().size());
+        assertEquals(nVertices, graph.getVertices().size());
+    }
+
+    @Test
+    public void hasSameStatusComparesAllProperties() {
+        assertTrue(VehicleRentalUpdater.hasSameStatus(station(10.002, 5), station(10.002, 5)));
+        assertFalse(VehicleRentalUpdater.hasSameStatus(station(10.002, 5), station(10.002, 4)));
+        assertFalse(VehicleRentalUpdater.hasSameStatus(station(10.002, 5), station(10.003, 5)));
+
+        VehicleRentalStation renamed = station(10.002, 5);
+        renamed.name = new NonLocalizedString("Renamed");
+        assertFalse(VehicleRentalUpdater.hasSameStatus(station(10.002, 5), renamed));
+
+        VehicleRentalStation otherNetwork = station(10.002, 5);
+        otherNetwork.id = new FeedScopedId("Other", STATION_ID.getId());
+        assertFalse(VehicleRentalUpdater.hasSameStatus(station(10.002, 5), otherNetwork));
+
+        VehicleRentalStation withUris = station(10.002, 5);
+        withUris.rentalUris = new VehicleRentalStationUris("android", "ios", "web");
+        assertFalse(VehicleRentalUpdater.hasSameStatus(station(10.002, 5), withUris));
+
+        VehicleRentalStation sameUris = station(10.002, 5);
+        sameUris.rentalUris = new VehicleRentalStationUris("android", "ios", "web");
+        assertTrue(VehicleRentalUpdater.hasSameStatus(withUris, sameUris));
+    }
+
+    private void apply(VehicleRentalPlace... stations) {
+        updater.new VehicleRentalGraphWriterRunnable(List.of(stations)).run(graph);
+    }
+
+    private VehicleRentalStationVertex vertex() {
+        return updater.verticesByStation.get(STATION_ID);
+    }
+
+    private static VehicleRentalStation station(double lon, int vehiclesAvailable) {
+        VehicleRentalStation station = new VehicleRentalStation();
+        station.id = STATION_ID;
+        station.name = new NonLocalizedString("Station");
+        station.longitude = lon;
+        station.latitude = 59.0001;
+        station.vehiclesAvailable = vehiclesAvailable;
+        station.spacesAvailable = 10 - vehiclesAvailable;
+        return station;
+    }
+
+    private static void street(IntersectionVertex from, IntersectionVertex to, boolean back) {
+        LineString geometry = GeometryUtils.makeLineString(
+            from.getLon(), from.getLat(), to.getLon(), to.getLat()
+        );
+        new StreetEdge(
+            from, to, geometry, "street", geometry.getLength(),
+            StreetTraversalPermission.ALL, back
+        );
+    }
+}
@@ -64,6 +64,20 @@ class GbfsFeedLoaderTest {
         validateV22Feed(loader);
     }
 
+    @Test
+    void unchangedFeedIsNotReportedAsUpdated() {
+        GbfsFeedLoader loader = new GbfsFeedLoader(
+                "file:src/test/resources/gbfs/lillestrombysykkel/gbfs.json",
+                Map.of(),
+                null
+        );
+
+        assertTrue(loader.update());
+        // The files are read again, as the ttl has expired, but last_updated is the same
+        assertFalse(loader.update());
+        assertNotNull(loader.getFeed(GBFSStationStatus.class));
+    }
+
     @Test
     void getV22FeedWithWrongLanguage() {
         assertThrows(RuntimeException.class, () -> new GbfsFeedLoader(